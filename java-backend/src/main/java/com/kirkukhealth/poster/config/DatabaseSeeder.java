@@ -1,5 +1,7 @@
 package com.kirkukhealth.poster.config;
 
+import com.kirkukhealth.poster.service.SearchTextNormalizer;
+import com.kirkukhealth.poster.service.StatisticsPartitionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.core.annotation.Order;
@@ -10,6 +12,7 @@ import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Database Seeder
@@ -149,6 +152,30 @@ public class DatabaseSeeder implements CommandLineRunner {
             seedHealthTopics();
 
             System.out.println("✅ Successfully seeded 66 health topics into database");
+
+            // Dictionary keys for daily_statistics / monthly_targets
+            seedCategoryKeys();
+            backfillStatisticsKeys();
+            replaceNameConstraints();
+
+            // Covering indexes for statistics queries (see V11 migration)
+            createStatisticsIndexes();
+
+            // Monthly range partitions of daily_statistics (see V12 migration)
+            partitionDailyStatistics();
+            applyStatisticsAutovacuumSettings();
+
+            // Watermarks of analytics extracts (see V13 migration)
+            createAnalyticsExportRunsTable();
+
+            // Archive of pre-generated PDF reports (see V14 migration)
+            createGeneratedReportsTable();
+
+            // Google Drive upload queue (see V15 migration)
+            createDriveUploadJobsTable();
+
+            // Full-text search columns and GIN indexes (see V17 migration)
+            createSearchIndexes();
         } catch (Exception e) {
             System.err.println("❌ Error seeding database: " + e.getMessage());
             e.printStackTrace();
@@ -180,6 +207,456 @@ public class DatabaseSeeder implements CommandLineRunner {
         }
     }
 
+    /**
+     * Create health_categories and assign numeric keys to categories and topics
+     * إنشاء جدول الفئات وتعيين المفاتيح الرقمية للفئات والمواضيع
+     */
+    private void seedCategoryKeys() {
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS health_categories (
+                category_key SMALLINT PRIMARY KEY,
+                category_name VARCHAR(200) NOT NULL UNIQUE
+            )
+            """);
+
+        short categoryKey = 1;
+        for (String categoryName : CATEGORY_TOPICS.keySet()) {
+            jdbcTemplate.update(
+                "INSERT INTO health_categories (category_key, category_name) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                categoryKey++, categoryName);
+        }
+
+        // topic_key is the numeric part of topic_id (topic_007 -> 7)
+        jdbcTemplate.execute("ALTER TABLE health_topics ADD COLUMN IF NOT EXISTS topic_key SMALLINT");
+        jdbcTemplate.execute(
+            "UPDATE health_topics SET topic_key = CAST(SUBSTRING(topic_id FROM 7) AS SMALLINT) " +
+            "WHERE topic_key IS NULL AND topic_id LIKE 'topic\\_%'");
+    }
+
+    /**
+     * Fill category_key/topic_key for rows written before the keys existed
+     * تعبئة المفاتيح الرقمية للصفوف القديمة
+     *
+     * Rows without a key are not covered by the key-based unique constraint, so an
+     * instance still running old code and a keyed upsert can leave two rows for the
+     * same center, topic and period. Those twins are collapsed first (the most recently
+     * updated values win), otherwise totals count them twice and setting the key fails
+     * on the unique constraint.
+     */
+    private void backfillStatisticsKeys() {
+        collapseUnkeyedTwins("daily_statistics", "entry_date",
+            "individual_meetings", "lectures", "seminars");
+        collapseUnkeyedTwins("monthly_targets", "target_year, target_month",
+            "target_meetings", "target_lectures", "target_seminars");
+
+        for (String table : List.of("daily_statistics", "monthly_targets")) {
+            int updated = jdbcTemplate.update(
+                "UPDATE " + table + " s SET category_key = c.category_key, topic_key = t.topic_key " +
+                "FROM health_topics t JOIN health_categories c ON c.category_name = t.category_name " +
+                "WHERE s.topic_key IS NULL " +
+                "AND t.category_name = s.category_name AND t.topic_name = s.topic_name");
+            if (updated > 0) {
+                System.out.println("✅ Backfilled dictionary keys for " + updated + " rows in " + table);
+            }
+        }
+    }
+
+    /**
+     * Merge rows without topic_key into their twin for the same center, topic and period
+     * دمج الصفوف المكررة التي لا تحمل مفتاحاً مع نظيرتها
+     *
+     * @param periodColumns columns identifying the period, e.g. "entry_date"
+     * @param counters the three counter columns, copied from the newer row
+     */
+    private void collapseUnkeyedTwins(String table, String periodColumns, String... counters) {
+        String samePeriod = Arrays.stream(periodColumns.split(",\\s*"))
+            .map(column -> "k." + column + " = n." + column)
+            .collect(Collectors.joining(" AND "));
+        String copyCounters = Arrays.stream(counters)
+            .map(column -> column + " = n." + column)
+            .collect(Collectors.joining(", "));
+        try {
+            // Several unkeyed rows: keep the most recently updated one
+            int duplicates = jdbcTemplate.update(
+                "DELETE FROM " + table + " n USING " + table + " k " +
+                "WHERE n.topic_key IS NULL AND k.topic_key IS NULL " +
+                "AND k.center_id = n.center_id AND k.category_name = n.category_name " +
+                "AND k.topic_name = n.topic_name AND " + samePeriod + " " +
+                "AND (COALESCE(k.updated_at, k.created_at), k.id) > (COALESCE(n.updated_at, n.created_at), n.id)");
+
+            // Unkeyed row written after its keyed twin: its values are the current ones
+            jdbcTemplate.update(
+                "UPDATE " + table + " k SET " + copyCounters + ", updated_at = n.updated_at " +
+                "FROM " + table + " n JOIN health_topics t " +
+                "ON t.category_name = n.category_name AND t.topic_name = n.topic_name " +
+                "WHERE n.topic_key IS NULL AND k.topic_key = t.topic_key " +
+                "AND k.center_id = n.center_id AND " + samePeriod + " " +
+                "AND COALESCE(n.updated_at, n.created_at) > COALESCE(k.updated_at, k.created_at)");
+
+            int merged = jdbcTemplate.update(
+                "DELETE FROM " + table + " n USING " + table + " k, health_topics t " +
+                "WHERE n.topic_key IS NULL " +
+                "AND t.category_name = n.category_name AND t.topic_name = n.topic_name " +
+                "AND k.topic_key = t.topic_key AND k.center_id = n.center_id AND " + samePeriod);
+
+            if (duplicates + merged > 0) {
+                System.out.println("✅ Collapsed " + (duplicates + merged) + " duplicate unkeyed rows in " + table);
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Could not collapse duplicate rows in " + table + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Swap the name-based unique constraints and indexes for key-based ones (see V10 migration)
+     * استبدال القيود والفهارس المعتمدة على الأسماء بأخرى معتمدة على المفاتيح
+     * 
+     * Upserts use ON CONFLICT (center_id, topic_key, ...), which needs exactly this
+     * unique constraint. Any unique constraint still covering category_name (from V4/V5
+     * or an older Hibernate schema) is dropped.
+     */
+    private void replaceNameConstraints() {
+        replaceUniqueConstraint("daily_statistics", "uk_daily_stats",
+            "center_id, topic_key, entry_date");
+        replaceUniqueConstraint("monthly_targets", "uk_monthly_targets",
+            "center_id, topic_key, target_month, target_year");
+
+        List<String> statements = List.of(
+            "CREATE UNIQUE INDEX IF NOT EXISTS uk_health_topics_topic_key ON health_topics(topic_key)",
+            "DROP INDEX IF EXISTS idx_daily_stats_category",
+            "DROP INDEX IF EXISTS idx_monthly_targets_category",
+            "CREATE INDEX IF NOT EXISTS idx_daily_stats_category_key ON daily_statistics(category_key)",
+            "CREATE INDEX IF NOT EXISTS idx_monthly_targets_category_key ON monthly_targets(category_key)"
+        );
+        for (String sql : statements) {
+            try {
+                jdbcTemplate.execute(sql);
+            } catch (Exception e) {
+                System.err.println("⚠️ Could not update dictionary key index: " + e.getMessage());
+            }
+        }
+    }
+
+    private void replaceUniqueConstraint(String table, String constraintName, String columns) {
+        try {
+            jdbcTemplate.execute("""
+                DO $$
+                DECLARE
+                    existing RECORD;
+                BEGIN
+                    FOR existing IN
+                        SELECT conname FROM pg_constraint
+                        WHERE conrelid = '%1$s'::regclass AND contype = 'u'
+                        AND pg_get_constraintdef(oid) LIKE '%%category_name%%'
+                    LOOP
+                        EXECUTE format('ALTER TABLE %1$s DROP CONSTRAINT %%I', existing.conname);
+                    END LOOP;
+
+                    IF NOT EXISTS (
+                        SELECT 1 FROM pg_constraint
+                        WHERE conrelid = '%1$s'::regclass AND contype = 'u'
+                        AND pg_get_constraintdef(oid) = 'UNIQUE (%3$s)'
+                    ) THEN
+                        ALTER TABLE %1$s ADD CONSTRAINT %2$s UNIQUE (%3$s);
+                    END IF;
+                END $$
+                """.formatted(table, constraintName, columns));
+        } catch (Exception e) {
+            System.err.println("❌ Could not create key-based unique constraint on " + table + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Create covering indexes matching the statistics repository queries
+     * and drop the indexes they replace (see V11 migration)
+     * إنشاء الفهارس الشاملة المطابقة لاستعلامات الإحصائيات
+     */
+    private void createStatisticsIndexes() {
+        List<String> indexes = List.of(
+            // Covering indexes created before the name fallback columns were included
+            """
+            DO $$
+            DECLARE
+                idx RECORD;
+            BEGIN
+                FOR idx IN
+                    SELECT indexname FROM pg_indexes
+                    WHERE tablename = 'daily_statistics'
+                    AND indexname IN ('idx_daily_stats_date_covering', 'idx_daily_stats_center_date_covering')
+                    AND indexdef NOT LIKE '%category_name%'
+                LOOP
+                    EXECUTE format('DROP INDEX %I', idx.indexname);
+                END LOOP;
+            END $$
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_daily_stats_date_covering ON daily_statistics (entry_date) " +
+            "INCLUDE (center_id, category_key, topic_key, individual_meetings, lectures, seminars, category_name, topic_name)",
+            "CREATE INDEX IF NOT EXISTS idx_daily_stats_center_date_covering ON daily_statistics (center_id, entry_date) " +
+            "INCLUDE (category_key, topic_key, individual_meetings, lectures, seminars, category_name, topic_name)",
+            "CREATE INDEX IF NOT EXISTS idx_monthly_targets_period_covering ON monthly_targets (target_year, target_month) " +
+            "INCLUDE (center_id, target_meetings, target_lectures, target_seminars)",
+            "CREATE INDEX IF NOT EXISTS idx_monthly_targets_center_period_covering ON monthly_targets (center_id, target_year, target_month) " +
+            "INCLUDE (target_meetings, target_lectures, target_seminars)",
+            // Superseded by the covering indexes above; each one only adds write cost
+            "DROP INDEX IF EXISTS idx_daily_stats_center_id",
+            "DROP INDEX IF EXISTS idx_daily_stats_entry_date",
+            "DROP INDEX IF EXISTS idx_daily_stats_center_date",
+            "DROP INDEX IF EXISTS idx_monthly_targets_center_id",
+            "DROP INDEX IF EXISTS idx_monthly_targets_month_year",
+            "DROP INDEX IF EXISTS idx_monthly_targets_center_month_year"
+        );
+        for (String sql : indexes) {
+            try {
+                jdbcTemplate.execute(sql);
+            } catch (Exception e) {
+                System.err.println("⚠️ Could not create statistics index: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Convert daily_statistics into a table partitioned by month (once), with a
+     * DEFAULT partition for dates outside the monthly partitions
+     * تحويل جدول الإحصائيات اليومية إلى جدول مقسم شهرياً
+     * 
+     * The rename, copy and drop run in one DO block, so a failure leaves the plain
+     * table untouched. StatisticsPartitionService creates the monthly partitions
+     * after this.
+     */
+    private void partitionDailyStatistics() {
+        try {
+            jdbcTemplate.execute("""
+                DO $$
+                DECLARE
+                    first_month DATE;
+                    last_month DATE;
+                    m DATE;
+                BEGIN
+                    IF EXISTS (SELECT 1 FROM pg_class WHERE relname = 'daily_statistics' AND relkind = 'p') THEN
+                        RETURN;
+                    END IF;
+
+                    ALTER TABLE daily_statistics RENAME TO daily_statistics_unpartitioned;
+                    ALTER TABLE daily_statistics_unpartitioned DROP CONSTRAINT IF EXISTS daily_statistics_pkey;
+                    ALTER TABLE daily_statistics_unpartitioned DROP CONSTRAINT IF EXISTS uk_daily_stats;
+                    DROP INDEX IF EXISTS idx_daily_stats_date_covering;
+                    DROP INDEX IF EXISTS idx_daily_stats_center_date_covering;
+                    DROP INDEX IF EXISTS idx_daily_stats_category_key;
+
+                    CREATE TABLE daily_statistics (
+                        id VARCHAR(255) NOT NULL,
+                        center_id VARCHAR(255) NOT NULL,
+                        category_name VARCHAR(200) NOT NULL,
+                        topic_name VARCHAR(300) NOT NULL,
+                        category_key SMALLINT,
+                        topic_key SMALLINT,
+                        individual_meetings INTEGER NOT NULL DEFAULT 0,
+                        lectures INTEGER NOT NULL DEFAULT 0,
+                        seminars INTEGER NOT NULL DEFAULT 0,
+                        entry_date DATE NOT NULL,
+                        created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                        updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        CONSTRAINT daily_statistics_pkey PRIMARY KEY (id, entry_date),
+                        CONSTRAINT uk_daily_stats UNIQUE (center_id, topic_key, entry_date)
+                    ) PARTITION BY RANGE (entry_date);
+
+                    SELECT date_trunc('month', COALESCE(MIN(entry_date), CURRENT_DATE))::date,
+                           date_trunc('month', COALESCE(MAX(entry_date), CURRENT_DATE))::date
+                    INTO first_month, last_month
+                    FROM daily_statistics_unpartitioned;
+
+                    m := first_month;
+                    WHILE m <= last_month LOOP
+                        EXECUTE format('CREATE TABLE %I PARTITION OF daily_statistics FOR VALUES FROM (%L) TO (%L)',
+                                       'daily_statistics_p' || to_char(m, 'YYYY_MM'), m, (m + INTERVAL '1 month')::date);
+                        m := (m + INTERVAL '1 month')::date;
+                    END LOOP;
+
+                    INSERT INTO daily_statistics (id, center_id, category_name, topic_name, category_key, topic_key,
+                                                  individual_meetings, lectures, seminars, entry_date, created_at, updated_at)
+                    SELECT id, center_id, category_name, topic_name, category_key, topic_key,
+                           individual_meetings, lectures, seminars, entry_date, created_at, updated_at
+                    FROM daily_statistics_unpartitioned;
+
+                    DROP TABLE daily_statistics_unpartitioned;
+
+                    CREATE INDEX idx_daily_stats_date_covering ON daily_statistics (entry_date)
+                        INCLUDE (center_id, category_key, topic_key, individual_meetings, lectures, seminars,
+                                 category_name, topic_name);
+                    CREATE INDEX idx_daily_stats_center_date_covering ON daily_statistics (center_id, entry_date)
+                        INCLUDE (category_key, topic_key, individual_meetings, lectures, seminars,
+                                 category_name, topic_name);
+                    CREATE INDEX idx_daily_stats_category_key ON daily_statistics (category_key);
+
+                    RAISE NOTICE 'daily_statistics converted to monthly partitions';
+                END $$
+                """);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS daily_statistics_default PARTITION OF daily_statistics DEFAULT");
+        } catch (Exception e) {
+            System.err.println("❌ Could not partition daily_statistics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Autovacuum settings of V11 on daily_statistics, or on each of its partitions
+     * once it is partitioned (a partitioned parent has no storage options)
+     * إعدادات التنظيف التلقائي لكل قسم من أقسام الإحصائيات اليومية
+     * 
+     * Partitions created later get the same settings from StatisticsPartitionService.
+     */
+    private void applyStatisticsAutovacuumSettings() {
+        try {
+            jdbcTemplate.execute("""
+                DO $$
+                DECLARE
+                    part RECORD;
+                BEGIN
+                    IF EXISTS (SELECT 1 FROM pg_class WHERE relname = 'daily_statistics' AND relkind = 'p') THEN
+                        FOR part IN
+                            SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                            WHERE i.inhparent = 'daily_statistics'::regclass
+                        LOOP
+                            EXECUTE format('ALTER TABLE %%I SET (%1$s)', part.relname);
+                        END LOOP;
+                    ELSE
+                        ALTER TABLE daily_statistics SET (%1$s);
+                    END IF;
+                END $$
+                """.formatted(StatisticsPartitionService.AUTOVACUUM_SETTINGS));
+        } catch (Exception e) {
+            System.err.println("⚠️ Could not set autovacuum settings on daily_statistics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Create the table recording analytics extract watermarks, and the updated_at
+     * indexes the incremental extracts filter on
+     * إنشاء جدول علامات تصدير التحليلات وفهارس updated_at
+     */
+    private void createAnalyticsExportRunsTable() {
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS analytics_export_runs (
+                id BIGSERIAL PRIMARY KEY,
+                watermark TIMESTAMP NOT NULL,
+                since TIMESTAMP,
+                daily_rows BIGINT NOT NULL DEFAULT 0,
+                target_rows BIGINT NOT NULL DEFAULT 0,
+                exported_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+            )
+            """);
+        // On the partitioned daily_statistics this creates the index on every partition
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_daily_stats_updated_at ON daily_statistics (updated_at)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_monthly_targets_updated_at ON monthly_targets (updated_at)");
+    }
+
+    /**
+     * Create the index of stored (content-addressed) PDF reports
+     * إنشاء فهرس تقارير PDF المخزنة
+     */
+    private void createGeneratedReportsTable() {
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS generated_reports (
+                id BIGSERIAL PRIMARY KEY,
+                report_type VARCHAR(20) NOT NULL,
+                start_date DATE NOT NULL,
+                end_date DATE NOT NULL,
+                content_hash CHAR(64) NOT NULL,
+                size_bytes BIGINT NOT NULL,
+                generated_at TIMESTAMP NOT NULL,
+                stale BOOLEAN NOT NULL DEFAULT FALSE,
+                invalidated_at TIMESTAMP,
+                CONSTRAINT uk_generated_reports_period UNIQUE (report_type, start_date, end_date)
+            )
+            """);
+    }
+
+    /**
+     * Create the durable Google Drive upload queue
+     * إنشاء طابور رفع الملفات إلى Google Drive
+     */
+    private void createDriveUploadJobsTable() {
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS drive_upload_jobs (
+                id BIGSERIAL PRIMARY KEY,
+                idempotency_key VARCHAR(200) NOT NULL,
+                user_id VARCHAR(255) NOT NULL,
+                file_name VARCHAR(500) NOT NULL,
+                mime_type VARCHAR(100) NOT NULL,
+                spool_path TEXT NOT NULL,
+                size_bytes BIGINT NOT NULL,
+                bytes_uploaded BIGINT NOT NULL DEFAULT 0,
+                status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+                attempts INTEGER NOT NULL DEFAULT 0,
+                next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                locked_at TIMESTAMP,
+                last_error TEXT,
+                drive_file_id VARCHAR(255),
+                created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                completed_at TIMESTAMP,
+                CONSTRAINT uk_drive_upload_jobs_key UNIQUE (idempotency_key)
+            )
+            """);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_drive_upload_jobs_due " +
+            "ON drive_upload_jobs (next_attempt_at, id) WHERE status = 'PENDING'");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_drive_upload_jobs_user " +
+            "ON drive_upload_jobs (user_id, status)");
+
+        // Sources read at upload time instead of a spooled file (see V16 migration)
+        jdbcTemplate.execute("ALTER TABLE drive_upload_jobs ADD COLUMN IF NOT EXISTS " +
+            "source_type VARCHAR(30) NOT NULL DEFAULT 'SPOOL'");
+        jdbcTemplate.execute("ALTER TABLE drive_upload_jobs ADD COLUMN IF NOT EXISTS source_ref TEXT");
+        jdbcTemplate.execute("ALTER TABLE drive_upload_jobs ALTER COLUMN spool_path DROP NOT NULL");
+        jdbcTemplate.execute("ALTER TABLE drive_upload_jobs ALTER COLUMN size_bytes DROP NOT NULL");
+    }
+
+    /**
+     * Create the normalized full-text search columns and their GIN indexes
+     * إنشاء أعمدة البحث النصي الكامل وفهارسها
+     */
+    private void createSearchIndexes() {
+        // Stored search vectors are computed once per row: when the normalization rules
+        // change, existing rows must be recomputed with the new function
+        List<String> previousBody = jdbcTemplate.queryForList(
+            "SELECT prosrc FROM pg_proc WHERE proname = 'search_normalize'", String.class);
+        boolean rulesChanged = !previousBody.isEmpty()
+            && !previousBody.get(0).trim().equals(SearchTextNormalizer.sqlFunctionBody());
+
+        List<String> statements = List.of(
+            SearchTextNormalizer.sqlFunctionDefinition(),
+            "ALTER TABLE faq_entries ADD COLUMN IF NOT EXISTS search_vector TSVECTOR GENERATED ALWAYS AS (" +
+            "setweight(to_tsvector('simple', search_normalize(question)), 'A') || " +
+            "setweight(to_tsvector('simple', search_normalize(coalesce(tags, '') || ' ' || coalesce(category, ''))), 'B') || " +
+            "setweight(to_tsvector('simple', search_normalize(answer)), 'C')) STORED",
+            "ALTER TABLE bulletins ADD COLUMN IF NOT EXISTS search_vector TSVECTOR GENERATED ALWAYS AS (" +
+            "setweight(to_tsvector('simple', search_normalize(title)), 'A') || " +
+            "setweight(to_tsvector('simple', search_normalize(content)), 'C')) STORED",
+            "ALTER TABLE messages ADD COLUMN IF NOT EXISTS search_vector TSVECTOR GENERATED ALWAYS AS (" +
+            "to_tsvector('simple', search_normalize(content))) STORED",
+            "CREATE INDEX IF NOT EXISTS idx_faq_entries_search ON faq_entries USING GIN (search_vector)",
+            "CREATE INDEX IF NOT EXISTS idx_bulletins_search ON bulletins USING GIN (search_vector)",
+            "CREATE INDEX IF NOT EXISTS idx_messages_search ON messages USING GIN (search_vector)"
+        );
+        for (String sql : statements) {
+            try {
+                jdbcTemplate.execute(sql);
+            } catch (Exception e) {
+                System.err.println("⚠️ Could not create search index: " + e.getMessage());
+            }
+        }
+
+        if (rulesChanged) {
+            try {
+                // Any UPDATE recomputes the generated search_vector of the row
+                jdbcTemplate.execute("UPDATE faq_entries SET question = question");
+                jdbcTemplate.execute("UPDATE bulletins SET title = title");
+                jdbcTemplate.execute("UPDATE messages SET content = content");
+                System.out.println("✅ Search vectors rebuilt for the new normalization rules");
+            } catch (Exception e) {
+                System.err.println("⚠️ Could not rebuild search vectors: " + e.getMessage());
+            }
+        }
+    }
+
     private void seedHealthTopics() {
         int topicCounter = 1;
 
@@ -1,15 +1,28 @@
 package com.kirkukhealth.poster.controller;
 
+import com.kirkukhealth.poster.dto.ReportSnapshot;
+import com.kirkukhealth.poster.service.CenterReportPackService;
 import com.kirkukhealth.poster.service.DailyBriefingService;
+import com.kirkukhealth.poster.service.DriveUploadQueueService;
+import com.kirkukhealth.poster.service.PdfFontRegistry;
 import com.kirkukhealth.poster.service.PdfReportService;
+import com.kirkukhealth.poster.service.ReportArchiveService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
 
 /**
@@ -31,7 +44,16 @@ public class AdminBriefingController {
     private PdfReportService pdfReportService;
 
     @Autowired
-    private com.kirkukhealth.poster.service.GoogleDriveService googleDriveService;
+    private ReportArchiveService reportArchiveService;
+
+    @Autowired
+    private CenterReportPackService centerReportPackService;
+
+    @Autowired
+    private DriveUploadQueueService driveUploadQueueService;
+
+    @Autowired
+    private PdfFontRegistry fontRegistry;
 
     /**
      * Get daily briefing
@@ -49,47 +71,236 @@ public class AdminBriefingController {
      * Generate weekly PDF report
      * توليد تقرير PDF أسبوعي
      * 
+     * Closed working weeks (Saturday–Friday) are served from the report archive
+     * (pre-generated nightly). The ETag is the SHA-256 of the report data, not of the
+     * PDF bytes, so If-None-Match returns 304 while the data is unchanged.
+     * Weeks that have not ended, and other date ranges, are rendered straight into the response.
+     * With userId the PDF is also queued for upload to the user's Google Drive; the
+     * job ID is returned in the X-Drive-Upload-Job header (status: GET /api/drive/uploads).
+     * 
      * GET /api/admin/report/weekly-pdf?startDate={startDate}&endDate={endDate}&userId={userId}
      */
     @GetMapping("/report/weekly-pdf")
-    public ResponseEntity<byte[]> generateWeeklyPdfReport(
+    public ResponseEntity<?> generateWeeklyPdfReport(
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate,
-            @RequestParam(required = false) String userId) {
+            @RequestParam(required = false) String userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         
         try {
             // Default to last 7 days if not specified
             LocalDate end = endDate != null ? LocalDate.parse(endDate) : LocalDate.now();
             LocalDate start = startDate != null ? LocalDate.parse(startDate) : end.minusDays(7);
 
-            byte[] pdfBytes = pdfReportService.generateWeeklyReport(start, end);
-
             // Generate filename
             String filename = String.format("Sector1_Report_%s.pdf", 
                 LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyy_MM_dd")));
 
-            // Upload to user's Google Drive if linked
+            ReportArchiveService.StoredReport report = reportArchiveService.getWeeklyReport(start, end);
+            if (report != null) {
+                // Same stored content is uploaded once per user
+                String uploadKey = idempotencyKey != null ? idempotencyKey : "weekly:" + userId + ":" + report.contentHash();
+                Object jobId = queueDriveUpload(userId, () -> driveUploadQueueService.enqueue(
+                    userId, report.path(), filename, "application/pdf", uploadKey));
+                return withUploadJob(reportResponse(report, filename, ifNoneMatch), jobId);
+            }
+
             if (userId != null && !userId.isEmpty()) {
-                try {
-                    googleDriveService.uploadPdfToDrive(userId, pdfBytes, filename);
-                } catch (Exception e) {
-                    // Log error but don't fail the request
-                    System.err.println("Failed to upload to Google Drive for user " + userId + ": " + e.getMessage());
-                }
+                // Render once in memory (a few pages); the same bytes are spooled and sent
+                ReportSnapshot snapshot = pdfReportService.loadSnapshot(start, end);
+                ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+                pdfReportService.writeReport(snapshot, PdfReportService.WEEKLY_TITLE, pdf);
+                byte[] pdfBytes = pdf.toByteArray();
+                // Keyed by the report data like the archived branch (the PDF bytes differ on
+                // every render), so a repeated request uploads again only when the data changed
+                String uploadKey = idempotencyKey != null ? idempotencyKey
+                    : "weekly:" + userId + ":" + ReportArchiveService.contentHash(ReportArchiveService.WEEKLY, snapshot);
+                Object jobId = queueDriveUpload(userId, () -> driveUploadQueueService.enqueue(
+                    userId, pdfBytes, filename, "application/pdf", uploadKey));
+                return withUploadJob(bytesResponse(pdfBytes, filename), jobId);
             }
+            return streamingResponse(out -> pdfReportService.writeWeeklyReport(start, end, out), filename);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "خطأ في البيانات",
+                "message", "Invalid date format (expected yyyy-MM-dd)"
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(("Error generating PDF: " + e.getMessage()).getBytes());
+        }
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", filename);
-            headers.setContentLength(pdfBytes.length);
+    /**
+     * Generate monthly PDF report
+     * توليد تقرير PDF شهري
+     * 
+     * GET /api/admin/report/monthly-pdf?year={year}&month={month}
+     */
+    @GetMapping("/report/monthly-pdf")
+    public ResponseEntity<?> generateMonthlyPdfReport(
+            @RequestParam int year,
+            @RequestParam int month,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        
+        try {
+            YearMonth yearMonth = YearMonth.of(year, month);
+            String filename = String.format("Sector1_Monthly_Report_%d_%02d.pdf", year, month);
 
-            return ResponseEntity.ok()
-                .headers(headers)
-                .body(pdfBytes);
+            ReportArchiveService.StoredReport report = reportArchiveService.getMonthlyReport(yearMonth);
+            if (report != null) {
+                return reportResponse(report, filename, ifNoneMatch);
+            }
+            return streamingResponse(out -> pdfReportService.writeMonthlyReport(yearMonth, out), filename);
+        } catch (java.time.DateTimeException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "خطأ في البيانات",
+                "message", e.getMessage()
+            ));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(("Error generating PDF: " + e.getMessage()).getBytes());
         }
     }
-}
 
+    /**
+     * Month-end pack: sector report plus one annex per center, as a ZIP
+     * حزمة نهاية الشهر: تقرير القطاع وملحق لكل مركز في ملف مضغوط
+     * 
+     * GET /api/admin/report/center-pack?year={year}&month={month}
+     */
+    @GetMapping("/report/center-pack")
+    public ResponseEntity<?> downloadCenterReportPack(
+            @RequestParam int year,
+            @RequestParam int month) {
+        
+        YearMonth yearMonth;
+        try {
+            yearMonth = YearMonth.of(year, month);
+        } catch (java.time.DateTimeException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "خطأ في البيانات",
+                "message", e.getMessage()
+            ));
+        }
+
+        StreamingResponseBody body = out -> centerReportPackService.writeMonthlyPack(yearMonth, out);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment",
+            String.format("Sector1_Center_Reports_%d_%02d.zip", year, month));
+        headers.setCacheControl(CacheControl.noStore());
+
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    /**
+     * Writes a PDF into an output stream
+     */
+    @FunctionalInterface
+    private interface PdfRenderer {
+        void write(OutputStream out) throws Exception;
+    }
+
+    /**
+     * Stored report sent from disk, with its content hash as ETag
+     */
+    private ResponseEntity<?> reportResponse(ReportArchiveService.StoredReport report, String filename,
+                                             String ifNoneMatch) {
+        String etag = "\"" + report.contentHash() + "\"";
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        HttpHeaders headers = pdfHeaders(filename);
+        headers.setContentLength(report.sizeBytes());
+        headers.setETag(etag);
+        // Revalidate every time: a stale report is regenerated with a new hash
+        headers.setCacheControl(CacheControl.noCache());
+
+        return ResponseEntity.ok().headers(headers).body(new FileSystemResource(report.path()));
+    }
+
+    /**
+     * Report of an open period rendered directly into the response
+     */
+    private ResponseEntity<StreamingResponseBody> streamingResponse(PdfRenderer renderer, String filename) {
+        StreamingResponseBody body = out -> {
+            try {
+                renderer.write(out);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                System.err.println("❌ Error streaming PDF report: " + e.getMessage());
+                throw new IOException(e);
+            }
+        };
+
+        HttpHeaders headers = pdfHeaders(filename);
+        headers.setCacheControl(CacheControl.noStore());
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    private ResponseEntity<byte[]> bytesResponse(byte[] pdfBytes, String filename) {
+        HttpHeaders headers = pdfHeaders(filename);
+        headers.setContentLength(pdfBytes.length);
+        headers.setCacheControl(CacheControl.noStore());
+        return ResponseEntity.ok().headers(headers).body(pdfBytes);
+    }
+
+    /**
+     * Adds one upload job to the Drive queue
+     */
+    @FunctionalInterface
+    private interface UploadEnqueuer {
+        Map<String, Object> enqueue() throws Exception;
+    }
+
+    /**
+     * Queue an upload to the user's Google Drive; failures do not fail the request
+     * 
+     * @return the upload job ID, or null when nothing was queued
+     */
+    private Object queueDriveUpload(String userId, UploadEnqueuer enqueuer) {
+        if (userId == null || userId.isEmpty()) {
+            return null;
+        }
+        try {
+            return enqueuer.enqueue().get("jobId");
+        } catch (Exception e) {
+            // Log error but don't fail the request
+            System.err.println("Failed to queue Google Drive upload for user " + userId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static ResponseEntity<?> withUploadJob(ResponseEntity<?> response, Object jobId) {
+        if (jobId == null) {
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCode())
+            .headers(response.getHeaders())
+            .header("X-Drive-Upload-Job", String.valueOf(jobId))
+            .body(response.getBody());
+    }
+
+    private static HttpHeaders pdfHeaders(String filename) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", filename);
+        return headers;
+    }
+
+    /**
+     * PDF font registry metrics
+     * مقاييس خطوط تقارير PDF
+     * 
+     * GET /api/admin/report/fonts
+     */
+    @GetMapping("/report/fonts")
+    public ResponseEntity<Map<String, Object>> getPdfFontMetrics() {
+        return ResponseEntity.ok(fontRegistry.getMetrics());
+    }
+}
@@ -1,17 +1,21 @@
 package com.kirkukhealth.poster.controller;
 
 import com.kirkukhealth.poster.model.UserProfile;
+import com.kirkukhealth.poster.service.StatisticsPartitionService;
+import com.kirkukhealth.poster.service.StatisticsWarehouseExportService;
 import com.kirkukhealth.poster.service.UserProfileService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.BufferedWriter;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
@@ -30,6 +34,12 @@ public class AdminController {
     @Autowired
     private UserProfileService userProfileService;
 
+    @Autowired
+    private StatisticsPartitionService partitionService;
+
+    @Autowired
+    private StatisticsWarehouseExportService warehouseExportService;
+
     /**
      * Get statistics for all 23 health centers
      * الحصول على إحصائيات جميع المراكز الصحية الـ 23
@@ -86,23 +96,18 @@ public class AdminController {
      * - Ready for presentation to Directorate
      */
     @GetMapping("/statistics/export")
-    public ResponseEntity<byte[]> exportStatisticsAsCSV() {
-        try {
-            List<UserProfile> centers = userProfileService.getAllHealthCentersWithStats();
-            
-            // Create CSV content
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            OutputStreamWriter writer = new OutputStreamWriter(baos, StandardCharsets.UTF_8);
-            
+    public ResponseEntity<StreamingResponseBody> exportStatisticsAsCSV() {
+        List<UserProfile> centers = userProfileService.getAllHealthCentersWithStats();
+        java.time.format.DateTimeFormatter formatter = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        
+        // Rows are written straight to the response instead of an in-memory buffer
+        StreamingResponseBody body = out -> {
             // Write BOM for Excel UTF-8 support
-            baos.write(0xEF);
-            baos.write(0xBB);
-            baos.write(0xBF);
+            out.write(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
             
             // Write Official Header
-            java.time.LocalDateTime now = java.time.LocalDateTime.now();
-            java.time.format.DateTimeFormatter formatter = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            String exportDateTime = now.format(formatter);
+            String exportDateTime = java.time.LocalDateTime.now().format(formatter);
             
             writer.write("Official Activity Report - Kirkuk Health Directorate - First Sector\n");
             writer.write("تقرير النشاط الرسمي - دائرة صحة كركوك – قطاع كركوك الأول\n");
@@ -114,11 +119,13 @@ public class AdminController {
             writer.write("Center ID,Health Center Name,Manager Name,Total Posters Generated,Last Activity Timestamp\n");
             
             // Write data rows
+            int totalPosters = 0;
             for (UserProfile center : centers) {
                 String centerId = center.getUserId() != null ? center.getUserId() : "";
                 String centerName = center.getHealthCenterName() != null ? escapeCSV(center.getHealthCenterName()) : "";
                 String managerName = center.getManagerName() != null ? escapeCSV(center.getManagerName()) : "";
                 int count = center.getPostersGeneratedCount() != null ? center.getPostersGeneratedCount() : 0;
+                totalPosters += count;
                 
                 // Last Activity Timestamp (use updated_at, fallback to created_at)
                 String lastActivity = "";
@@ -135,39 +142,95 @@ public class AdminController {
             }
             
             // Write footer summary
-            int totalPosters = centers.stream()
-                .mapToInt(c -> c.getPostersGeneratedCount() != null ? c.getPostersGeneratedCount() : 0)
-                .sum();
-            
             writer.write("\n"); // Empty line
             writer.write("Summary,Total Centers: " + centers.size() + ",Total Posters Generated: " + totalPosters + "\n");
             writer.write("الملخص,إجمالي المراكز: " + centers.size() + ",إجمالي البوسترات المولدة: " + totalPosters + "\n");
-            
             writer.flush();
-            byte[] csvBytes = baos.toByteArray();
-            writer.close();
-            
-            // Set response headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("text/csv; charset=UTF-8"));
-            headers.setContentDispositionFormData("attachment", "official-activity-report-" + 
-                java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".csv");
-            headers.setContentLength(csvBytes.length);
             
             System.out.println("✅ Official CSV report exported: " + centers.size() + " centers, " + totalPosters + " total posters");
+        };
+        
+        // Set response headers
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv; charset=UTF-8"));
+        headers.setContentDispositionFormData("attachment", "official-activity-report-" + 
+            java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".csv");
+        
+        return ResponseEntity.ok()
+            .headers(headers)
+            .body(body);
+    }
+
+    /**
+     * Export the statistics warehouse for offline analysis (M&E)
+     * تصدير مستودع الإحصائيات للتحليل خارج النظام
+     * 
+     * GET /api/admin/statistics/warehouse-export?incremental={true|false}&since={ISO date-time}
+     * 
+     * ZIP of month-partitioned, dictionary-encoded CSV files (see StatisticsWarehouseExportService).
+     * incremental=true exports only rows changed since the last completed extract.
+     */
+    @GetMapping("/statistics/warehouse-export")
+    public ResponseEntity<StreamingResponseBody> exportStatisticsWarehouse(
+            @RequestParam(defaultValue = "false") boolean incremental,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime since) {
+        
+        java.time.LocalDateTime from = since != null ? since
+            : incremental ? warehouseExportService.getLastWatermark() : null;
+        
+        StreamingResponseBody body = out -> {
+            Map<String, Object> manifest = warehouseExportService.writeExtract(out, from);
+            warehouseExportService.recordRun(manifest);
+            System.out.println("✅ Statistics warehouse extract exported: " + manifest.get("dailyStatisticsRows") +
+                " daily rows, " + manifest.get("monthlyTargetRows") + " target rows" +
+                (from != null ? " (since " + from + ")" : ""));
+        };
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment", "statistics-warehouse-" +
+            java.time.LocalDate.now() + (from != null ? "-incremental" : "") + ".zip");
+        
+        return ResponseEntity.ok()
+            .headers(headers)
+            .body(body);
+    }
+
+    /**
+     * List monthly partitions of daily statistics
+     * عرض الأقسام الشهرية للإحصائيات اليومية
+     * 
+     * GET /api/admin/statistics/partitions
+     */
+    @GetMapping("/statistics/partitions")
+    public ResponseEntity<Map<String, Object>> listStatisticsPartitions() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("partitioned", partitionService.isPartitioned());
+        response.put("partitions", partitionService.isPartitioned() ? partitionService.listPartitions() : List.of());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Detach a past year's partitions for archival
+     * فصل أقسام سنة سابقة للأرشفة
+     * 
+     * POST /api/admin/statistics/partitions/detach?year={year}
+     */
+    @PostMapping("/statistics/partitions/detach")
+    public ResponseEntity<Map<String, Object>> detachStatisticsYear(@RequestParam int year) {
+        try {
+            List<String> detached = partitionService.detachYear(year);
             
-            return ResponseEntity.ok()
-                .headers(headers)
-                .body(csvBytes);
-            
-        } catch (IOException e) {
-            System.err.println("❌ Error exporting statistics: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(("Error exporting statistics: " + e.getMessage()).getBytes());
-        } catch (Exception e) {
-            System.err.println("❌ Unexpected error: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(("Unexpected error: " + e.getMessage()).getBytes());
+            Map<String, Object> response = new HashMap<>();
+            response.put("year", year);
+            response.put("detached", detached);
+            response.put("message", "تم فصل أقسام السنة " + year + " للأرشفة");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "خطأ في البيانات");
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
         }
     }
 
@@ -1,16 +1,24 @@
 package com.kirkukhealth.poster.controller;
 
+import com.kirkukhealth.poster.dto.SearchHit;
 import com.kirkukhealth.poster.model.*;
 import com.kirkukhealth.poster.service.CommunicationService;
+import com.kirkukhealth.poster.service.SearchService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -43,6 +51,9 @@ public class CommunicationController {
     @Autowired
     private com.kirkukhealth.poster.repository.FileUploadRepository fileUploadRepository;
 
+    @Autowired
+    private SearchService searchService;
+
     private static final String UPLOAD_DIR = "uploads/files/";
 
     static {
@@ -274,6 +285,42 @@ public class CommunicationController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Unified search across FAQs, bulletins and messages
+     * البحث الموحد في الأسئلة الشائعة والنشرات والرسائل
+     * 
+     * GET /api/communication/search?q={query}&types=faq,bulletin,message&userId={userId}&limit=20
+     *
+     * Messages are included only for the given userId (sent or received).
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> search(
+            @RequestParam String q,
+            @RequestParam(required = false) String types,
+            @RequestParam(required = false) String userId,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            List<SearchHit> results = searchService.search(q, SearchService.parseTypes(types), userId, limit);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("results", results);
+            response.put("count", results.size());
+            response.put("query", q);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "خطأ في البيانات");
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            System.err.println("❌ Error searching: " + e.getMessage());
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "خطأ في البحث");
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
     /**
      * Get FAQ by ID
      * الحصول على FAQ بالمعرف
@@ -378,9 +425,18 @@ public class CommunicationController {
      * تحميل ملف
      * 
      * GET /api/communication/files/{fileId}/download
+     *
+     * The file is streamed from disk as a Resource, so memory use does not grow with
+     * file size or concurrent downloads. Range requests return 206 with the requested
+     * part (resuming interrupted downloads). Conditional headers (If-None-Match,
+     * If-Modified-Since, If-Match, If-Range) are evaluated by Spring against the ETag
+     * and Last-Modified. Uploaded files never change, so the ETag is the file ID and size.
      */
     @GetMapping("/files/{fileId}/download")
-    public ResponseEntity<?> downloadFile(@PathVariable String fileId) {
+    public ResponseEntity<?> downloadFile(
+            @PathVariable String fileId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            WebRequest webRequest) {
         try {
             Optional<FileUpload> fileOpt = fileUploadRepository.findById(fileId);
             if (fileOpt.isEmpty()) {
@@ -390,25 +446,40 @@ public class CommunicationController {
             FileUpload file = fileOpt.get();
             Path filePath = Paths.get(file.getFilePath());
 
-            if (!Files.exists(filePath)) {
+            if (!Files.isReadable(filePath)) {
                 return ResponseEntity.notFound().build();
             }
 
-            // Increment download count
-            communicationService.incrementDownloadCount(fileId);
+            String etag = "\"" + file.getId() + "-" + file.getFileSize() + "\"";
+            long lastModified = Files.getLastModifiedTime(filePath).toMillis();
+            if (webRequest.checkNotModified(etag, lastModified)) {
+                // 304 (or 412) and its headers are already set on the response
+                return null;
+            }
+
+            // Count a download once: not for resumed parts of the same file
+            if (range == null || range.trim().startsWith("bytes=0-")) {
+                communicationService.incrementDownloadCount(fileId);
+            }
 
-            // Return file
-            byte[] fileBytes = Files.readAllBytes(filePath);
-            
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.parseMediaType(file.getMimeType() != null ? file.getMimeType() : "application/octet-stream"));
-            headers.setContentDispositionFormData("attachment", file.getOriginalName());
-            headers.setContentLength(fileBytes.length);
-
+            headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(file.getOriginalName(), StandardCharsets.UTF_8)
+                .build());
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            headers.setETag(etag);
+            headers.setLastModified(lastModified);
+            headers.setCacheControl(CacheControl.noCache());
+
+            // Spring answers Range requests for Resource bodies with 206 / 416 and sets
+            // Content-Length from the file (or the parts), so it is not set here
+            Resource resource = new FileSystemResource(filePath);
             return ResponseEntity.ok()
                 .headers(headers)
-                .body(fileBytes);
+                .body(resource);
         } catch (IOException e) {
+            System.err.println("❌ Error downloading file " + fileId + ": " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
@@ -1,6 +1,7 @@
 package com.kirkukhealth.poster.controller;
 
 import com.kirkukhealth.poster.model.UserCloudSettings;
+import com.kirkukhealth.poster.service.DriveUploadQueueService;
 import com.kirkukhealth.poster.service.GoogleDriveService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -26,6 +27,9 @@ public class GoogleDriveController {
     @Autowired
     private GoogleDriveService googleDriveService;
 
+    @Autowired
+    private DriveUploadQueueService uploadQueueService;
+
     /**
      * Initiate OAuth2 flow
      * بدء سير عمل OAuth2
@@ -117,6 +121,22 @@ public class GoogleDriveController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Recent upload jobs of a user (queued, retrying, done, failed)
+     * عمليات الرفع الأخيرة للمستخدم
+     * 
+     * GET /api/drive/uploads?userId={userId}&limit={limit}
+     */
+    @GetMapping("/uploads")
+    public ResponseEntity<Map<String, Object>> getUploads(
+            @RequestParam String userId,
+            @RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("userId", userId);
+        response.put("jobs", uploadQueueService.getJobs(userId, Math.max(1, Math.min(limit, 100))));
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Unlink Google Drive
      * إلغاء ربط Google Drive
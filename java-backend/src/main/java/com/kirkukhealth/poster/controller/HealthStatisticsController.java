@@ -1,9 +1,16 @@
 package com.kirkukhealth.poster.controller;
 
+import com.kirkukhealth.poster.dto.AllCentersMonthlyTotals;
+import com.kirkukhealth.poster.dto.CenterMonthlyTotals;
+import com.kirkukhealth.poster.dto.CenterProgressResponse;
+import com.kirkukhealth.poster.dto.TrendSeries;
 import com.kirkukhealth.poster.model.DailyStatistics;
 import com.kirkukhealth.poster.model.MonthlyTarget;
+import com.kirkukhealth.poster.service.DriveUploadQueueService;
 import com.kirkukhealth.poster.service.HealthStatisticsService;
+import com.kirkukhealth.poster.service.StatisticsCacheService;
 import com.kirkukhealth.poster.service.StatisticsExportService;
+import com.kirkukhealth.poster.service.StatisticsStreamExportService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
@@ -11,11 +18,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.IOException;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +45,15 @@ public class HealthStatisticsController {
     @Autowired
     private StatisticsExportService exportService;
 
+    @Autowired
+    private StatisticsCacheService cacheService;
+
+    @Autowired
+    private StatisticsStreamExportService streamExportService;
+
+    @Autowired
+    private DriveUploadQueueService driveUploadQueueService;
+
     /**
      * Get all categories
      * الحصول على جميع الفئات
@@ -154,6 +171,55 @@ public class HealthStatisticsController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Stream daily statistics for any date range as CSV or NDJSON
+     * تصدير متدفق للإحصائيات اليومية بصيغة CSV أو NDJSON
+     * 
+     * GET /api/statistics/daily/export?format={csv|ndjson}&centerId={centerId}&startDate={startDate}&endDate={endDate}
+     * 
+     * Rows are written to the response as they are read, so multi-year exports
+     * for all centers run in constant memory. Omit centerId to export all centers.
+     */
+    @GetMapping("/daily/export")
+    public ResponseEntity<?> exportDailyStatistics(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String centerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        
+        if (endDate == null) endDate = LocalDate.now();
+        if (startDate == null) startDate = endDate.withDayOfYear(1);
+
+        if (startDate.isAfter(endDate) || !(format.equals("csv") || format.equals("ndjson"))) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "خطأ في البيانات");
+            error.put("message", "Invalid date range or format (csv, ndjson)");
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        final LocalDate from = startDate;
+        final LocalDate to = endDate;
+        boolean csv = format.equals("csv");
+
+        StreamingResponseBody body = out -> {
+            long rows = csv
+                ? streamExportService.writeCsv(out, centerId, from, to)
+                : streamExportService.writeNdjson(out, centerId, from, to);
+            System.out.println("✅ Daily statistics streamed (" + format + "): " + rows + " rows, " + from + " → " + to);
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(csv
+            ? MediaType.parseMediaType("text/csv; charset=UTF-8")
+            : MediaType.parseMediaType("application/x-ndjson"));
+        headers.setContentDispositionFormData("attachment",
+            "daily-statistics-" + from + "-" + to + (centerId != null ? "-" + centerId : "") + "." + format);
+
+        return ResponseEntity.ok()
+            .headers(headers)
+            .body(body);
+    }
+
     /**
      * Get monthly totals for a center
      * الحصول على الإجماليات الشهرية لمركز
@@ -161,7 +227,7 @@ public class HealthStatisticsController {
      * GET /api/statistics/monthly?centerId={centerId}&year={year}&month={month}
      */
     @GetMapping("/monthly")
-    public ResponseEntity<Map<String, Object>> getMonthlyTotals(
+    public ResponseEntity<CenterMonthlyTotals> getMonthlyTotals(
             @RequestParam String centerId,
             @RequestParam(required = false) Integer year,
             @RequestParam(required = false) Integer month) {
@@ -170,7 +236,7 @@ public class HealthStatisticsController {
         if (month == null) month = LocalDate.now().getMonthValue();
 
         YearMonth yearMonth = YearMonth.of(year, month);
-        Map<String, Object> totals = statisticsService.getMonthlyTotals(centerId, yearMonth);
+        CenterMonthlyTotals totals = statisticsService.getMonthlyTotals(centerId, yearMonth);
 
         return ResponseEntity.ok(totals);
     }
@@ -182,7 +248,7 @@ public class HealthStatisticsController {
      * GET /api/statistics/monthly/all?year={year}&month={month}
      */
     @GetMapping("/monthly/all")
-    public ResponseEntity<Map<String, Object>> getAllCentersMonthlyTotals(
+    public ResponseEntity<AllCentersMonthlyTotals> getAllCentersMonthlyTotals(
             @RequestParam(required = false) Integer year,
             @RequestParam(required = false) Integer month) {
         
@@ -190,11 +256,40 @@ public class HealthStatisticsController {
         if (month == null) month = LocalDate.now().getMonthValue();
 
         YearMonth yearMonth = YearMonth.of(year, month);
-        Map<String, Object> totals = statisticsService.getAllCentersMonthlyTotals(yearMonth);
+        AllCentersMonthlyTotals totals = statisticsService.getAllCentersMonthlyTotals(yearMonth);
 
         return ResponseEntity.ok(totals);
     }
 
+    /**
+     * Get monthly activity trend with year-over-year comparison
+     * الحصول على اتجاه النشاط الشهري مع المقارنة بالسنة السابقة
+     * 
+     * GET /api/statistics/trend?from={yyyy-MM}&to={yyyy-MM}&centerId={centerId}&category={categoryName}&topic={topicName}&window={months}
+     */
+    @GetMapping("/trend")
+    public ResponseEntity<?> getTrend(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+            @RequestParam(required = false) String centerId,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String topic,
+            @RequestParam(defaultValue = "3") int window) {
+        
+        if (to == null) to = YearMonth.now();
+        if (from == null) from = to.minusMonths(11);
+
+        try {
+            TrendSeries trend = statisticsService.getTrend(from, to, centerId, category, topic, window);
+            return ResponseEntity.ok(trend);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "خطأ في البيانات");
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     /**
      * Get strategic dashboard summary
      * الحصول على ملخص لوحة التحكم الاستراتيجية
@@ -205,11 +300,12 @@ public class HealthStatisticsController {
     public ResponseEntity<Map<String, Object>> getDashboardSummary(
             @RequestParam(required = false) String category) {
         
-        Map<String, Object> summary = statisticsService.getDashboardSummary(category);
+        // Cached views are shared between viewers, so copy before adding progress data
+        Map<String, Object> summary = new LinkedHashMap<>(cacheService.getDashboardSummary(category));
         
         // Add progress data
         YearMonth currentMonth = YearMonth.now();
-        Map<String, Object> progressData = statisticsService.getAllCentersProgress(
+        Map<String, Object> progressData = cacheService.getAllCentersProgress(
             currentMonth.getYear(), currentMonth.getMonthValue());
         summary.put("progressData", progressData);
         
@@ -253,35 +349,88 @@ public class HealthStatisticsController {
      * GET /api/statistics/export/monthly?year={year}&month={month}&centerId={centerId}
      */
     @GetMapping("/export/monthly")
-    public ResponseEntity<byte[]> exportMonthlyReport(
+    public ResponseEntity<StreamingResponseBody> exportMonthlyReport(
             @RequestParam(required = false) Integer year,
             @RequestParam(required = false) Integer month,
             @RequestParam(required = false) String centerId) {
         
-        try {
-            if (year == null) year = LocalDate.now().getYear();
-            if (month == null) month = LocalDate.now().getMonthValue();
-
-            YearMonth yearMonth = YearMonth.of(year, month);
-            byte[] excelBytes = exportService.exportMonthlyReportToExcel(yearMonth, centerId);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
-            headers.setContentDispositionFormData("attachment", 
-                "health-statistics-report-" + yearMonth.toString() + 
-                (centerId != null ? "-" + centerId : "") + ".xlsx");
-            headers.setContentLength(excelBytes.length);
-
-            return ResponseEntity.ok()
-                .headers(headers)
-                .body(excelBytes);
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(("Error exporting report: " + e.getMessage()).getBytes());
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(("Unexpected error: " + e.getMessage()).getBytes());
+        if (year == null) year = LocalDate.now().getYear();
+        if (month == null) month = LocalDate.now().getMonthValue();
+
+        YearMonth yearMonth = YearMonth.of(year, month);
+
+        // The workbook is streamed into the response; no byte[] copy of the file is kept
+        StreamingResponseBody body = out -> exportService.writeMonthlyReport(yearMonth, centerId, out);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+        headers.setContentDispositionFormData("attachment", 
+            "health-statistics-report-" + yearMonth.toString() + 
+            (centerId != null ? "-" + centerId : "") + ".xlsx");
+
+        return ResponseEntity.ok()
+            .headers(headers)
+            .body(body);
+    }
+
+    /**
+     * Queue the monthly Excel report for upload to the user's Google Drive
+     * إضافة تقرير Excel الشهري إلى طابور الرفع إلى Google Drive
+     * 
+     * POST /api/statistics/export/monthly/drive?userId={userId}&year={year}&month={month}&centerId={centerId}
+     */
+    @PostMapping("/export/monthly/drive")
+    public ResponseEntity<Map<String, Object>> uploadMonthlyReportToDrive(
+            @RequestParam String userId,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer month,
+            @RequestParam(required = false) String centerId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        
+        if (year == null) year = LocalDate.now().getYear();
+        if (month == null) month = LocalDate.now().getMonthValue();
+
+        YearMonth yearMonth = YearMonth.of(year, month);
+        // One upload per user, month and center per day unless the client sends its own key
+        String key = idempotencyKey != null ? idempotencyKey
+            : "workbook:" + userId + ":" + yearMonth + ":" + (centerId != null ? centerId : "all") + ":" + LocalDate.now();
+
+        Map<String, Object> job = driveUploadQueueService.enqueueMonthlyWorkbook(userId, yearMonth, centerId, key);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    /**
+     * Export a multi-month workbook (summary sheet plus one sheet per center)
+     * تصدير مصنف متعدد الأشهر (ورقة ملخص وورقة لكل مركز)
+     * 
+     * GET /api/statistics/export/workbook?from={yyyy-MM}&to={yyyy-MM}&layout={centers|summary}
+     */
+    @GetMapping("/export/workbook")
+    public ResponseEntity<?> exportRangeWorkbook(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+            @RequestParam(defaultValue = "centers") String layout) {
+        
+        if (from.isAfter(to) || from.plusMonths(StatisticsExportService.MAX_WORKBOOK_MONTHS).isBefore(to.plusMonths(1))
+                || !(layout.equals("centers") || layout.equals("summary"))) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "خطأ في البيانات");
+            error.put("message", "Invalid range (max " + StatisticsExportService.MAX_WORKBOOK_MONTHS +
+                " months) or layout (centers, summary)");
+            return ResponseEntity.badRequest().body(error);
         }
+
+        boolean centerSheets = layout.equals("centers");
+        StreamingResponseBody body = out -> exportService.writeRangeWorkbook(from, to, centerSheets, out);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+        headers.setContentDispositionFormData("attachment",
+            "health-statistics-workbook-" + from + "-" + to + ".xlsx");
+
+        return ResponseEntity.ok()
+            .headers(headers)
+            .body(body);
     }
 
     /**
@@ -291,7 +440,7 @@ public class HealthStatisticsController {
      * GET /api/statistics/progress?centerId={centerId}&year={year}&month={month}
      */
     @GetMapping("/progress")
-    public ResponseEntity<Map<String, Object>> getProgress(
+    public ResponseEntity<CenterProgressResponse> getProgress(
             @RequestParam String centerId,
             @RequestParam(required = false) Integer year,
             @RequestParam(required = false) Integer month) {
@@ -299,7 +448,7 @@ public class HealthStatisticsController {
         if (year == null) year = LocalDate.now().getYear();
         if (month == null) month = LocalDate.now().getMonthValue();
 
-        Map<String, Object> progress = statisticsService.calculateProgress(centerId, year, month);
+        CenterProgressResponse progress = statisticsService.calculateProgress(centerId, year, month);
         return ResponseEntity.ok(progress);
     }
 
@@ -317,7 +466,7 @@ public class HealthStatisticsController {
         if (year == null) year = LocalDate.now().getYear();
         if (month == null) month = LocalDate.now().getMonthValue();
 
-        Map<String, Object> progress = statisticsService.getAllCentersProgress(year, month);
+        Map<String, Object> progress = cacheService.getAllCentersProgress(year, month);
         return ResponseEntity.ok(progress);
     }
 
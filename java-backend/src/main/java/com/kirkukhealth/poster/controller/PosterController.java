@@ -4,6 +4,7 @@ import com.kirkukhealth.poster.dto.PosterGenerationRequest;
 import com.kirkukhealth.poster.dto.PosterGenerationResponse;
 import com.kirkukhealth.poster.model.PosterContent;
 import com.kirkukhealth.poster.model.UserProfile;
+import com.kirkukhealth.poster.service.DriveUploadQueueService;
 import com.kirkukhealth.poster.service.PosterGenerationService;
 import com.kirkukhealth.poster.service.PosterExportService;
 import com.kirkukhealth.poster.service.PosterImageService;
@@ -48,6 +49,9 @@ public class PosterController {
     @Autowired
     private PosterGovernanceService governanceService;
 
+    @Autowired
+    private DriveUploadQueueService driveUploadQueueService;
+
     @Autowired
     private com.kirkukhealth.poster.service.GeminiAIService geminiAIService;
 
@@ -290,6 +294,34 @@ public class PosterController {
         }
     }
     
+    /**
+     * Queue an approved poster for upload to the user's Google Drive
+     * إضافة بوستر معتمد إلى طابور الرفع إلى Google Drive
+     * 
+     * POST /api/posters/{posterId}/drive?userId={userId}
+     */
+    @PostMapping("/{posterId}/drive")
+    public ResponseEntity<Map<String, Object>> uploadPosterToDrive(
+            @PathVariable String posterId,
+            @RequestParam String userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        try {
+            Map<String, Object> job = driveUploadQueueService.enqueuePoster(userId, posterId,
+                idempotencyKey != null ? idempotencyKey : "poster:" + userId + ":" + posterId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "خطأ في البيانات");
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "خطأ في الخادم");
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
     /**
      * Generate Welcome Poster for Health Center
      * توليد بوستر ترحيبي للمركز الصحي
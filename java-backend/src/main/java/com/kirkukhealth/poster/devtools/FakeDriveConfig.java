@@ -0,0 +1,38 @@
+package com.kirkukhealth.poster.devtools;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Fake Google Drive Configuration
+ * إعدادات خادم Google Drive الوهمي
+ *
+ * Starts FakeGoogleDriveServer for offline testing and load tests of the Drive
+ * integration. Needs both the fake-drive profile and drive.fake.enabled=true, which
+ * application-fake-drive.properties sets together with the Google endpoint overrides.
+ * Never enable in production.
+ *
+ * Example:
+ *   java -jar app.jar --spring.profiles.active=fake-drive --drive.fake.failure-rate=0.1
+ */
+@Configuration
+@Profile("fake-drive")
+@ConditionalOnProperty(name = "drive.fake.enabled", havingValue = "true")
+public class FakeDriveConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public FakeGoogleDriveServer fakeGoogleDriveServer(
+            @Value("${drive.fake.port:8765}") int port,
+            @Value("${drive.fake.latency-ms:50}") long latencyMillis,
+            @Value("${drive.fake.latency-jitter-ms:50}") long latencyJitterMillis,
+            @Value("${drive.fake.failure-rate:0}") double failureRate,
+            @Value("${drive.fake.token-failure-rate:0}") double tokenFailureRate,
+            @Value("${drive.fake.token-expires-seconds:3600}") long tokenExpiresInSeconds) {
+        System.out.println("⚠️ Fake Google Drive server enabled (profile fake-drive)");
+        return new FakeGoogleDriveServer(port, latencyMillis, latencyJitterMillis,
+            failureRate, tokenFailureRate, tokenExpiresInSeconds);
+    }
+}
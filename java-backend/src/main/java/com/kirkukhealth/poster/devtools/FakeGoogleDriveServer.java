@@ -0,0 +1,452 @@
+package com.kirkukhealth.poster.devtools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fake Google Drive Server
+ * خادم Google Drive وهمي للاختبار المحلي
+ *
+ * Embeddable HTTP server implementing the subset of Google APIs used by
+ * GoogleDriveService, so uploads, retries, token refresh and concurrency can be
+ * exercised and benchmarked offline:
+ *
+ *   GET  /o/oauth2/auth                          redirects straight back with a code
+ *   POST /token                                  authorization_code and refresh_token grants
+ *   GET  /drive/v3/files?q=...                   name / appProperties / trashed filters
+ *   POST /drive/v3/files                         metadata-only create (folders)
+ *   POST /upload/drive/v3/files?uploadType=multipart
+ *   POST /upload/drive/v3/files?uploadType=resumable, then PUT chunks with Content-Range
+ *   GET  /_stats                                 counters and stored files
+ *
+ * Every request waits latencyMillis (plus up to latencyJitterMillis); Drive requests
+ * fail with 503 at failureRate and token requests at tokenFailureRate. Files keep
+ * only their metadata and size.
+ *
+ * Started only under the fake-drive profile (see FakeDriveConfig and
+ * application-fake-drive.properties, which points the Google endpoints at it).
+ */
+public class FakeGoogleDriveServer {
+
+    private static final Pattern NAME_FILTER = Pattern.compile("name='((?:[^'\\\\]|\\\\.)*)'");
+    private static final Pattern APP_PROPERTY_FILTER = Pattern.compile(
+        "appProperties has \\{ key='((?:[^'\\\\]|\\\\.)*)' and value='((?:[^'\\\\]|\\\\.)*)' }");
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+    private static final Pattern STATUS_QUERY = Pattern.compile("bytes \\*/(\\d+|\\*)");
+
+    private final int port;
+    private final long latencyMillis;
+    private final long latencyJitterMillis;
+    private final double failureRate;
+    private final double tokenFailureRate;
+    private final long tokenExpiresInSeconds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, FakeFile> files = new ConcurrentHashMap<>();
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedFailures = new AtomicLong();
+    private final AtomicLong tokensIssued = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private record FakeFile(String id, String name, String mimeType, List<String> parents,
+                            Map<String, String> appProperties, long size) {
+    }
+
+    private static final class UploadSession {
+        private final Map<String, Object> metadata;
+        private long received;
+
+        private UploadSession(Map<String, Object> metadata) {
+            this.metadata = metadata;
+        }
+    }
+
+    /**
+     * @param port                  listening port (0 = any free port)
+     * @param latencyMillis         delay added to every request
+     * @param latencyJitterMillis   random extra delay, up to this value
+     * @param failureRate           share of Drive requests answered with 503 (0..1)
+     * @param tokenFailureRate      share of token requests answered with 503 (0..1)
+     * @param tokenExpiresInSeconds lifetime of issued access tokens
+     */
+    public FakeGoogleDriveServer(int port, long latencyMillis, long latencyJitterMillis,
+                                 double failureRate, double tokenFailureRate, long tokenExpiresInSeconds) {
+        this.port = port;
+        this.latencyMillis = latencyMillis;
+        this.latencyJitterMillis = latencyJitterMillis;
+        this.failureRate = failureRate;
+        this.tokenFailureRate = tokenFailureRate;
+        this.tokenExpiresInSeconds = tokenExpiresInSeconds;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        System.out.println("✅ Fake Google Drive server listening on " + getBaseUrl());
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Base URL, e.g. http://127.0.0.1:8765/ (use as Drive root URL)
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("injectedFailures", injectedFailures.get());
+        stats.put("tokensIssued", tokensIssued.get());
+        stats.put("bytesReceived", bytesReceived.get());
+        stats.put("files", files.size());
+        stats.put("openUploadSessions", sessions.size());
+        return stats;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            simulateLatency();
+
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            if (path.equals("/_stats")) {
+                Map<String, Object> stats = getStats();
+                stats.put("fileList", new ArrayList<>(files.values()));
+                sendJson(exchange, 200, stats);
+            } else if (path.equals("/o/oauth2/auth")) {
+                handleAuthorize(exchange, query);
+            } else if (path.equals("/token")) {
+                handleToken(exchange);
+            } else if (!isAuthorized(exchange)) {
+                sendError(exchange, 401, "Request is missing a valid access token");
+            } else if (injectFailure(failureRate)) {
+                drain(exchange);
+                sendError(exchange, 503, "Injected failure");
+            } else if (path.equals("/drive/v3/files") && method.equals("GET")) {
+                handleList(exchange, query);
+            } else if (path.equals("/drive/v3/files") && method.equals("POST")) {
+                Map<String, Object> metadata = readJson(exchange.getRequestBody().readAllBytes());
+                sendJson(exchange, 200, toJson(createFile(metadata, 0)));
+            } else if (path.equals("/upload/drive/v3/files") && query.containsKey("upload_id")) {
+                handleResumableChunk(exchange, query.get("upload_id"));
+            } else if (path.equals("/upload/drive/v3/files") && "resumable".equals(query.get("uploadType"))) {
+                handleResumableStart(exchange);
+            } else if (path.equals("/upload/drive/v3/files")) {
+                handleMultipart(exchange);
+            } else {
+                sendError(exchange, 404, "Not found: " + method + " " + path);
+            }
+        } catch (Exception e) {
+            sendError(exchange, 500, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleAuthorize(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String location = query.getOrDefault("redirect_uri", "/") +
+            "?code=fake-code-" + UUID.randomUUID() + "&state=" +
+            java.net.URLEncoder.encode(query.getOrDefault("state", ""), StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Location", location);
+        exchange.sendResponseHeaders(302, -1);
+    }
+
+    private void handleToken(HttpExchange exchange) throws IOException {
+        Map<String, String> form = parseQuery(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        if (injectFailure(tokenFailureRate)) {
+            sendError(exchange, 503, "Injected token failure");
+            return;
+        }
+
+        Map<String, Object> token = new LinkedHashMap<>();
+        token.put("access_token", "fake-access-" + tokensIssued.incrementAndGet());
+        token.put("token_type", "Bearer");
+        token.put("expires_in", tokenExpiresInSeconds);
+        if ("authorization_code".equals(form.get("grant_type"))) {
+            token.put("refresh_token", "fake-refresh-" + UUID.randomUUID());
+        } else if (!"refresh_token".equals(form.get("grant_type"))) {
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("error", "unsupported_grant_type");
+            sendJson(exchange, 400, error);
+            return;
+        }
+        sendJson(exchange, 200, token);
+    }
+
+    private void handleList(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String q = query.getOrDefault("q", "");
+        Matcher name = NAME_FILTER.matcher(q);
+        Matcher appProperty = APP_PROPERTY_FILTER.matcher(q);
+        String nameFilter = name.find() ? unescape(name.group(1)) : null;
+        String keyFilter = null;
+        String valueFilter = null;
+        if (appProperty.find()) {
+            keyFilter = unescape(appProperty.group(1));
+            valueFilter = unescape(appProperty.group(2));
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (FakeFile file : files.values()) {
+            if (nameFilter != null && !nameFilter.equals(file.name())) continue;
+            if (keyFilter != null && !valueFilter.equals(file.appProperties().get(keyFilter))) continue;
+            result.add(toJson(file));
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("files", result);
+        sendJson(exchange, 200, response);
+    }
+
+    private void handleMultipart(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        bytesReceived.addAndGet(body.length);
+
+        if (contentType == null || !contentType.contains("boundary=")) {
+            // Media-only upload
+            sendJson(exchange, 200, toJson(createFile(new LinkedHashMap<>(), body.length)));
+            return;
+        }
+
+        String boundary = contentType.substring(contentType.indexOf("boundary=") + 9).replace("\"", "");
+        List<byte[]> parts = splitMultipart(body, boundary);
+        Map<String, Object> metadata = parts.isEmpty() ? new LinkedHashMap<>() : readJson(parts.get(0));
+        long size = parts.size() > 1 ? parts.get(1).length : 0;
+        sendJson(exchange, 200, toJson(createFile(metadata, size)));
+    }
+
+    private void handleResumableStart(HttpExchange exchange) throws IOException {
+        Map<String, Object> metadata = readJson(exchange.getRequestBody().readAllBytes());
+        String uploadId = UUID.randomUUID().toString();
+        sessions.put(uploadId, new UploadSession(metadata));
+
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        exchange.getResponseHeaders().add("Location",
+            "http://" + host + "/upload/drive/v3/files?uploadType=resumable&upload_id=" + uploadId);
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void handleResumableChunk(HttpExchange exchange, String uploadId) throws IOException {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null) {
+            drain(exchange);
+            sendError(exchange, 404, "Upload session not found");
+            return;
+        }
+
+        String contentRange = exchange.getRequestHeaders().getFirst("Content-Range");
+        byte[] chunk = exchange.getRequestBody().readAllBytes();
+        bytesReceived.addAndGet(chunk.length);
+
+        Long total = null;
+        synchronized (session) {
+            Matcher range = contentRange != null ? CONTENT_RANGE.matcher(contentRange) : null;
+            Matcher status = contentRange != null ? STATUS_QUERY.matcher(contentRange) : null;
+            if (range != null && range.matches()) {
+                long first = Long.parseLong(range.group(1));
+                // Accept only the continuation of what was received; a resent chunk overlaps it
+                if (first <= session.received) {
+                    session.received = Math.max(session.received, first + chunk.length);
+                }
+                total = range.group(3).equals("*") ? null : Long.parseLong(range.group(3));
+            } else if (status != null && status.matches()) {
+                total = status.group(1).equals("*") ? null : Long.parseLong(status.group(1));
+            } else if (contentRange == null) {
+                session.received += chunk.length;
+                total = session.received;
+            }
+
+            if (total != null && session.received >= total) {
+                sessions.remove(uploadId);
+                sendJson(exchange, 200, toJson(createFile(session.metadata, session.received)));
+                return;
+            }
+
+            if (session.received > 0) {
+                exchange.getResponseHeaders().add("Range", "bytes=0-" + (session.received - 1));
+            }
+        }
+        exchange.sendResponseHeaders(308, -1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private FakeFile createFile(Map<String, Object> metadata, long size) {
+        String id = "fake-" + UUID.randomUUID();
+        FakeFile file = new FakeFile(id,
+            (String) metadata.getOrDefault("name", "Untitled"),
+            (String) metadata.getOrDefault("mimeType", "application/octet-stream"),
+            (List<String>) metadata.getOrDefault("parents", List.of()),
+            (Map<String, String>) metadata.getOrDefault("appProperties", Map.of()),
+            size);
+        files.put(id, file);
+        return file;
+    }
+
+    private static Map<String, Object> toJson(FakeFile file) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", file.id());
+        json.put("name", file.name());
+        json.put("mimeType", file.mimeType());
+        json.put("parents", file.parents());
+        json.put("size", String.valueOf(file.size()));
+        json.put("webViewLink", "https://drive.google.com/file/d/" + file.id() + "/view");
+        return json;
+    }
+
+    private boolean isAuthorized(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        return authorization != null && authorization.startsWith("Bearer ");
+    }
+
+    private boolean injectFailure(double rate) {
+        if (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate) {
+            injectedFailures.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private void simulateLatency() {
+        long delay = latencyMillis + (latencyJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(latencyJitterMillis + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readJson(byte[] body) throws IOException {
+        if (body.length == 0) {
+            return new LinkedHashMap<>();
+        }
+        return objectMapper.readValue(body, Map.class);
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("code", status);
+        error.put("message", message);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", error);
+        sendJson(exchange, status, body);
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static String unescape(String value) {
+        return value.replace("\\'", "'").replace("\\\\", "\\");
+    }
+
+    /**
+     * Bodies of a multipart/related payload (part headers removed)
+     */
+    private static List<byte[]> splitMultipart(byte[] body, String boundary) {
+        byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        byte[] headerEnd = "\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+        List<byte[]> parts = new ArrayList<>();
+
+        int start = indexOf(body, delimiter, 0);
+        while (start >= 0) {
+            int partStart = start + delimiter.length;
+            if (partStart + 1 < body.length && body[partStart] == '-' && body[partStart + 1] == '-') {
+                break; // closing delimiter
+            }
+            int next = indexOf(body, delimiter, partStart);
+            if (next < 0) {
+                break;
+            }
+            int contentStart = indexOf(body, headerEnd, partStart);
+            if (contentStart >= 0 && contentStart < next) {
+                contentStart += headerEnd.length;
+                int contentEnd = next - 2; // CRLF before the delimiter
+                byte[] part = new byte[Math.max(0, contentEnd - contentStart)];
+                System.arraycopy(body, contentStart, part, 0, part.length);
+                parts.add(part);
+            }
+            start = next;
+        }
+        return parts;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from) {
+        outer:
+        for (int i = from; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,53 @@
+package com.kirkukhealth.poster.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Monthly totals of all health centers (admin report)
+ * الإجماليات الشهرية لجميع المراكز الصحية (تقرير المدير)
+ *
+ * In the JSON of /monthly/all each center's "categories" is an object keyed by
+ * category name, as it has always been for this endpoint; Java callers use
+ * centers() with the ordered category list.
+ */
+public record AllCentersMonthlyTotals(
+    @JsonProperty("yearMonth") String yearMonth,
+    @JsonProperty("startDate") LocalDate startDate,
+    @JsonProperty("endDate") LocalDate endDate,
+    @JsonIgnore List<CenterMonthlyTotals> centers) {
+
+    @JsonProperty("centers")
+    public List<CenterEntry> centerEntries() {
+        return centers.stream().map(CenterEntry::of).toList();
+    }
+
+    /**
+     * One center as serialized by /monthly/all
+     * مركز واحد كما يظهر في تقرير جميع المراكز
+     */
+    public record CenterEntry(
+        @JsonProperty("centerId") String centerId,
+        @JsonProperty("centerName") String centerName,
+        @JsonProperty("categories") Map<String, CategoryTotals> categories,
+        @JsonProperty("grandTotalMeetings") long grandTotalMeetings,
+        @JsonProperty("grandTotalLectures") long grandTotalLectures,
+        @JsonProperty("grandTotalSeminars") long grandTotalSeminars,
+        @JsonProperty("grandTotal") long grandTotal) {
+
+        static CenterEntry of(CenterMonthlyTotals center) {
+            Map<String, CategoryTotals> categories = new LinkedHashMap<>();
+            for (CategoryTotals category : center.categories()) {
+                categories.put(category.categoryName(), category);
+            }
+            return new CenterEntry(center.centerId(), center.centerName(), categories,
+                center.grandTotalMeetings(), center.grandTotalLectures(),
+                center.grandTotalSeminars(), center.grandTotal());
+        }
+    }
+}
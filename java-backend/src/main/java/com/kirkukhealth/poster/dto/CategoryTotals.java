@@ -0,0 +1,22 @@
+package com.kirkukhealth.poster.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Aggregated activity counters for one category and its topics
+ * إجماليات النشاط لفئة واحدة ومواضيعها
+ */
+public record CategoryTotals(
+    @JsonProperty("categoryName") String categoryName,
+    @JsonProperty("topics") List<TopicTotals> topics,
+    @JsonProperty("totalMeetings") long totalMeetings,
+    @JsonProperty("totalLectures") long totalLectures,
+    @JsonProperty("totalSeminars") long totalSeminars) {
+
+    @JsonProperty("total")
+    public long total() {
+        return totalMeetings + totalLectures + totalSeminars;
+    }
+}
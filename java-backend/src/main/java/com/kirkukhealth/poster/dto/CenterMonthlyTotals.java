@@ -0,0 +1,27 @@
+package com.kirkukhealth.poster.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Monthly totals of one health center (center → category → topic)
+ * الإجماليات الشهرية لمركز صحي واحد (مركز ← فئة ← موضوع)
+ */
+public record CenterMonthlyTotals(
+    @JsonProperty("centerId") String centerId,
+    @JsonProperty("centerName") String centerName,
+    @JsonProperty("yearMonth") String yearMonth,
+    @JsonProperty("startDate") LocalDate startDate,
+    @JsonProperty("endDate") LocalDate endDate,
+    @JsonProperty("categories") List<CategoryTotals> categories,
+    @JsonProperty("grandTotalMeetings") long grandTotalMeetings,
+    @JsonProperty("grandTotalLectures") long grandTotalLectures,
+    @JsonProperty("grandTotalSeminars") long grandTotalSeminars) {
+
+    @JsonProperty("grandTotal")
+    public long grandTotal() {
+        return grandTotalMeetings + grandTotalLectures + grandTotalSeminars;
+    }
+}
@@ -0,0 +1,48 @@
+package com.kirkukhealth.poster.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO for monthly progress of a health center against its targets
+ * كائن استجابة تقدم المركز الصحي الشهري مقابل أهدافه
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CenterProgressResponse {
+
+    @JsonProperty("centerId")
+    private String centerId;
+
+    @JsonProperty("centerName")
+    private String centerName;
+
+    @JsonProperty("year")
+    private int year;
+
+    @JsonProperty("month")
+    private int month;
+
+    @JsonProperty("actualTotal")
+    private long actualTotal;
+
+    @JsonProperty("targetTotal")
+    private long targetTotal;
+
+    @JsonProperty("overallPercent")
+    private double overallPercent;
+
+    @JsonProperty("status")
+    private String status; // On Track, Average, Behind Schedule
+
+    @JsonProperty("color")
+    private String color; // green, yellow, red
+
+    @JsonProperty("behindSchedule")
+    private boolean behindSchedule;
+}
@@ -0,0 +1,116 @@
+package com.kirkukhealth.poster.dto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data of one report period, assembled once and shared by every report section
+ * بيانات فترة التقرير، تُجمع مرة واحدة وتُستخدم في جميع أقسام التقرير
+ * 
+ * @param centers          per-center category/topic totals (centers with activity, ordered by ID)
+ * @param sectorCategories sector totals for every category and topic, zeros included
+ * @param centerNames      health center name by center ID
+ * @param managerNames     manager name by center ID
+ */
+public record ReportSnapshot(
+    LocalDate startDate,
+    LocalDate endDate,
+    List<CenterMonthlyTotals> centers,
+    List<CategoryTotals> sectorCategories,
+    Map<String, String> centerNames,
+    Map<String, String> managerNames,
+    long approvedPosters,
+    long pendingPosters,
+    long totalPosters) {
+
+    public long totalMeetings() {
+        return sectorCategories.stream().mapToLong(CategoryTotals::totalMeetings).sum();
+    }
+
+    public long totalLectures() {
+        return sectorCategories.stream().mapToLong(CategoryTotals::totalLectures).sum();
+    }
+
+    public long totalSeminars() {
+        return sectorCategories.stream().mapToLong(CategoryTotals::totalSeminars).sum();
+    }
+
+    /**
+     * Centers with the highest activity total
+     * المراكز الأعلى نشاطاً
+     */
+    public List<CenterMonthlyTotals> topCenters(int limit) {
+        return centers.stream()
+            .sorted(Comparator.comparingLong(CenterMonthlyTotals::grandTotal).reversed())
+            .limit(limit)
+            .toList();
+    }
+
+    /**
+     * Totals of one center, or null when it has no activity in the period
+     * إجماليات مركز واحد
+     */
+    public CenterMonthlyTotals center(String centerId) {
+        for (CenterMonthlyTotals center : centers) {
+            if (center.centerId().equals(centerId)) {
+                return center;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Every category and topic in the official order with one center's counts, zeros included
+     * جميع الفئات والمواضيع بأعداد مركز واحد
+     */
+    public List<CategoryTotals> centerCategories(String centerId) {
+        Map<String, Map<String, TopicTotals>> centerTopics = new HashMap<>();
+        CenterMonthlyTotals center = center(centerId);
+        if (center != null) {
+            for (CategoryTotals category : center.categories()) {
+                Map<String, TopicTotals> topics = centerTopics.computeIfAbsent(category.categoryName(), k -> new HashMap<>());
+                for (TopicTotals topic : category.topics()) {
+                    topics.put(topic.topicName(), topic);
+                }
+            }
+        }
+
+        List<CategoryTotals> categories = new ArrayList<>();
+        for (CategoryTotals sectorCategory : sectorCategories) {
+            List<TopicTotals> topics = new ArrayList<>();
+            long meetings = 0;
+            long lectures = 0;
+            long seminars = 0;
+            Map<String, TopicTotals> categoryTopics = centerTopics.getOrDefault(sectorCategory.categoryName(), Map.of());
+            for (TopicTotals sectorTopic : sectorCategory.topics()) {
+                TopicTotals topic = categoryTopics.getOrDefault(sectorTopic.topicName(),
+                    new TopicTotals(sectorTopic.topicName(), 0, 0, 0));
+                topics.add(topic);
+                meetings += topic.individualMeetings();
+                lectures += topic.lectures();
+                seminars += topic.seminars();
+            }
+            categories.add(new CategoryTotals(sectorCategory.categoryName(), List.copyOf(topics),
+                meetings, lectures, seminars));
+        }
+        return categories;
+    }
+
+    /**
+     * Rank of a center by activity total (1 = highest), or 0 when it has no activity
+     * ترتيب المركز حسب إجمالي النشاط
+     */
+    public int rankOf(String centerId) {
+        List<CenterMonthlyTotals> ranked = topCenters(centers.size());
+        for (int i = 0; i < ranked.size(); i++) {
+            if (ranked.get(i).centerId().equals(centerId)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+}
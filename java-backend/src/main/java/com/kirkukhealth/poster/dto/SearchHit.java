@@ -0,0 +1,23 @@
+package com.kirkukhealth.poster.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+
+/**
+ * One result of the unified search
+ * نتيجة واحدة من البحث الموحد
+ *
+ * @param type    FAQ, BULLETIN or MESSAGE
+ * @param title   FAQ question, bulletin title, or the start of a message
+ * @param snippet start of the answer / content
+ * @param rank    relevance (higher first); comparable within one query only
+ */
+public record SearchHit(
+    @JsonProperty("type") String type,
+    @JsonProperty("id") String id,
+    @JsonProperty("title") String title,
+    @JsonProperty("snippet") String snippet,
+    @JsonProperty("rank") double rank,
+    @JsonProperty("createdAt") LocalDateTime createdAt) {
+}
@@ -0,0 +1,19 @@
+package com.kirkukhealth.poster.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Aggregated activity counters for one topic
+ * إجماليات النشاط لموضوع واحد
+ */
+public record TopicTotals(
+    @JsonProperty("topicName") String topicName,
+    @JsonProperty("individualMeetings") long individualMeetings,
+    @JsonProperty("lectures") long lectures,
+    @JsonProperty("seminars") long seminars) {
+
+    @JsonProperty("total")
+    public long total() {
+        return individualMeetings + lectures + seminars;
+    }
+}
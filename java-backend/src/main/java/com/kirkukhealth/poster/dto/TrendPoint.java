@@ -0,0 +1,29 @@
+package com.kirkukhealth.poster.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One month of an activity trend series
+ * شهر واحد من سلسلة اتجاه النشاط
+ * 
+ * yearOverYearPercent is null when the same month of the previous year has no activity.
+ */
+public record TrendPoint(
+    @JsonProperty("yearMonth") String yearMonth,
+    @JsonProperty("individualMeetings") long individualMeetings,
+    @JsonProperty("lectures") long lectures,
+    @JsonProperty("seminars") long seminars,
+    @JsonProperty("previousYearTotal") long previousYearTotal,
+    @JsonProperty("yearOverYearPercent") Double yearOverYearPercent,
+    @JsonProperty("movingAverage") double movingAverage) {
+
+    @JsonProperty("total")
+    public long total() {
+        return individualMeetings + lectures + seminars;
+    }
+
+    @JsonProperty("yearOverYearChange")
+    public long yearOverYearChange() {
+        return total() - previousYearTotal;
+    }
+}
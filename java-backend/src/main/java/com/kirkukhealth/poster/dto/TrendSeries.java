@@ -0,0 +1,21 @@
+package com.kirkukhealth.poster.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Monthly activity trend for a range (strategic dashboard charts)
+ * اتجاه النشاط الشهري لنطاق زمني (مخططات لوحة التحكم الاستراتيجية)
+ * 
+ * Null filters mean "all" (all centers, categories or topics).
+ */
+public record TrendSeries(
+    @JsonProperty("from") String from,
+    @JsonProperty("to") String to,
+    @JsonProperty("centerId") String centerId,
+    @JsonProperty("categoryName") String categoryName,
+    @JsonProperty("topicName") String topicName,
+    @JsonProperty("movingAverageWindow") int movingAverageWindow,
+    @JsonProperty("points") List<TrendPoint> points) {
+}
@@ -22,7 +22,7 @@ import java.time.LocalDate;
 @Entity
 @Table(name = "daily_statistics", 
        uniqueConstraints = {
-           @UniqueConstraint(columnNames = {"center_id", "topic_name", "category_name", "entry_date"})
+           @UniqueConstraint(columnNames = {"center_id", "topic_key", "entry_date"})
        })
 @Data
 @Builder
@@ -55,6 +55,20 @@ public class DailyStatistics {
     @Column(name = "topic_name", nullable = false, length = 300)
     private String topicName;
 
+    /**
+     * Category Key (health_categories.category_key)
+     * مفتاح الفئة الرقمي
+     */
+    @Column(name = "category_key")
+    private Short categoryKey;
+
+    /**
+     * Topic Key (health_topics.topic_key) - used for grouping and uniqueness
+     * مفتاح الموضوع الرقمي - يستخدم للتجميع والتفرد
+     */
+    @Column(name = "topic_key")
+    private Short topicKey;
+
     /**
      * Individual Meetings Count
      * عدد اللقاءات الفردية
@@ -18,7 +18,7 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "monthly_targets",
        uniqueConstraints = {
-           @UniqueConstraint(columnNames = {"center_id", "category_name", "topic_name", "target_month", "target_year"})
+           @UniqueConstraint(columnNames = {"center_id", "topic_key", "target_month", "target_year"})
        })
 @Data
 @Builder
@@ -51,6 +51,20 @@ public class MonthlyTarget {
     @Column(name = "topic_name", nullable = false, length = 300)
     private String topicName;
 
+    /**
+     * Category Key (health_categories.category_key)
+     * مفتاح الفئة الرقمي
+     */
+    @Column(name = "category_key")
+    private Short categoryKey;
+
+    /**
+     * Topic Key (health_topics.topic_key) - used for grouping and uniqueness
+     * مفتاح الموضوع الرقمي - يستخدم للتجميع والتفرد
+     */
+    @Column(name = "topic_key")
+    private Short topicKey;
+
     /**
      * Target for Individual Meetings
      * هدف اللقاءات الفردية
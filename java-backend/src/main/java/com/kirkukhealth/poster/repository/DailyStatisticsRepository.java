@@ -43,37 +43,148 @@ public interface DailyStatisticsRepository extends JpaRepository<DailyStatistics
         String centerId, String categoryName, LocalDate startDate, LocalDate endDate);
     
     /**
-     * Aggregate monthly totals for a center
-     * تجميع الإجماليات الشهرية لمركز
+     * Aggregate monthly totals for a center, grouped by category/topic key
+     * تجميع الإجماليات الشهرية لمركز حسب مفاتيح الفئة والموضوع
+     * 
+     * The last two columns carry the names of rows whose keys are still NULL
+     * (see TopicDictionaryService.decodeNames)
      */
-    @Query("SELECT d.categoryName, d.topicName, " +
+    @Query("SELECT d.categoryKey, d.topicKey, " +
            "SUM(d.individualMeetings) as totalMeetings, " +
            "SUM(d.lectures) as totalLectures, " +
-           "SUM(d.seminars) as totalSeminars " +
+           "SUM(d.seminars) as totalSeminars, " +
+           "CASE WHEN d.topicKey IS NULL THEN d.categoryName END, " +
+           "CASE WHEN d.topicKey IS NULL THEN d.topicName END " +
            "FROM DailyStatistics d " +
            "WHERE d.centerId = :centerId " +
            "AND d.entryDate >= :startDate AND d.entryDate <= :endDate " +
-           "GROUP BY d.categoryName, d.topicName " +
-           "ORDER BY d.categoryName, d.topicName")
+           "GROUP BY d.categoryKey, d.topicKey, " +
+           "CASE WHEN d.topicKey IS NULL THEN d.categoryName END, " +
+           "CASE WHEN d.topicKey IS NULL THEN d.topicName END " +
+           "ORDER BY d.categoryKey, d.topicKey")
     List<Object[]> aggregateMonthlyTotals(
         @Param("centerId") String centerId,
         @Param("startDate") LocalDate startDate,
         @Param("endDate") LocalDate endDate);
     
     /**
-     * Get all centers' monthly totals
-     * الحصول على إجماليات جميع المراكز الشهرية
+     * Get all centers' monthly totals, grouped by category/topic key
+     * الحصول على إجماليات جميع المراكز الشهرية حسب مفاتيح الفئة والموضوع
+     * 
+     * The last two columns carry the names of rows whose keys are still NULL
      */
-    @Query("SELECT d.centerId, d.categoryName, d.topicName, " +
+    @Query("SELECT d.centerId, d.categoryKey, d.topicKey, " +
            "SUM(d.individualMeetings) as totalMeetings, " +
            "SUM(d.lectures) as totalLectures, " +
-           "SUM(d.seminars) as totalSeminars " +
+           "SUM(d.seminars) as totalSeminars, " +
+           "CASE WHEN d.topicKey IS NULL THEN d.categoryName END, " +
+           "CASE WHEN d.topicKey IS NULL THEN d.topicName END " +
            "FROM DailyStatistics d " +
            "WHERE d.entryDate >= :startDate AND d.entryDate <= :endDate " +
-           "GROUP BY d.centerId, d.categoryName, d.topicName " +
-           "ORDER BY d.centerId, d.categoryName, d.topicName")
+           "GROUP BY d.centerId, d.categoryKey, d.topicKey, " +
+           "CASE WHEN d.topicKey IS NULL THEN d.categoryName END, " +
+           "CASE WHEN d.topicKey IS NULL THEN d.topicName END " +
+           "ORDER BY d.centerId, d.categoryKey, d.topicKey")
     List<Object[]> aggregateAllCentersMonthlyTotals(
         @Param("startDate") LocalDate startDate,
         @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Activity total (meetings + lectures + seminars) per center for a date range
+     * إجمالي النشاط لكل مركز ضمن نطاق تاريخ
+     */
+    @Query("SELECT d.centerId, SUM(d.individualMeetings + d.lectures + d.seminars) " +
+           "FROM DailyStatistics d " +
+           "WHERE d.entryDate >= :startDate AND d.entryDate <= :endDate " +
+           "GROUP BY d.centerId")
+    List<Object[]> aggregateCenterTotals(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Activity total for a single center and date range
+     * إجمالي النشاط لمركز واحد ضمن نطاق تاريخ
+     */
+    @Query("SELECT COALESCE(SUM(d.individualMeetings + d.lectures + d.seminars), 0) " +
+           "FROM DailyStatistics d " +
+           "WHERE d.centerId = :centerId " +
+           "AND d.entryDate >= :startDate AND d.entryDate <= :endDate")
+    Long sumCenterTotal(
+        @Param("centerId") String centerId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Per-month activity series for a date range, optionally filtered by center/category/topic
+     * سلسلة النشاط الشهرية لنطاق تاريخ مع تصفية اختيارية حسب المركز أو الفئة أو الموضوع
+     * 
+     * Rows: year, month, meetings, lectures, seminars (ordered by year, month)
+     */
+    @Query("SELECT YEAR(d.entryDate), MONTH(d.entryDate), " +
+           "SUM(d.individualMeetings), SUM(d.lectures), SUM(d.seminars) " +
+           "FROM DailyStatistics d " +
+           "WHERE d.entryDate >= :startDate AND d.entryDate <= :endDate " +
+           "AND (:centerId IS NULL OR d.centerId = :centerId) " +
+           "AND (:categoryKey IS NULL OR d.categoryKey = :categoryKey) " +
+           "AND (:topicKey IS NULL OR d.topicKey = :topicKey) " +
+           "GROUP BY YEAR(d.entryDate), MONTH(d.entryDate) " +
+           "ORDER BY YEAR(d.entryDate), MONTH(d.entryDate)")
+    List<Object[]> aggregateMonthlySeries(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        @Param("centerId") String centerId,
+        @Param("categoryKey") Short categoryKey,
+        @Param("topicKey") Short topicKey);
+    
+    /**
+     * Per-center, per-topic monthly totals for a multi-month range
+     * إجماليات شهرية لكل مركز وموضوع ضمن نطاق عدة أشهر
+     * 
+     * Rows: centerId, categoryKey, topicKey, year, month, meetings, lectures, seminars,
+     * categoryName / topicName of rows without keys
+     */
+    @Query("SELECT d.centerId, d.categoryKey, d.topicKey, YEAR(d.entryDate), MONTH(d.entryDate), " +
+           "SUM(d.individualMeetings), SUM(d.lectures), SUM(d.seminars), " +
+           "CASE WHEN d.topicKey IS NULL THEN d.categoryName END, " +
+           "CASE WHEN d.topicKey IS NULL THEN d.topicName END " +
+           "FROM DailyStatistics d " +
+           "WHERE d.entryDate >= :startDate AND d.entryDate <= :endDate " +
+           "GROUP BY d.centerId, d.categoryKey, d.topicKey, YEAR(d.entryDate), MONTH(d.entryDate), " +
+           "CASE WHEN d.topicKey IS NULL THEN d.categoryName END, " +
+           "CASE WHEN d.topicKey IS NULL THEN d.topicName END " +
+           "ORDER BY d.centerId, d.categoryKey, d.topicKey, YEAR(d.entryDate), MONTH(d.entryDate)")
+    List<Object[]> aggregateCenterTopicMonthly(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Insert or update a daily entry in a single statement (PostgreSQL ON CONFLICT)
+     * إدراج أو تحديث إدخال يومي في عبارة واحدة
+     * 
+     * Relies on the unique (center_id, topic_key, entry_date) constraint,
+     * so concurrent entries for the same center never fail with a duplicate key.
+     */
+    @Query(value = "INSERT INTO daily_statistics " +
+           "(id, center_id, category_name, topic_name, category_key, topic_key, " +
+           "individual_meetings, lectures, seminars, entry_date, created_at, updated_at) " +
+           "VALUES (:id, :centerId, :categoryName, :topicName, :categoryKey, :topicKey, " +
+           ":individualMeetings, :lectures, :seminars, :entryDate, NOW(), NOW()) " +
+           "ON CONFLICT (center_id, topic_key, entry_date) DO UPDATE SET " +
+           "individual_meetings = EXCLUDED.individual_meetings, " +
+           "lectures = EXCLUDED.lectures, " +
+           "seminars = EXCLUDED.seminars, " +
+           "updated_at = EXCLUDED.updated_at " +
+           "RETURNING *",
+           nativeQuery = true)
+    DailyStatistics upsert(
+        @Param("id") String id,
+        @Param("centerId") String centerId,
+        @Param("categoryName") String categoryName,
+        @Param("topicName") String topicName,
+        @Param("categoryKey") Short categoryKey,
+        @Param("topicKey") Short topicKey,
+        @Param("individualMeetings") Integer individualMeetings,
+        @Param("lectures") Integer lectures,
+        @Param("seminars") Integer seminars,
+        @Param("entryDate") LocalDate entryDate);
 }
-
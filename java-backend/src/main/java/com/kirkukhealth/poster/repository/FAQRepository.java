@@ -28,15 +28,19 @@ public interface FAQRepository extends JpaRepository<FAQEntry, String> {
     List<FAQEntry> findByCategoryOrderByViewCountDesc(String category);
     
     /**
-     * Search FAQ entries by question or answer
-     * البحث عن الإدخالات حسب السؤال أو الجواب
+     * Full-text search of FAQ entries, best matches first
+     * البحث النصي الكامل في الأسئلة الشائعة
+     *
+     * Uses the GIN-indexed search_vector column (see V17 migration).
+     *
+     * @param tsQuery tsquery built by SearchTextNormalizer.toPrefixQuery
      */
-    @Query("SELECT f FROM FAQEntry f WHERE " +
-           "LOWER(f.question) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(f.answer) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(f.tags) LIKE LOWER(CONCAT('%', :query, '%')) " +
-           "ORDER BY f.viewCount DESC")
-    List<FAQEntry> search(@Param("query") String query);
+    @Query(value = "SELECT f.* FROM faq_entries f, to_tsquery('simple', :tsQuery) q " +
+                   "WHERE f.search_vector @@ q " +
+                   "ORDER BY ts_rank_cd(f.search_vector, q) DESC, f.view_count DESC " +
+                   "LIMIT 50",
+           nativeQuery = true)
+    List<FAQEntry> search(@Param("tsQuery") String tsQuery);
     
     /**
      * Find all categories
@@ -46,5 +46,44 @@ public interface MonthlyTargetRepository extends JpaRepository<MonthlyTarget, St
     Long getTotalTargetForCenter(@Param("centerId") String centerId, 
                                   @Param("year") Integer year, 
                                   @Param("month") Integer month);
+    
+    /**
+     * Get total targets per center for a month
+     * الحصول على إجمالي الأهداف لكل مركز في شهر
+     */
+    @Query("SELECT m.centerId, SUM(m.targetMeetings + m.targetLectures + m.targetSeminars) " +
+           "FROM MonthlyTarget m " +
+           "WHERE m.targetYear = :year AND m.targetMonth = :month " +
+           "GROUP BY m.centerId")
+    List<Object[]> aggregateCenterTargets(@Param("year") Integer year, 
+                                          @Param("month") Integer month);
+    
+    /**
+     * Insert or update a target in a single statement (PostgreSQL ON CONFLICT)
+     * إدراج أو تحديث هدف في عبارة واحدة
+     */
+    @Query(value = "INSERT INTO monthly_targets " +
+           "(id, center_id, category_name, topic_name, category_key, topic_key, " +
+           "target_meetings, target_lectures, target_seminars, target_month, target_year, created_at, updated_at) " +
+           "VALUES (:id, :centerId, :categoryName, :topicName, :categoryKey, :topicKey, " +
+           ":targetMeetings, :targetLectures, :targetSeminars, :month, :year, NOW(), NOW()) " +
+           "ON CONFLICT (center_id, topic_key, target_month, target_year) DO UPDATE SET " +
+           "target_meetings = EXCLUDED.target_meetings, " +
+           "target_lectures = EXCLUDED.target_lectures, " +
+           "target_seminars = EXCLUDED.target_seminars, " +
+           "updated_at = EXCLUDED.updated_at " +
+           "RETURNING *",
+           nativeQuery = true)
+    MonthlyTarget upsert(
+        @Param("id") String id,
+        @Param("centerId") String centerId,
+        @Param("categoryName") String categoryName,
+        @Param("topicName") String topicName,
+        @Param("categoryKey") Short categoryKey,
+        @Param("topicKey") Short topicKey,
+        @Param("targetMeetings") Integer targetMeetings,
+        @Param("targetLectures") Integer targetLectures,
+        @Param("targetSeminars") Integer targetSeminars,
+        @Param("year") Integer year,
+        @Param("month") Integer month);
 }
-
@@ -3,6 +3,7 @@ package com.kirkukhealth.poster.repository;
 import com.kirkukhealth.poster.model.Poster;
 import com.kirkukhealth.poster.model.Poster.PosterStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -43,5 +44,14 @@ public interface PosterRepository extends JpaRepository<Poster, String> {
      * عدد البوسترات في الانتظار
      */
     long countByStatus(PosterStatus status);
+    
+    /**
+     * Count posters per status in one query
+     * عدد البوسترات لكل حالة في استعلام واحد
+     * 
+     * Rows: status, count
+     */
+    @Query("SELECT p.status, COUNT(p) FROM Poster p GROUP BY p.status")
+    List<Object[]> countGroupedByStatus();
 }
 
@@ -0,0 +1,12 @@
+package com.kirkukhealth.poster.service;
+
+/**
+ * Center Profile Changed Event
+ * حدث تغيّر الملف الشخصي للمركز
+ * 
+ * Published after a health center profile is created, updated or deleted
+ * (center list, names and managers shown in progress and ranking views)
+ * يُنشر بعد إنشاء أو تعديل أو حذف الملف الشخصي لمركز صحي
+ */
+public record CenterProfileChangedEvent(String userId) {
+}
@@ -0,0 +1,121 @@
+package com.kirkukhealth.poster.service;
+
+import com.kirkukhealth.poster.dto.ReportSnapshot;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Center Report Pack Service
+ * خدمة حزمة تقارير المراكز الشهرية
+ *
+ * Builds the month-end pack: the sector report plus one annex per health center,
+ * delivered as a single ZIP. The report data is loaded once; the PDFs (one per
+ * center plus the sector report, typically about two dozen) are rendered on a
+ * pool of at most four threads and written to the ZIP as each one completes, so
+ * the pack takes roughly the total rendering time divided by the pool size.
+ *
+ * يولد تقرير القطاع وملحقاً لكل مركز بالتوازي من لقطة بيانات واحدة
+ */
+@Service
+public class CenterReportPackService {
+
+    @Autowired
+    private PdfReportService pdfReportService;
+
+    /**
+     * Bounded pool for rendering; a center annex is a few pages, so it is
+     * rendered in memory and copied into the ZIP when done
+     */
+    private final ExecutorService renderExecutor = Executors.newFixedThreadPool(
+        Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+    private record RenderedReport(String entryName, byte[] content) {
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderExecutor.shutdown();
+    }
+
+    /**
+     * Write the monthly pack ZIP to the output stream
+     * كتابة حزمة التقارير الشهرية
+     *
+     * @return number of PDF files in the pack
+     */
+    public int writeMonthlyPack(YearMonth yearMonth, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        ReportSnapshot snapshot = pdfReportService.loadSnapshot(yearMonth.atDay(1), yearMonth.atEndOfMonth());
+
+        CompletionService<RenderedReport> completion = new ExecutorCompletionService<>(renderExecutor);
+        List<Future<RenderedReport>> futures = new ArrayList<>();
+
+        futures.add(completion.submit(() -> {
+            ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+            pdfReportService.writeReport(snapshot, PdfReportService.MONTHLY_TITLE, pdf);
+            return new RenderedReport("00_sector_report_" + yearMonth + ".pdf", pdf.toByteArray());
+        }));
+        for (Map.Entry<String, String> center : snapshot.centerNames().entrySet()) {
+            futures.add(completion.submit(() -> {
+                ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+                pdfReportService.writeCenterReport(snapshot, center.getKey(), pdf);
+                return new RenderedReport(entryName(center.getKey(), center.getValue()), pdf.toByteArray());
+            }));
+        }
+
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        // PDF streams are already compressed
+        zip.setLevel(Deflater.BEST_SPEED);
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                RenderedReport report = completion.take().get();
+                zip.putNextEntry(new ZipEntry(report.entryName()));
+                zip.write(report.content());
+                zip.closeEntry();
+            }
+            zip.finish();
+            out.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Report pack interrupted", e);
+        } catch (ExecutionException e) {
+            System.err.println("❌ Error rendering report pack " + yearMonth + ": " + e.getCause().getMessage());
+            throw new IOException(e.getCause());
+        } finally {
+            // No-op once all renders completed; stops the pool on any failure,
+            // including a client disconnect while writing the ZIP
+            // لا يؤثر بعد اكتمال الإنشاء؛ يوقف العمل عند أي خطأ بما فيه انقطاع العميل
+            futures.forEach(f -> f.cancel(true));
+        }
+
+        System.out.println("✅ Report pack " + yearMonth + ": " + futures.size() + " PDFs in " +
+            (System.currentTimeMillis() - start) + " ms");
+        return futures.size();
+    }
+
+    /**
+     * ZIP entry name: center ID and name, without path separators
+     */
+    private static String entryName(String centerId, String centerName) {
+        return (centerId + "_" + centerName).replaceAll("[\\\\/:*?\"<>|]", "_") + ".pdf";
+    }
+}
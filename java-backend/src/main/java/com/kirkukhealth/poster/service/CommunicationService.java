@@ -38,6 +38,9 @@ public class CommunicationService {
     @Autowired
     private PosterCommentRepository posterCommentRepository;
 
+    @Autowired
+    private EngagementCounterService engagementCounterService;
+
     // ============================================================================
     // BULLETIN METHODS
     // ============================================================================
@@ -148,21 +151,30 @@ public class CommunicationService {
     /**
      * Search FAQs
      * البحث في FAQs
+     *
+     * Arabic/Kurdish/Turkmen spelling variants are normalized and words match as prefixes
      */
     public List<FAQEntry> searchFAQs(String query) {
-        return faqRepository.search(query);
+        String tsQuery = SearchTextNormalizer.toPrefixQuery(query);
+        if (tsQuery == null) {
+            return List.of();
+        }
+        return faqRepository.search(tsQuery);
     }
 
     /**
-     * Get FAQ by ID and increment view count
+     * Get FAQ by ID and count the view
      * الحصول على FAQ بالمعرف وزيادة عدد المشاهدات
+     *
+     * The view is recorded in EngagementCounterService and written in the next batch;
+     * the returned count includes views not yet flushed.
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public Optional<FAQEntry> getFAQById(String id) {
         Optional<FAQEntry> faq = faqRepository.findById(id);
         faq.ifPresent(entry -> {
-            entry.setViewCount(entry.getViewCount() + 1);
-            faqRepository.save(entry);
+            engagementCounterService.recordFaqView(id);
+            entry.setViewCount((int) (entry.getViewCount() + engagementCounterService.pendingFaqViews(id)));
         });
         return faq;
     }
@@ -207,13 +219,11 @@ public class CommunicationService {
     /**
      * Increment download count
      * زيادة عدد التحميلات
+     *
+     * Buffered in memory and written in the next counter batch
      */
-    @Transactional
     public void incrementDownloadCount(String fileId) {
-        fileUploadRepository.findById(fileId).ifPresent(file -> {
-            file.setDownloadCount(file.getDownloadCount() + 1);
-            fileUploadRepository.save(file);
-        });
+        engagementCounterService.recordFileDownload(fileId);
     }
 
     // ============================================================================
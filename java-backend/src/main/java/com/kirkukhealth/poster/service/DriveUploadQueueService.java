@@ -0,0 +1,456 @@
+package com.kirkukhealth.poster.service;
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.media.MediaHttpUploaderProgressListener;
+import com.google.api.client.http.AbstractInputStreamContent;
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.FileContent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Drive Upload Queue Service
+ * خدمة طابور الرفع إلى Google Drive
+ *
+ * Durable outbox for Google Drive uploads. A request copies its file into the
+ * spool directory and inserts a job (drive_upload_jobs); it never waits for Drive.
+ * A poller claims due jobs (FOR UPDATE SKIP LOCKED, so several instances can share
+ * the table) and hands them to a fixed pool of workers. A worker refreshes the job's
+ * locked_at on every uploaded chunk, and only writes the final status while locked_at
+ * still holds its own value, so a job taken over after STALE_LOCK is never finished twice.
+ * All job times (locked_at, next_attempt_at, stale and retention cutoffs) come from the
+ * database clock, so instances with skewed clocks agree on them.
+ *
+ * - Retries with exponential backoff and jitter, up to MAX_ATTEMPTS
+ * - Idempotency key per logical upload, also stored on the Drive file
+ * - Resumable chunked upload for large files (see GoogleDriveService.uploadQueuedContent)
+ * - Sources: a spooled file, or content already stored by the application (approved
+ *   poster image, monthly Excel export) read straight into the upload, without a spool file
+ * - At most drive.upload.per-user-limit concurrent uploads per user
+ * - UserCloudSettings.syncStatus: SYNCING while uploading, SYNCED or ERROR afterwards
+ *
+ * طابور دائم لرفع الملفات مع إعادة المحاولة ومنع التكرار
+ */
+@Service
+public class DriveUploadQueueService {
+
+    public static final String PENDING = "PENDING";
+    public static final String UPLOADING = "UPLOADING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    public static final String SOURCE_SPOOL = "SPOOL";
+    public static final String SOURCE_POSTER = "POSTER";
+    public static final String SOURCE_MONTHLY_WORKBOOK = "MONTHLY_WORKBOOK";
+
+    private static final String XLSX_MIME_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private static final int MAX_ATTEMPTS = 8;
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(30);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    /**
+     * Jobs whose locked_at heartbeat has not moved for this long belong to a crashed
+     * worker and are retried
+     */
+    private static final Duration STALE_LOCK = Duration.ofMinutes(30);
+
+    /**
+     * Finished jobs are kept this long for the status page
+     */
+    private static final int RETENTION_DAYS = 30;
+
+    @Value("${drive.upload.spool-dir:uploads/drive-outbox/}")
+    private String spoolDir;
+
+    @Value("${drive.upload.workers:4}")
+    private int workerCount;
+
+    @Value("${drive.upload.per-user-limit:1}")
+    private int perUserLimit;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private GoogleDriveService googleDriveService;
+
+    @Autowired
+    private PosterGovernanceService posterGovernanceService;
+
+    @Autowired
+    private StatisticsExportService statisticsExportService;
+
+    private ExecutorService workers;
+    private Semaphore freeWorkers;
+
+    /**
+     * @param spoolPath spooled file, or null for SOURCE_POSTER / SOURCE_MONTHLY_WORKBOOK
+     */
+    private record UploadJob(long id, String idempotencyKey, String userId, String fileName, String mimeType,
+                             String sourceType, String sourceRef, Path spoolPath, int attempts,
+                             Timestamp lockedAt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        workers = Executors.newFixedThreadPool(workerCount);
+        freeWorkers = new Semaphore(workerCount);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Interrupted uploads stay UPLOADING and are picked up again after STALE_LOCK
+        workers.shutdownNow();
+    }
+
+    /**
+     * Queue a file for upload to the user's Drive
+     * إضافة ملف إلى طابور الرفع
+     *
+     * The file is copied into the spool directory, so the caller may delete it.
+     * A second call with the same idempotency key returns the existing job.
+     *
+     * @return job ID and status
+     */
+    public Map<String, Object> enqueue(String userId, Path source, String fileName, String mimeType,
+                                       String idempotencyKey) throws IOException {
+        return enqueueSpooled(userId, target -> Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING),
+            fileName, mimeType, idempotencyKey);
+    }
+
+    /**
+     * Queue content rendered in memory; it is written straight into the spool file
+     * إضافة محتوى من الذاكرة إلى طابور الرفع
+     *
+     * @return job ID and status
+     */
+    public Map<String, Object> enqueue(String userId, byte[] content, String fileName, String mimeType,
+                                       String idempotencyKey) throws IOException {
+        return enqueueSpooled(userId, target -> Files.write(target, content), fileName, mimeType, idempotencyKey);
+    }
+
+    /**
+     * Writes the content of a new job into its spool file
+     */
+    @FunctionalInterface
+    private interface SpoolWriter {
+        void write(Path target) throws IOException;
+    }
+
+    private Map<String, Object> enqueueSpooled(String userId, SpoolWriter writer, String fileName, String mimeType,
+                                               String idempotencyKey) throws IOException {
+        Map<String, Object> existing = findJob(idempotencyKey);
+        if (existing != null) {
+            return existing;
+        }
+
+        Path spool = Paths.get(spoolDir);
+        Files.createDirectories(spool);
+        Path spoolPath = spool.resolve(UUID.randomUUID() + ".bin");
+        Path temp = spool.resolve(spoolPath.getFileName() + ".part");
+        try {
+            writer.write(temp);
+            Files.move(temp, spoolPath, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        List<Long> inserted = jdbcTemplate.queryForList(
+            "INSERT INTO drive_upload_jobs (idempotency_key, user_id, file_name, mime_type, spool_path, size_bytes) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (idempotency_key) DO NOTHING RETURNING id",
+            Long.class, idempotencyKey, userId, fileName, mimeType, spoolPath.toString(), Files.size(spoolPath));
+
+        if (inserted.isEmpty()) {
+            // Same key enqueued concurrently
+            Files.deleteIfExists(spoolPath);
+            return findJob(idempotencyKey);
+        }
+
+        Map<String, Object> job = new LinkedHashMap<>();
+        job.put("jobId", inserted.get(0));
+        job.put("status", PENDING);
+        return job;
+    }
+
+    /**
+     * Queue an approved poster image; the worker reads it from the database
+     * إضافة بوستر معتمد إلى طابور الرفع
+     */
+    public Map<String, Object> enqueuePoster(String userId, String posterId, String idempotencyKey) {
+        List<Map<String, Object>> posters = jdbcTemplate.queryForList(
+            "SELECT status, octet_length(image_bytes) AS size_bytes FROM posters WHERE id = ?", posterId);
+        if (posters.isEmpty()) {
+            throw new IllegalArgumentException("Poster not found: " + posterId);
+        }
+        if (!"APPROVED".equals(posters.get(0).get("status")) || posters.get(0).get("size_bytes") == null) {
+            throw new IllegalArgumentException("Only APPROVED posters with an image can be uploaded");
+        }
+
+        return insertJob(userId, "poster-" + posterId + ".png", "image/png", SOURCE_POSTER, posterId,
+            ((Number) posters.get(0).get("size_bytes")).longValue(), idempotencyKey);
+    }
+
+    /**
+     * Queue the monthly Excel report; the worker generates it in memory at upload time
+     * إضافة تقرير Excel الشهري إلى طابور الرفع
+     */
+    public Map<String, Object> enqueueMonthlyWorkbook(String userId, YearMonth yearMonth, String centerId,
+                                                      String idempotencyKey) {
+        boolean singleCenter = centerId != null && !centerId.isEmpty();
+        String fileName = "health-statistics-report-" + yearMonth + (singleCenter ? "-" + centerId : "") + ".xlsx";
+        return insertJob(userId, fileName, XLSX_MIME_TYPE, SOURCE_MONTHLY_WORKBOOK,
+            singleCenter ? yearMonth + ":" + centerId : yearMonth.toString(), null, idempotencyKey);
+    }
+
+    private Map<String, Object> insertJob(String userId, String fileName, String mimeType, String sourceType,
+                                          String sourceRef, Long sizeBytes, String idempotencyKey) {
+        jdbcTemplate.update(
+            "INSERT INTO drive_upload_jobs (idempotency_key, user_id, file_name, mime_type, source_type, source_ref, " +
+            "size_bytes) VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT (idempotency_key) DO NOTHING",
+            idempotencyKey, userId, fileName, mimeType, sourceType, sourceRef, sizeBytes);
+        return findJob(idempotencyKey);
+    }
+
+    /**
+     * Recent upload jobs of a user
+     * آخر عمليات الرفع للمستخدم
+     */
+    public List<Map<String, Object>> getJobs(String userId, int limit) {
+        return jdbcTemplate.queryForList(
+            "SELECT id AS \"jobId\", file_name AS \"fileName\", status, attempts, size_bytes AS \"sizeBytes\", " +
+            "bytes_uploaded AS \"bytesUploaded\", next_attempt_at AS \"nextAttemptAt\", last_error AS \"lastError\", " +
+            "drive_file_id AS \"driveFileId\", created_at AS \"createdAt\", completed_at AS \"completedAt\" " +
+            "FROM drive_upload_jobs WHERE user_id = ? ORDER BY id DESC LIMIT ?",
+            userId, limit);
+    }
+
+    /**
+     * Claim due jobs while workers are free
+     * توزيع المهام المستحقة على العمال المتاحين
+     */
+    @Scheduled(fixedDelayString = "${drive.upload.poll-ms:2000}")
+    public void dispatch() {
+        try {
+            jdbcTemplate.update(
+                "UPDATE drive_upload_jobs SET status = 'PENDING', locked_at = NULL " +
+                "WHERE status = 'UPLOADING' AND locked_at < NOW() - ? * INTERVAL '1 millisecond'",
+                STALE_LOCK.toMillis());
+
+            while (freeWorkers.tryAcquire()) {
+                UploadJob job = claimNext();
+                if (job == null) {
+                    freeWorkers.release();
+                    break;
+                }
+                workers.execute(() -> {
+                    try {
+                        process(job);
+                    } finally {
+                        freeWorkers.release();
+                    }
+                });
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error dispatching Drive uploads: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove finished jobs past the retention period
+     * حذف المهام المنتهية القديمة
+     */
+    @Scheduled(cron = "0 15 3 * * *")
+    public void purgeFinishedJobs() {
+        int deleted = jdbcTemplate.update(
+            "DELETE FROM drive_upload_jobs WHERE status IN ('DONE', 'FAILED') " +
+            "AND completed_at < NOW() - ? * INTERVAL '1 day'",
+            RETENTION_DAYS);
+        if (deleted > 0) {
+            System.out.println("✅ Purged " + deleted + " finished Drive upload jobs");
+        }
+    }
+
+    private UploadJob claimNext() {
+        List<UploadJob> claimed = jdbcTemplate.query(
+            "UPDATE drive_upload_jobs SET status = 'UPLOADING', locked_at = clock_timestamp(), attempts = attempts + 1 " +
+            "WHERE id = (" +
+            "  SELECT j.id FROM drive_upload_jobs j " +
+            "  WHERE j.status = 'PENDING' AND j.next_attempt_at <= NOW() " +
+            "  AND (SELECT COUNT(*) FROM drive_upload_jobs u WHERE u.user_id = j.user_id AND u.status = 'UPLOADING') < ? " +
+            "  ORDER BY j.next_attempt_at, j.id LIMIT 1 FOR UPDATE SKIP LOCKED" +
+            ") RETURNING id, idempotency_key, user_id, file_name, mime_type, source_type, source_ref, " +
+            "spool_path, attempts, locked_at",
+            (rs, rowNum) -> new UploadJob(
+                rs.getLong("id"),
+                rs.getString("idempotency_key"),
+                rs.getString("user_id"),
+                rs.getString("file_name"),
+                rs.getString("mime_type"),
+                rs.getString("source_type"),
+                rs.getString("source_ref"),
+                rs.getString("spool_path") != null ? Paths.get(rs.getString("spool_path")) : null,
+                rs.getInt("attempts"),
+                rs.getTimestamp("locked_at")),
+            perUserLimit);
+        return claimed.isEmpty() ? null : claimed.get(0);
+    }
+
+    private void process(UploadJob job) {
+        googleDriveService.updateSyncStatus(job.userId(), "SYNCING");
+
+        // Current value of locked_at; the job is ours only while the row still holds it
+        AtomicReference<Timestamp> lock = new AtomicReference<>(job.lockedAt());
+
+        // Progress doubles as the heartbeat that keeps the job from looking stale
+        MediaHttpUploaderProgressListener progress = uploader -> {
+            List<Timestamp> heartbeat = jdbcTemplate.queryForList(
+                "UPDATE drive_upload_jobs SET bytes_uploaded = ?, locked_at = clock_timestamp() " +
+                "WHERE id = ? AND status = 'UPLOADING' AND locked_at = ? RETURNING locked_at",
+                Timestamp.class, uploader.getNumBytesUploaded(), job.id(), lock.get());
+            if (heartbeat.isEmpty()) {
+                throw new IOException("Upload job " + job.id() + " was taken over by another worker");
+            }
+            lock.set(heartbeat.get(0));
+        };
+
+        try {
+            AbstractInputStreamContent content = openContent(job);
+            String driveFileId = googleDriveService.uploadQueuedContent(job.userId(), content,
+                job.fileName(), job.idempotencyKey(), progress);
+
+            int updated = jdbcTemplate.update(
+                "UPDATE drive_upload_jobs SET status = 'DONE', drive_file_id = ?, " +
+                "size_bytes = COALESCE(size_bytes, ?), bytes_uploaded = COALESCE(size_bytes, ?), " +
+                "last_error = NULL, locked_at = NULL, completed_at = NOW() " +
+                "WHERE id = ? AND status = 'UPLOADING' AND locked_at = ?",
+                driveFileId, content.getLength(), content.getLength(), job.id(), lock.get());
+            if (updated == 0) {
+                // Reset as stale meanwhile; the new owner finds this file by its idempotency key
+                System.err.println("⚠️ Drive upload job " + job.id() + " finished after losing its lock, left to its new owner");
+                return;
+            }
+            deleteSpoolFile(job);
+            googleDriveService.updateSyncStatus(job.userId(), "SYNCED");
+            System.out.println("✅ Uploaded " + job.fileName() + " to Google Drive for user " + job.userId());
+        } catch (Exception e) {
+            handleFailure(job, lock.get(), e);
+        }
+    }
+
+    private void handleFailure(UploadJob job, Timestamp lockedAt, Exception e) {
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+
+        if (!isRetryable(e) || job.attempts() >= MAX_ATTEMPTS) {
+            int updated = jdbcTemplate.update(
+                "UPDATE drive_upload_jobs SET status = 'FAILED', last_error = ?, locked_at = NULL, " +
+                "completed_at = NOW() WHERE id = ? AND status = 'UPLOADING' AND locked_at = ?",
+                message, job.id(), lockedAt);
+            if (updated == 0) {
+                System.err.println("⚠️ Drive upload job " + job.id() + " lost its lock: " + message);
+                return;
+            }
+            deleteSpoolFile(job);
+            googleDriveService.updateSyncStatus(job.userId(), "ERROR");
+            System.err.println("❌ Drive upload of " + job.fileName() + " for user " + job.userId() +
+                " failed after " + job.attempts() + " attempts: " + message);
+            return;
+        }
+
+        // Exponential backoff with up to 20% jitter
+        long backoffMillis = Math.min(MAX_BACKOFF.toMillis(),
+            BASE_BACKOFF.toMillis() << Math.min(job.attempts() - 1, 20));
+        backoffMillis += ThreadLocalRandom.current().nextLong(backoffMillis / 5 + 1);
+
+        int updated = jdbcTemplate.update(
+            "UPDATE drive_upload_jobs SET status = 'PENDING', last_error = ?, locked_at = NULL, " +
+            "next_attempt_at = NOW() + ? * INTERVAL '1 millisecond' " +
+            "WHERE id = ? AND status = 'UPLOADING' AND locked_at = ?",
+            message, backoffMillis, job.id(), lockedAt);
+        if (updated == 0) {
+            System.err.println("⚠️ Drive upload job " + job.id() + " lost its lock: " + message);
+            return;
+        }
+        System.err.println("⚠️ Drive upload of " + job.fileName() + " for user " + job.userId() +
+            " failed (attempt " + job.attempts() + "), retrying in " + backoffMillis / 1000 + " s: " + message);
+    }
+
+    /**
+     * Upload content of a job, read once while uploading (no temporary file)
+     */
+    private AbstractInputStreamContent openContent(UploadJob job) throws IOException {
+        switch (job.sourceType()) {
+            case SOURCE_POSTER:
+                return new ByteArrayContent(job.mimeType(),
+                    posterGovernanceService.downloadApprovedPoster(job.sourceRef()));
+            case SOURCE_MONTHLY_WORKBOOK: {
+                String[] ref = job.sourceRef().split(":", 2);
+                ByteArrayOutputStream workbook = new ByteArrayOutputStream();
+                statisticsExportService.writeMonthlyReport(YearMonth.parse(ref[0]),
+                    ref.length > 1 ? ref[1] : null, workbook);
+                return new ByteArrayContent(job.mimeType(), workbook.toByteArray());
+            }
+            default:
+                if (job.spoolPath() == null || !Files.isRegularFile(job.spoolPath())) {
+                    throw new IllegalStateException("Spooled file is missing: " + job.spoolPath());
+                }
+                return new FileContent(job.mimeType(), job.spoolPath().toFile());
+        }
+    }
+
+    /**
+     * Transient errors are retried; configuration and client errors are not
+     */
+    private static boolean isRetryable(Exception e) {
+        if (e instanceof IllegalStateException || e instanceof IllegalArgumentException) {
+            // Drive not linked, spooled file gone, or poster no longer approved
+            return false;
+        }
+        if (e instanceof GoogleJsonResponseException response) {
+            int status = response.getStatusCode();
+            return status == 403 || status == 408 || status == 429 || status >= 500;
+        }
+        return e instanceof IOException;
+    }
+
+    private Map<String, Object> findJob(String idempotencyKey) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+            "SELECT id AS \"jobId\", status FROM drive_upload_jobs WHERE idempotency_key = ?", idempotencyKey);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private void deleteSpoolFile(UploadJob job) {
+        if (job.spoolPath() == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(job.spoolPath());
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not delete spooled file " + job.spoolPath() + ": " + e.getMessage());
+        }
+    }
+}
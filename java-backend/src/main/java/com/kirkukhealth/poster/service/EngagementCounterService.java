@@ -0,0 +1,114 @@
+package com.kirkukhealth.poster.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Engagement Counter Service
+ * خدمة عدادات المشاهدات والتحميلات
+ *
+ * Write-behind counters for FAQ views and file downloads. A view or download only
+ * increments an in-memory LongAdder (no database access on the read path); a
+ * scheduled flush sends the accumulated deltas in one JDBC batch of
+ * "SET count = count + ?" updates, which cannot lose concurrent increments the way
+ * read-modify-save did. Pending deltas are flushed once more on shutdown.
+ *
+ * تتراكم الزيادات في الذاكرة وتُكتب دفعة واحدة دورياً
+ */
+@Service
+public class EngagementCounterService {
+
+    private static final String FAQ_VIEWS_SQL =
+        "UPDATE faq_entries SET view_count = COALESCE(view_count, 0) + ? WHERE id = ?";
+    private static final String FILE_DOWNLOADS_SQL =
+        "UPDATE file_uploads SET download_count = COALESCE(download_count, 0) + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Pending deltas per row ID; entries are reset, not removed, so an increment
+     * racing with a flush is never dropped
+     */
+    private final Map<String, LongAdder> faqViews = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> fileDownloads = new ConcurrentHashMap<>();
+
+    /**
+     * Record one FAQ view
+     * تسجيل مشاهدة سؤال
+     */
+    public void recordFaqView(String faqId) {
+        faqViews.computeIfAbsent(faqId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * Record one file download
+     * تسجيل تحميل ملف
+     */
+    public void recordFileDownload(String fileId) {
+        fileDownloads.computeIfAbsent(fileId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * Views not yet written to the database
+     */
+    public long pendingFaqViews(String faqId) {
+        LongAdder adder = faqViews.get(faqId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    /**
+     * Downloads not yet written to the database
+     */
+    public long pendingFileDownloads(String fileId) {
+        LongAdder adder = fileDownloads.get(fileId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    /**
+     * Write accumulated counts to the database
+     * كتابة العدادات المتراكمة إلى قاعدة البيانات
+     */
+    @Scheduled(fixedDelayString = "${counters.flush-interval-ms:10000}")
+    public void flush() {
+        flush(faqViews, FAQ_VIEWS_SQL, "FAQ views");
+        flush(fileDownloads, FILE_DOWNLOADS_SQL, "file downloads");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void flush(Map<String, LongAdder> counters, String sql, String label) {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            long delta = counter.getValue().sumThenReset();
+            if (delta > 0) {
+                batch.add(new Object[]{delta, counter.getKey()});
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(sql, batch);
+        } catch (Exception e) {
+            // Put the deltas back for the next flush
+            for (Object[] row : batch) {
+                counters.computeIfAbsent((String) row[1], id -> new LongAdder()).add((Long) row[0]);
+            }
+            System.err.println("⚠️ Error flushing " + label + " (" + batch.size() + " rows), will retry: " + e.getMessage());
+        }
+    }
+}
@@ -1,8 +1,16 @@
 package com.kirkukhealth.poster.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.auth.oauth2.CredentialRefreshListener;
+import com.google.api.client.auth.oauth2.TokenErrorResponse;
+import com.google.api.client.auth.oauth2.TokenResponse;
 import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.googleapis.media.MediaHttpUploader;
+import com.google.api.client.googleapis.media.MediaHttpUploaderProgressListener;
+import com.google.api.client.http.AbstractInputStreamContent;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.JsonFactory;
@@ -13,16 +21,23 @@ import com.google.api.services.drive.model.File;
 import com.google.api.services.drive.model.FileList;
 import com.kirkukhealth.poster.model.UserCloudSettings;
 import com.kirkukhealth.poster.repository.UserCloudSettingsRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.*;
 import java.security.GeneralSecurityException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Google Drive Service
@@ -30,6 +45,11 @@ import java.util.List;
  * 
  * Handles OAuth2 flow and file uploads to individual manager Google Drive accounts
  * يدير سير عمل OAuth2 ورفع الملفات إلى حسابات Google Drive لكل مدير بشكل فردي
+ * 
+ * One HTTP transport (TLS context and keep-alive connection pool) is shared by all
+ * calls, and each user's Drive client is cached with its Credential. The Credential
+ * refreshes the access token itself when it is about to expire; the refresh listener
+ * stores rotated tokens encrypted, so the cache and the database stay in step.
  */
 @Service
 public class GoogleDriveService {
@@ -38,6 +58,22 @@ public class GoogleDriveService {
     private static final List<String> SCOPES = Collections.singletonList(DriveScopes.DRIVE_FILE);
     private static final String APPLICATION_NAME = "Kirkuk Health Directorate - Sector 1";
 
+    /**
+     * Drive file property holding the upload queue's idempotency key
+     */
+    public static final String UPLOAD_KEY_PROPERTY = "uploadKey";
+
+    /**
+     * Files above this size are sent as resumable uploads in chunks
+     */
+    private static final long RESUMABLE_UPLOAD_THRESHOLD = 5L * 1024 * 1024;
+    private static final int UPLOAD_CHUNK_SIZE = MediaHttpUploader.MINIMUM_CHUNK_SIZE * 20; // 5 MB
+
+    /**
+     * Idle time after which a user's cached Drive client is dropped
+     */
+    private static final Duration CLIENT_IDLE_EXPIRY = Duration.ofHours(1);
+
     @Value("${google.oauth.client.id:}")
     private String clientId;
 
@@ -47,6 +83,19 @@ public class GoogleDriveService {
     @Value("${google.oauth.redirect.uri:http://localhost:8080/api/drive/oauth/callback}")
     private String redirectUri;
 
+    /**
+     * Google endpoints; overridable to point at FakeGoogleDriveServer (fake-drive profile) for offline tests
+     * عناوين خوادم Google (قابلة للتغيير لخادم الاختبار المحلي)
+     */
+    @Value("${google.drive.root-url:https://www.googleapis.com/}")
+    private String driveRootUrl;
+
+    @Value("${google.oauth.token-url:https://oauth2.googleapis.com/token}")
+    private String tokenServerUrl;
+
+    @Value("${google.oauth.authorization-url:https://accounts.google.com/o/oauth2/auth}")
+    private String authorizationServerUrl;
+
     @Autowired
     private UserCloudSettingsRepository cloudSettingsRepository;
 
@@ -54,19 +103,47 @@ public class GoogleDriveService {
     private TokenEncryptionService encryptionService;
 
     /**
-     * Get authorization URL for OAuth2 flow
-     * الحصول على رابط التفويض لسير عمل OAuth2
+     * Shared, thread-safe transport (NetHttpTransport keeps HTTPS connections alive)
      */
-    public String getAuthorizationUrl(String userId, String state) throws IOException, GeneralSecurityException {
-        NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-        
-        GoogleAuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
+    private NetHttpTransport httpTransport;
+
+    private GoogleAuthorizationCodeFlow authorizationFlow;
+
+    /**
+     * Drive client per user ID
+     */
+    private final Cache<String, Drive> driveClients = Caffeine.newBuilder()
+        .maximumSize(500)
+        .expireAfterAccess(CLIENT_IDLE_EXPIRY)
+        .build();
+
+    @PostConstruct
+    public void init() throws IOException, GeneralSecurityException {
+        httpTransport = GoogleNetHttpTransport.newTrustedTransport();
+        authorizationFlow = new GoogleAuthorizationCodeFlow.Builder(
             httpTransport, JSON_FACTORY, clientId, clientSecret, SCOPES)
             .setAccessType("offline")
             .setApprovalPrompt("force")
+            .setTokenServerUrl(new GenericUrl(tokenServerUrl))
+            .setAuthorizationServerEncodedUrl(authorizationServerUrl)
             .build();
+        if (!Drive.DEFAULT_ROOT_URL.equals(driveRootUrl)) {
+            System.out.println("⚠️ Google Drive root URL overridden: " + driveRootUrl);
+        }
+    }
 
-        return flow.newAuthorizationUrl()
+    @PreDestroy
+    public void shutdown() throws IOException {
+        driveClients.invalidateAll();
+        httpTransport.shutdown();
+    }
+
+    /**
+     * Get authorization URL for OAuth2 flow
+     * الحصول على رابط التفويض لسير عمل OAuth2
+     */
+    public String getAuthorizationUrl(String userId, String state) throws IOException, GeneralSecurityException {
+        return authorizationFlow.newAuthorizationUrl()
             .setRedirectUri(redirectUri)
             .setState(userId + ":" + state)
             .build();
@@ -80,15 +157,7 @@ public class GoogleDriveService {
     public UserCloudSettings exchangeCodeForTokens(String userId, String authorizationCode) 
             throws IOException, GeneralSecurityException {
         
-        NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-        
-        GoogleAuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
-            httpTransport, JSON_FACTORY, clientId, clientSecret, SCOPES)
-            .setAccessType("offline")
-            .setApprovalPrompt("force")
-            .build();
-
-        com.google.api.client.auth.oauth2.TokenResponse tokenResponse = flow
+        TokenResponse tokenResponse = authorizationFlow
             .newTokenRequest(authorizationCode)
             .setRedirectUri(redirectUri)
             .execute();
@@ -107,8 +176,13 @@ public class GoogleDriveService {
         settings.setSyncStatus("LINKED");
         settings.setTokenExpiresAt(LocalDateTime.now().plusSeconds(tokenResponse.getExpiresInSeconds()));
 
+        // New tokens replace any cached client
+        Drive driveService = buildDriveClient(userId, tokenResponse.getAccessToken(),
+            tokenResponse.getRefreshToken(), settings.getTokenExpiresAt());
+        driveClients.put(userId, driveService);
+
         // Create folder in user's Drive
-        String folderId = createOrGetFolder(userId, settings);
+        String folderId = createOrGetFolder(driveService, settings);
         settings.setGoogleDriveFolderId(folderId);
 
         return cloudSettingsRepository.save(settings);
@@ -118,14 +192,7 @@ public class GoogleDriveService {
      * Create or get folder in user's Google Drive
      * إنشاء أو الحصول على مجلد في Google Drive للمستخدم
      */
-    private String createOrGetFolder(String userId, UserCloudSettings settings) 
-            throws IOException, GeneralSecurityException {
-        
-        Drive driveService = getDriveService(userId);
-        if (driveService == null) {
-            return null;
-        }
-
+    private String createOrGetFolder(Drive driveService, UserCloudSettings settings) throws IOException {
         String folderName = settings.getGoogleDriveFolderName();
         
         // Search for existing folder
@@ -152,13 +219,68 @@ public class GoogleDriveService {
     }
 
     /**
-     * Upload PDF to user's Google Drive
-     * رفع PDF إلى Google Drive للمستخدم
+     * Upload content from the upload queue
+     * رفع محتوى من طابور الرفع
+     * 
+     * Not transactional: the upload can take minutes. Large files and content of
+     * unknown length are sent as a resumable upload in chunks; the client resumes
+     * from the last acknowledged byte after a dropped connection or server error.
+     * The idempotency key is stored on the Drive file, so a retry after a lost
+     * response finds the file instead of creating a duplicate.
      */
-    @Transactional
-    public String uploadPdfToDrive(String userId, byte[] pdfBytes, String fileName) 
+    public String uploadQueuedContent(String userId, AbstractInputStreamContent content, String fileName,
+                                      String uploadKey, MediaHttpUploaderProgressListener progressListener)
             throws IOException, GeneralSecurityException {
-        
+        LinkedDrive linked = linkedDrive(userId);
+
+        // An earlier attempt may have created the file before its response was lost
+        FileList existing = linked.drive().files().list()
+            .setQ("appProperties has { key='" + UPLOAD_KEY_PROPERTY + "' and value='" +
+                uploadKey.replace("\\", "\\\\").replace("'", "\\'") + "' } and trashed=false")
+            .setSpaces("drive")
+            .setFields("files(id)")
+            .execute();
+        if (existing.getFiles() != null && !existing.getFiles().isEmpty()) {
+            return existing.getFiles().get(0).getId();
+        }
+
+        File fileMetadata = newFileMetadata(linked.settings(), fileName);
+        fileMetadata.setAppProperties(Map.of(UPLOAD_KEY_PROPERTY, uploadKey));
+
+        Drive.Files.Create create = linked.drive().files().create(fileMetadata, content).setFields("id");
+        MediaHttpUploader uploader = create.getMediaHttpUploader();
+        long length = content.getLength();
+        uploader.setDirectUploadEnabled(length >= 0 && length <= RESUMABLE_UPLOAD_THRESHOLD);
+        uploader.setChunkSize(UPLOAD_CHUNK_SIZE);
+        if (progressListener != null) {
+            uploader.setProgressListener(progressListener);
+        }
+
+        return create.execute().getId();
+    }
+
+    /**
+     * Update a user's sync status (used by the upload queue workers)
+     * تحديث حالة المزامنة للمستخدم
+     */
+    @Transactional
+    public void updateSyncStatus(String userId, String syncStatus) {
+        cloudSettingsRepository.findByUserId(userId).ifPresent(settings -> {
+            settings.setSyncStatus(syncStatus);
+            if ("SYNCED".equals(syncStatus)) {
+                settings.setLastSyncAt(LocalDateTime.now());
+            }
+            cloudSettingsRepository.save(settings);
+        });
+    }
+
+    private record LinkedDrive(UserCloudSettings settings, Drive drive) {
+    }
+
+    /**
+     * Settings and Drive client of a user whose Drive is linked and has a folder
+     */
+    private LinkedDrive linkedDrive(String userId) throws IOException, GeneralSecurityException {
         UserCloudSettings settings = cloudSettingsRepository.findByUserId(userId)
             .orElseThrow(() -> new IllegalStateException("Google Drive not linked for user: " + userId));
 
@@ -170,41 +292,26 @@ public class GoogleDriveService {
         if (driveService == null) {
             throw new IllegalStateException("Failed to initialize Google Drive service for user: " + userId);
         }
+        return new LinkedDrive(settings, driveService);
+    }
 
-        // Create file metadata
+    private static File newFileMetadata(UserCloudSettings settings, String fileName) {
         File fileMetadata = new File();
         fileMetadata.setName(fileName);
         fileMetadata.setParents(Collections.singletonList(settings.getGoogleDriveFolderId()));
-
-        // Upload file - create temp file first
-        java.io.File tempFile = java.io.File.createTempFile("report_", ".pdf");
-        try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-            fos.write(pdfBytes);
-        }
-        
-        com.google.api.client.http.FileContent mediaContent = 
-            new com.google.api.client.http.FileContent("application/pdf", tempFile);
-        
-        File file = driveService.files().create(fileMetadata, mediaContent)
-            .setFields("id, name, webViewLink")
-            .execute();
-        
-        // Delete temp file
-        tempFile.delete();
-
-        // Update sync status
-        settings.setLastSyncAt(LocalDateTime.now());
-        settings.setSyncStatus("SYNCED");
-        cloudSettingsRepository.save(settings);
-
-        return file.getId();
+        return fileMetadata;
     }
 
     /**
-     * Get Drive service for a specific user
+     * Get Drive service for a specific user (cached)
      * الحصول على خدمة Drive لمستخدم محدد
      */
     private Drive getDriveService(String userId) throws IOException, GeneralSecurityException {
+        Drive cached = driveClients.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+
         UserCloudSettings settings = cloudSettingsRepository.findByUserId(userId)
             .orElse(null);
 
@@ -212,47 +319,142 @@ public class GoogleDriveService {
             return null;
         }
 
-        // Check if token needs refresh (before decrypting)
-        refreshTokenIfNeeded(userId, settings);
-        
-        // Reload settings after potential refresh
-        settings = cloudSettingsRepository.findByUserId(userId).orElse(settings);
-        
         // Decrypt tokens
-        String accessToken = encryptionService.decrypt(settings.getAccessTokenEncrypted());
-        String refreshToken = encryptionService.decrypt(settings.getRefreshTokenEncrypted());
+        String accessToken = encryptionService.decryptCached(userId, settings.getAccessTokenEncrypted());
+        String refreshToken = encryptionService.decryptCached(userId, settings.getRefreshTokenEncrypted());
 
-        if (accessToken == null) {
+        if (accessToken == null && refreshToken == null) {
             return null;
         }
+        reEncryptIfLegacy(settings, accessToken, refreshToken);
 
-        NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-        
+        Drive driveService = buildDriveClient(userId, accessToken, refreshToken, settings.getTokenExpiresAt());
+        // Another request may have built one meanwhile; keep a single client per user
+        Drive existing = driveClients.asMap().putIfAbsent(userId, driveService);
+        return existing != null ? existing : driveService;
+    }
+
+    /**
+     * Store tokens written by the earlier encryption scheme in the current format
+     */
+    private void reEncryptIfLegacy(UserCloudSettings settings, String accessToken, String refreshToken) {
+        boolean legacyAccess = encryptionService.isLegacy(settings.getAccessTokenEncrypted()) && accessToken != null;
+        boolean legacyRefresh = encryptionService.isLegacy(settings.getRefreshTokenEncrypted()) && refreshToken != null;
+        if (!legacyAccess && !legacyRefresh) {
+            return;
+        }
+        if (legacyAccess) {
+            settings.setAccessTokenEncrypted(encryptionService.encrypt(accessToken));
+        }
+        if (legacyRefresh) {
+            settings.setRefreshTokenEncrypted(encryptionService.encrypt(refreshToken));
+        }
+        cloudSettingsRepository.save(settings);
+    }
+
+    /**
+     * Re-encrypt all stored tokens still in the earlier format, once the application is up
+     * إعادة تشفير الرموز المخزنة بالطريقة القديمة
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reEncryptLegacyTokens() {
+        int migrated = 0;
+        try {
+            for (UserCloudSettings settings : cloudSettingsRepository.findAll()) {
+                if (encryptionService.isLegacy(settings.getAccessTokenEncrypted())
+                        || encryptionService.isLegacy(settings.getRefreshTokenEncrypted())) {
+                    reEncryptIfLegacy(settings,
+                        encryptionService.decrypt(settings.getAccessTokenEncrypted()),
+                        encryptionService.decrypt(settings.getRefreshTokenEncrypted()));
+                    migrated++;
+                }
+            }
+            if (migrated > 0) {
+                System.out.println("✅ Re-encrypted Google Drive tokens of " + migrated + " users");
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Could not re-encrypt stored tokens: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drive client on the shared transport; the Credential refreshes expired
+     * access tokens on its own and reports them to the listener
+     */
+    private Drive buildDriveClient(String userId, String accessToken, String refreshToken,
+                                   LocalDateTime expiresAt) {
         Credential credential = new Credential.Builder(
             com.google.api.client.auth.oauth2.BearerToken.authorizationHeaderAccessMethod())
             .setTransport(httpTransport)
             .setJsonFactory(JSON_FACTORY)
-            .setTokenServerUrl(new GenericUrl("https://oauth2.googleapis.com/token"))
+            .setTokenServerUrl(new GenericUrl(tokenServerUrl))
             .setClientAuthentication(new com.google.api.client.auth.oauth2.ClientParametersAuthentication(
                 clientId, clientSecret))
+            .addRefreshListener(new TokenPersistingListener(userId))
             .build();
         
         credential.setAccessToken(accessToken);
         if (refreshToken != null) {
             credential.setRefreshToken(refreshToken);
         }
+        if (expiresAt != null) {
+            credential.setExpirationTimeMilliseconds(
+                expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
 
         return new Drive.Builder(httpTransport, JSON_FACTORY, credential)
+            .setRootUrl(driveRootUrl)
             .setApplicationName(APPLICATION_NAME)
             .build();
     }
 
+    /**
+     * Stores tokens rotated by a Credential refresh
+     * حفظ الرموز المحدثة بعد تجديدها
+     */
+    private class TokenPersistingListener implements CredentialRefreshListener {
+
+        private final String userId;
+
+        TokenPersistingListener(String userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public void onTokenResponse(Credential credential, TokenResponse tokenResponse) {
+            cloudSettingsRepository.findByUserId(userId).ifPresent(settings -> {
+                settings.setAccessTokenEncrypted(encryptionService.encrypt(tokenResponse.getAccessToken()));
+                if (tokenResponse.getRefreshToken() != null) {
+                    settings.setRefreshTokenEncrypted(encryptionService.encrypt(tokenResponse.getRefreshToken()));
+                }
+                if (tokenResponse.getExpiresInSeconds() != null) {
+                    settings.setTokenExpiresAt(LocalDateTime.now().plusSeconds(tokenResponse.getExpiresInSeconds()));
+                }
+                cloudSettingsRepository.save(settings);
+            });
+        }
+
+        @Override
+        public void onTokenErrorResponse(Credential credential, TokenErrorResponse tokenErrorResponse) {
+            // Refresh token revoked or expired: the user has to link Drive again
+            driveClients.invalidate(userId);
+            System.err.println("⚠️ Google Drive token refresh failed for user " + userId + ": " +
+                (tokenErrorResponse != null ? tokenErrorResponse.getError() : "unknown error"));
+            cloudSettingsRepository.findByUserId(userId).ifPresent(settings -> {
+                settings.setSyncStatus("ERROR");
+                cloudSettingsRepository.save(settings);
+            });
+        }
+    }
+
     /**
      * Unlink Google Drive for a user
      * إلغاء ربط Google Drive لمستخدم
      */
     @Transactional
     public void unlinkGoogleDrive(String userId) {
+        driveClients.invalidate(userId);
+        encryptionService.evict(userId);
         cloudSettingsRepository.findByUserId(userId).ifPresent(settings -> {
             settings.setGoogleDriveEnabled(false);
             settings.setAccessTokenEncrypted(null);
@@ -276,42 +478,4 @@ public class GoogleDriveService {
                 .syncStatus("NOT_LINKED")
                 .build());
     }
-
-    /**
-     * Refresh access token if expired
-     * تحديث رمز الوصول إذا انتهت صلاحيته
-     */
-    private void refreshTokenIfNeeded(String userId, UserCloudSettings settings) 
-            throws IOException, GeneralSecurityException {
-        
-        if (settings.getTokenExpiresAt() == null || 
-            LocalDateTime.now().isBefore(settings.getTokenExpiresAt().minusMinutes(5))) {
-            return; // Token still valid
-        }
-
-        // Token expired or about to expire, refresh it
-        String refreshToken = encryptionService.decrypt(settings.getRefreshTokenEncrypted());
-        if (refreshToken == null) {
-            throw new IllegalStateException("Refresh token not available for user: " + userId);
-        }
-
-        NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-        
-        com.google.api.client.auth.oauth2.TokenResponse tokenResponse = 
-            new com.google.api.client.auth.oauth2.RefreshTokenRequest(
-                httpTransport, JSON_FACTORY,
-                new GenericUrl("https://oauth2.googleapis.com/token"),
-                refreshToken)
-            .setClientAuthentication(new com.google.api.client.auth.oauth2.ClientParametersAuthentication(clientId, clientSecret))
-            .execute();
-
-        // Update tokens
-        settings.setAccessTokenEncrypted(encryptionService.encrypt(tokenResponse.getAccessToken()));
-        if (tokenResponse.getRefreshToken() != null) {
-            settings.setRefreshTokenEncrypted(encryptionService.encrypt(tokenResponse.getRefreshToken()));
-        }
-        settings.setTokenExpiresAt(LocalDateTime.now().plusSeconds(tokenResponse.getExpiresInSeconds()));
-        cloudSettingsRepository.save(settings);
-    }
 }
-
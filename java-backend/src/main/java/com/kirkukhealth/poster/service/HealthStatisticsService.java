@@ -1,5 +1,12 @@
 package com.kirkukhealth.poster.service;
 
+import com.kirkukhealth.poster.dto.AllCentersMonthlyTotals;
+import com.kirkukhealth.poster.dto.CategoryTotals;
+import com.kirkukhealth.poster.dto.CenterMonthlyTotals;
+import com.kirkukhealth.poster.dto.CenterProgressResponse;
+import com.kirkukhealth.poster.dto.TopicTotals;
+import com.kirkukhealth.poster.dto.TrendPoint;
+import com.kirkukhealth.poster.dto.TrendSeries;
 import com.kirkukhealth.poster.model.DailyStatistics;
 import com.kirkukhealth.poster.model.MonthlyTarget;
 import com.kirkukhealth.poster.model.UserProfile;
@@ -7,6 +14,7 @@ import com.kirkukhealth.poster.repository.DailyStatisticsRepository;
 import com.kirkukhealth.poster.repository.MonthlyTargetRepository;
 import com.kirkukhealth.poster.repository.UserProfileRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -33,6 +41,21 @@ public class HealthStatisticsService {
     @Autowired
     private MonthlyTargetRepository targetRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TopicDictionaryService topicDictionary;
+
+    @Autowired
+    private StatisticsPartitionService partitionService;
+
+    /**
+     * Longest trend range served in one call (5 years)
+     * أطول نطاق للاتجاه في طلب واحد
+     */
+    private static final int MAX_TREND_MONTHS = 60;
+
     /**
      * Category mapping - 11 main sections with sub-topics
      * خريطة الفئات - 11 قسم رئيسي مع المواضيع الفرعية
@@ -197,27 +220,32 @@ public class HealthStatisticsService {
             throw new IllegalArgumentException("Invalid topic for category: " + statistics.getTopicName());
         }
 
-        // Check if entry already exists for this date, center, category, and topic
-        Optional<DailyStatistics> existing = statisticsRepository.findByCenterIdAndCategoryNameAndEntryDateBetween(
+        Short categoryKey = topicDictionary.getCategoryKey(statistics.getCategoryName());
+        Short topicKey = topicDictionary.getTopicKey(statistics.getCategoryName(), statistics.getTopicName());
+        if (categoryKey == null || topicKey == null) {
+            throw new IllegalArgumentException("Topic not registered in health_topics: " + statistics.getTopicName());
+        }
+
+        // Back-dated or future entries may fall outside the pre-created partitions
+        partitionService.ensurePartition(YearMonth.from(statistics.getEntryDate()));
+
+        // Single-statement upsert: avoids the SELECT-then-INSERT race on the unique constraint
+        DailyStatistics saved = statisticsRepository.upsert(
+            UUID.randomUUID().toString(),
             statistics.getCenterId(),
             statistics.getCategoryName(),
-            statistics.getEntryDate(),
+            statistics.getTopicName(),
+            categoryKey,
+            topicKey,
+            statistics.getIndividualMeetings() != null ? statistics.getIndividualMeetings() : 0,
+            statistics.getLectures() != null ? statistics.getLectures() : 0,
+            statistics.getSeminars() != null ? statistics.getSeminars() : 0,
             statistics.getEntryDate()
-        ).stream()
-        .filter(s -> s.getTopicName().equals(statistics.getTopicName()))
-        .findFirst();
-
-        if (existing.isPresent()) {
-            // Update existing entry
-            DailyStatistics existingStats = existing.get();
-            existingStats.setIndividualMeetings(statistics.getIndividualMeetings());
-            existingStats.setLectures(statistics.getLectures());
-            existingStats.setSeminars(statistics.getSeminars());
-            return statisticsRepository.save(existingStats);
-        } else {
-            // Create new entry
-            return statisticsRepository.save(statistics);
-        }
+        );
+
+        eventPublisher.publishEvent(new StatisticsChangedEvent(
+            saved.getCenterId(), YearMonth.from(saved.getEntryDate())));
+        return saved;
     }
 
     /**
@@ -232,153 +260,213 @@ public class HealthStatisticsService {
      * Aggregate monthly totals for a center
      * تجميع الإجماليات الشهرية لمركز
      */
-    public Map<String, Object> getMonthlyTotals(String centerId, YearMonth yearMonth) {
+    public CenterMonthlyTotals getMonthlyTotals(String centerId, YearMonth yearMonth) {
         LocalDate startDate = yearMonth.atDay(1);
         LocalDate endDate = yearMonth.atEndOfMonth();
 
-        List<Object[]> results = statisticsRepository.aggregateMonthlyTotals(centerId, startDate, endDate);
+        // Rows: categoryName, topicName, meetings, lectures, seminars (ordered by category, topic)
+        List<Object[]> results = topicDictionary.decodeNames(
+            statisticsRepository.aggregateMonthlyTotals(centerId, startDate, endDate), 0);
 
-        Map<String, Object> totals = new LinkedHashMap<>();
-        totals.put("centerId", centerId);
-        totals.put("yearMonth", yearMonth.toString());
-        totals.put("startDate", startDate);
-        totals.put("endDate", endDate);
+        String centerName = userProfileRepository.findByUserId(centerId)
+            .map(UserProfile::getHealthCenterName)
+            .orElse("Unknown");
 
-        List<Map<String, Object>> categoryTotals = new ArrayList<>();
-        Map<String, Map<String, Object>> categoryMap = new LinkedHashMap<>();
-
-        for (Object[] row : results) {
-            String categoryName = (String) row[0];
-            String topicName = (String) row[1];
-            Long totalMeetings = ((Number) row[2]).longValue();
-            Long totalLectures = ((Number) row[3]).longValue();
-            Long totalSeminars = ((Number) row[4]).longValue();
-
-            categoryMap.putIfAbsent(categoryName, new LinkedHashMap<>());
-            Map<String, Object> categoryData = categoryMap.get(categoryName);
-
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> topics = (List<Map<String, Object>>) categoryData.getOrDefault("topics", new ArrayList<>());
-
-            Map<String, Object> topicData = new LinkedHashMap<>();
-            topicData.put("topicName", topicName);
-            topicData.put("individualMeetings", totalMeetings);
-            topicData.put("lectures", totalLectures);
-            topicData.put("seminars", totalSeminars);
-            topicData.put("total", totalMeetings + totalLectures + totalSeminars);
-
-            topics.add(topicData);
-            categoryData.put("topics", topics);
-
-            // Update category totals
-            Long catMeetings = ((Number) categoryData.getOrDefault("totalMeetings", 0L)).longValue();
-            Long catLectures = ((Number) categoryData.getOrDefault("totalLectures", 0L)).longValue();
-            Long catSeminars = ((Number) categoryData.getOrDefault("totalSeminars", 0L)).longValue();
-
-            categoryData.put("totalMeetings", catMeetings + totalMeetings);
-            categoryData.put("totalLectures", catLectures + totalLectures);
-            categoryData.put("totalSeminars", catSeminars + totalSeminars);
-        }
-
-        // Convert to list
-        for (Map.Entry<String, Map<String, Object>> entry : categoryMap.entrySet()) {
-            Map<String, Object> categoryData = entry.getValue();
-            categoryData.put("categoryName", entry.getKey());
-            Long totalMeetings = ((Number) categoryData.get("totalMeetings")).longValue();
-            Long totalLectures = ((Number) categoryData.get("totalLectures")).longValue();
-            Long totalSeminars = ((Number) categoryData.get("totalSeminars")).longValue();
-            categoryData.put("total", totalMeetings + totalLectures + totalSeminars);
-            categoryTotals.add(categoryData);
-        }
-
-        totals.put("categories", categoryTotals);
-
-        // Calculate grand totals
-        long grandTotalMeetings = categoryTotals.stream()
-            .mapToLong(c -> ((Number) c.get("totalMeetings")).longValue())
-            .sum();
-        long grandTotalLectures = categoryTotals.stream()
-            .mapToLong(c -> ((Number) c.get("totalLectures")).longValue())
-            .sum();
-        long grandTotalSeminars = categoryTotals.stream()
-            .mapToLong(c -> ((Number) c.get("totalSeminars")).longValue())
-            .sum();
-
-        totals.put("grandTotalMeetings", grandTotalMeetings);
-        totals.put("grandTotalLectures", grandTotalLectures);
-        totals.put("grandTotalSeminars", grandTotalSeminars);
-        totals.put("grandTotal", grandTotalMeetings + grandTotalLectures + grandTotalSeminars);
-
-        return totals;
+        return toCenterTotals(centerId, centerName, yearMonth.toString(), startDate, endDate, results, 0);
     }
 
     /**
      * Get all centers' monthly totals
      * الحصول على إجماليات جميع المراكز الشهرية
      */
-    public Map<String, Object> getAllCentersMonthlyTotals(YearMonth yearMonth) {
+    public AllCentersMonthlyTotals getAllCentersMonthlyTotals(YearMonth yearMonth) {
         LocalDate startDate = yearMonth.atDay(1);
         LocalDate endDate = yearMonth.atEndOfMonth();
 
-        List<Object[]> results = statisticsRepository.aggregateAllCentersMonthlyTotals(startDate, endDate);
+        List<CenterMonthlyTotals> centers = getAllCentersTotals(
+            startDate, endDate, yearMonth.toString(), getCenterNames());
 
-        Map<String, Object> report = new LinkedHashMap<>();
-        report.put("yearMonth", yearMonth.toString());
-        report.put("startDate", startDate);
-        report.put("endDate", endDate);
+        return new AllCentersMonthlyTotals(yearMonth.toString(), startDate, endDate, centers);
+    }
 
-        Map<String, Map<String, Object>> centersMap = new LinkedHashMap<>();
+    /**
+     * All centers' category/topic totals for any date range, from one grouped query
+     * إجماليات جميع المراكز لأي نطاق تاريخ من استعلام تجميعي واحد
+     * 
+     * @param periodLabel value of CenterMonthlyTotals.yearMonth (e.g. "2025-01" or "2025-01-06..2025-01-12")
+     */
+    public List<CenterMonthlyTotals> getAllCentersTotals(LocalDate startDate, LocalDate endDate,
+                                                        String periodLabel, Map<String, String> centerNames) {
+        // Rows: centerId, categoryName, topicName, meetings, lectures, seminars (ordered by center, category, topic)
+        List<Object[]> results = topicDictionary.decodeNames(
+            statisticsRepository.aggregateAllCentersMonthlyTotals(startDate, endDate), 1);
+
+        List<CenterMonthlyTotals> centers = new ArrayList<>();
+        int i = 0;
+        while (i < results.size()) {
+            String centerId = (String) results.get(i)[0];
+            int end = i;
+            while (end < results.size() && centerId.equals(results.get(end)[0])) {
+                end++;
+            }
+            centers.add(toCenterTotals(centerId, centerNames.getOrDefault(centerId, "Unknown"),
+                periodLabel, startDate, endDate, results.subList(i, end), 1));
+            i = end;
+        }
 
-        for (Object[] row : results) {
-            String centerId = (String) row[0];
-            String categoryName = (String) row[1];
-            String topicName = (String) row[2];
-            Long totalMeetings = ((Number) row[3]).longValue();
-            Long totalLectures = ((Number) row[4]).longValue();
-            Long totalSeminars = ((Number) row[5]).longValue();
+        return List.copyOf(centers);
+    }
 
-            centersMap.putIfAbsent(centerId, new LinkedHashMap<>());
-            Map<String, Object> centerData = centersMap.get(centerId);
+    /**
+     * Per-center, per-topic monthly rows for a range of months (multi-month workbooks)
+     * صفوف شهرية لكل مركز وموضوع لنطاق من الأشهر
+     * 
+     * Rows: centerId, categoryName, topicName, year, month, meetings, lectures, seminars
+     * (ordered by center, category, topic, month)
+     */
+    public List<Object[]> getCenterTopicMonthlyRows(YearMonth from, YearMonth to) {
+        return topicDictionary.decodeNames(
+            statisticsRepository.aggregateCenterTopicMonthly(from.atDay(1), to.atEndOfMonth()), 1);
+    }
 
-            @SuppressWarnings("unchecked")
-            Map<String, Map<String, Object>> categories = (Map<String, Map<String, Object>>) 
-                centerData.getOrDefault("categories", new LinkedHashMap<>());
+    /**
+     * Health center names by center ID (ordered by ID)
+     * أسماء المراكز الصحية حسب المعرف
+     */
+    public Map<String, String> getCenterNames() {
+        Map<String, String> centerNames = new TreeMap<>();
+        for (UserProfile profile : userProfileRepository.findAll()) {
+            if (profile.getHealthCenterName() != null) {
+                centerNames.put(profile.getUserId(), profile.getHealthCenterName());
+            }
+        }
+        return centerNames;
+    }
 
-            categories.putIfAbsent(categoryName, new LinkedHashMap<>());
-            Map<String, Object> categoryData = categories.get(categoryName);
+    /**
+     * Fold ordered aggregate rows of one center into category/topic totals
+     * تحويل صفوف التجميع المرتبة لمركز واحد إلى إجماليات الفئات والمواضيع
+     * 
+     * @param offset index of the category column in each row (topic, meetings, lectures, seminars follow)
+     */
+    private CenterMonthlyTotals toCenterTotals(String centerId, String centerName, String periodLabel,
+                                               LocalDate startDate, LocalDate endDate,
+                                               List<Object[]> rows, int offset) {
+        List<CategoryTotals> categories = new ArrayList<>();
+        long grandMeetings = 0;
+        long grandLectures = 0;
+        long grandSeminars = 0;
+
+        int i = 0;
+        while (i < rows.size()) {
+            String categoryName = (String) rows.get(i)[offset];
+            List<TopicTotals> topics = new ArrayList<>();
+            long meetings = 0;
+            long lectures = 0;
+            long seminars = 0;
+
+            while (i < rows.size() && categoryName.equals(rows.get(i)[offset])) {
+                Object[] row = rows.get(i++);
+                TopicTotals topic = new TopicTotals(
+                    (String) row[offset + 1],
+                    ((Number) row[offset + 2]).longValue(),
+                    ((Number) row[offset + 3]).longValue(),
+                    ((Number) row[offset + 4]).longValue());
+                topics.add(topic);
+                meetings += topic.individualMeetings();
+                lectures += topic.lectures();
+                seminars += topic.seminars();
+            }
+
+            categories.add(new CategoryTotals(categoryName, List.copyOf(topics), meetings, lectures, seminars));
+            grandMeetings += meetings;
+            grandLectures += lectures;
+            grandSeminars += seminars;
+        }
 
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> topics = (List<Map<String, Object>>) 
-                categoryData.getOrDefault("topics", new ArrayList<>());
+        return new CenterMonthlyTotals(centerId, centerName, periodLabel,
+            startDate, endDate, List.copyOf(categories),
+            grandMeetings, grandLectures, grandSeminars);
+    }
 
-            Map<String, Object> topicData = new LinkedHashMap<>();
-            topicData.put("topicName", topicName);
-            topicData.put("individualMeetings", totalMeetings);
-            topicData.put("lectures", totalLectures);
-            topicData.put("seminars", totalSeminars);
-            topicData.put("total", totalMeetings + totalLectures + totalSeminars);
+    /**
+     * Monthly trend with year-over-year deltas and moving average
+     * الاتجاه الشهري مع مقارنة بالسنة السابقة والمتوسط المتحرك
+     * 
+     * One grouped query covers the requested range plus the 12 months before it,
+     * which feed both the year-over-year comparison and the moving average window.
+     * Null centerId/categoryName/topicName mean "all".
+     */
+    public TrendSeries getTrend(YearMonth from, YearMonth to, String centerId,
+                                String categoryName, String topicName, int window) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start month must not be after end month");
+        }
+        if (from.plusMonths(MAX_TREND_MONTHS).isBefore(to.plusMonths(1))) {
+            throw new IllegalArgumentException("Trend range is limited to " + MAX_TREND_MONTHS + " months");
+        }
+        if (window < 1 || window > 12) {
+            throw new IllegalArgumentException("Moving average window must be between 1 and 12 months");
+        }
+        if (topicName != null && categoryName == null) {
+            throw new IllegalArgumentException("Topic filter requires a category");
+        }
 
-            topics.add(topicData);
-            categoryData.put("topics", topics);
+        Short categoryKey = null;
+        Short topicKey = null;
+        if (categoryName != null) {
+            categoryKey = topicDictionary.getCategoryKey(categoryName);
+            if (categoryKey == null) {
+                throw new IllegalArgumentException("Invalid category: " + categoryName);
+            }
+        }
+        if (topicName != null) {
+            topicKey = topicDictionary.getTopicKey(categoryName, topicName);
+            if (topicKey == null) {
+                throw new IllegalArgumentException("Invalid topic for category: " + topicName);
+            }
+        }
 
-            categories.put(categoryName, categoryData);
-            centerData.put("categories", categories);
+        // Rows: year, month, meetings, lectures, seminars (months without activity are absent)
+        YearMonth lookbackStart = from.minusMonths(12);
+        Map<YearMonth, long[]> monthly = new HashMap<>();
+        for (Object[] row : statisticsRepository.aggregateMonthlySeries(
+                lookbackStart.atDay(1), to.atEndOfMonth(), centerId, categoryKey, topicKey)) {
+            YearMonth month = YearMonth.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+            monthly.put(month, new long[] {
+                ((Number) row[2]).longValue(),
+                ((Number) row[3]).longValue(),
+                ((Number) row[4]).longValue()
+            });
         }
 
-        // Convert to list and add center names
-        List<Map<String, Object>> centersList = new ArrayList<>();
-        for (Map.Entry<String, Map<String, Object>> entry : centersMap.entrySet()) {
-            Map<String, Object> centerData = entry.getValue();
-            centerData.put("centerId", entry.getKey());
-            
-            Optional<UserProfile> profileOpt = userProfileRepository.findByUserId(entry.getKey());
-            centerData.put("centerName", profileOpt.map(UserProfile::getHealthCenterName).orElse("Unknown"));
-            
-            centersList.add(centerData);
+        List<TrendPoint> points = new ArrayList<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            long[] counts = monthly.getOrDefault(month, new long[3]);
+            long previousYearTotal = monthTotal(monthly, month.minusYears(1));
+
+            long windowSum = 0;
+            for (int back = 0; back < window; back++) {
+                windowSum += monthTotal(monthly, month.minusMonths(back));
+            }
+
+            long total = counts[0] + counts[1] + counts[2];
+            Double yearOverYearPercent = previousYearTotal > 0
+                ? Math.round((total - previousYearTotal) * 1000.0 / previousYearTotal) / 10.0
+                : null;
+
+            points.add(new TrendPoint(month.toString(), counts[0], counts[1], counts[2],
+                previousYearTotal, yearOverYearPercent,
+                Math.round(windowSum * 10.0 / window) / 10.0));
         }
 
-        report.put("centers", centersList);
-        return report;
+        return new TrendSeries(from.toString(), to.toString(), centerId, categoryName, topicName,
+            window, List.copyOf(points));
+    }
+
+    private static long monthTotal(Map<YearMonth, long[]> monthly, YearMonth month) {
+        long[] counts = monthly.get(month);
+        return counts == null ? 0 : counts[0] + counts[1] + counts[2];
     }
 
     /**
@@ -391,7 +479,15 @@ public class HealthStatisticsService {
      * - Centers with no data in last 3 days
      */
     public Map<String, Object> getDashboardSummary(String categoryFilter) {
-        YearMonth currentMonth = YearMonth.now();
+        return getDashboardSummary(YearMonth.now(), categoryFilter);
+    }
+
+    /**
+     * Dashboard summary for the given month; StatisticsCacheService passes the month
+     * of its cache key, so an entry never holds another month's totals
+     * ملخص لوحة التحكم لشهر محدد
+     */
+    public Map<String, Object> getDashboardSummary(YearMonth currentMonth, String categoryFilter) {
         LocalDate startDate = currentMonth.atDay(1);
         LocalDate endDate = currentMonth.atEndOfMonth();
         LocalDate threeDaysAgo = LocalDate.now().minusDays(3);
@@ -399,7 +495,9 @@ public class HealthStatisticsService {
         Map<String, Object> summary = new LinkedHashMap<>();
         
         // Total counts for current month (all centers)
-        List<Object[]> allTotals = statisticsRepository.aggregateAllCentersMonthlyTotals(startDate, endDate);
+        // Rows: centerId, categoryName, topicName, meetings, lectures, seminars
+        List<Object[]> allTotals = topicDictionary.decodeNames(
+            statisticsRepository.aggregateAllCentersMonthlyTotals(startDate, endDate), 1);
         
         long totalMeetings = 0;
         long totalLectures = 0;
@@ -421,7 +519,7 @@ public class HealthStatisticsService {
         String category = (categoryFilter != null && !categoryFilter.isEmpty()) 
             ? categoryFilter : "صحة الأم والطفل";
         
-        List<Map<String, Object>> centerRanking = getCenterRankingByCategory(category, startDate, endDate);
+        List<Map<String, Object>> centerRanking = getCenterRankingByCategory(category, allTotals);
         summary.put("centerRanking", centerRanking);
         summary.put("selectedCategory", category);
         
@@ -431,7 +529,7 @@ public class HealthStatisticsService {
         summary.put("inactiveCount", inactiveCenters.size());
         
         // Category statistics
-        Map<String, Long> categoryStats = getCategoryStatistics(startDate, endDate);
+        Map<String, Long> categoryStats = getCategoryStatistics(allTotals);
         summary.put("categoryStatistics", categoryStats);
         
         return summary;
@@ -441,16 +539,13 @@ public class HealthStatisticsService {
      * Get center ranking by category activity
      * الحصول على ترتيب المراكز حسب نشاط الفئة
      */
-    private List<Map<String, Object>> getCenterRankingByCategory(String categoryName, LocalDate startDate, LocalDate endDate) {
-        List<Object[]> results = statisticsRepository.aggregateAllCentersMonthlyTotals(startDate, endDate);
-        
+    private List<Map<String, Object>> getCenterRankingByCategory(String categoryName, List<Object[]> results) {
         Map<String, Long> centerTotals = new LinkedHashMap<>();
         
         for (Object[] row : results) {
             String centerId = (String) row[0];
-            String category = (String) row[1];
             
-            if (category.equals(categoryName)) {
+            if (categoryName.equals(row[1])) {
                 Long totalMeetings = ((Number) row[3]).longValue();
                 Long totalLectures = ((Number) row[4]).longValue();
                 Long totalSeminars = ((Number) row[5]).longValue();
@@ -513,9 +608,7 @@ public class HealthStatisticsService {
      * Get statistics by category
      * الحصول على الإحصائيات حسب الفئة
      */
-    private Map<String, Long> getCategoryStatistics(LocalDate startDate, LocalDate endDate) {
-        List<Object[]> results = statisticsRepository.aggregateAllCentersMonthlyTotals(startDate, endDate);
-        
+    private Map<String, Long> getCategoryStatistics(List<Object[]> results) {
         Map<String, Long> categoryTotals = new LinkedHashMap<>();
         
         for (Object[] row : results) {
@@ -535,42 +628,41 @@ public class HealthStatisticsService {
      * Calculate progress for a center in a month
      * حساب التقدم لمركز في شهر
      */
-    public Map<String, Object> calculateProgress(String centerId, Integer year, Integer month) {
+    public CenterProgressResponse calculateProgress(String centerId, Integer year, Integer month) {
         YearMonth yearMonth = YearMonth.of(year, month);
 
-        // Get actual statistics
-        Map<String, Object> monthlyTotals = getMonthlyTotals(centerId, yearMonth);
-        long actualMeetings = ((Number) monthlyTotals.getOrDefault("grandTotalMeetings", 0L)).longValue();
-        long actualLectures = ((Number) monthlyTotals.getOrDefault("grandTotalLectures", 0L)).longValue();
-        long actualSeminars = ((Number) monthlyTotals.getOrDefault("grandTotalSeminars", 0L)).longValue();
-        long actualTotal = actualMeetings + actualLectures + actualSeminars;
+        Long actualTotal = statisticsRepository.sumCenterTotal(centerId, yearMonth.atDay(1), yearMonth.atEndOfMonth());
+        Long targetTotal = targetRepository.getTotalTargetForCenter(centerId, year, month);
+
+        String centerName = userProfileRepository.findByUserId(centerId)
+            .map(UserProfile::getHealthCenterName)
+            .orElse(centerId);
 
-        // Get targets
-        List<MonthlyTarget> targets = targetRepository.findByCenterIdAndTargetYearAndTargetMonth(centerId, year, month);
-        long targetMeetings = targets.stream().mapToLong(t -> t.getTargetMeetings() != null ? t.getTargetMeetings() : 0).sum();
-        long targetLectures = targets.stream().mapToLong(t -> t.getTargetLectures() != null ? t.getTargetLectures() : 0).sum();
-        long targetSeminars = targets.stream().mapToLong(t -> t.getTargetSeminars() != null ? t.getTargetSeminars() : 0).sum();
-        long targetTotal = targetMeetings + targetLectures + targetSeminars;
+        return buildProgress(centerId, centerName != null ? centerName : centerId, year, month,
+            actualTotal != null ? actualTotal : 0L,
+            targetTotal != null ? targetTotal : 0L);
+    }
 
+    private CenterProgressResponse buildProgress(String centerId, String centerName, int year, int month,
+                                                 long actualTotal, long targetTotal) {
         // Calculate percentages
         double overallPercent = targetTotal > 0 ? (actualTotal * 100.0 / targetTotal) : 0;
 
         // Determine status
         String status = determineProgressStatus(overallPercent, month);
-        String color = getProgressColor(overallPercent);
-
-        Map<String, Object> progress = new LinkedHashMap<>();
-        progress.put("centerId", centerId);
-        progress.put("year", year);
-        progress.put("month", month);
-        progress.put("actualTotal", actualTotal);
-        progress.put("targetTotal", targetTotal);
-        progress.put("overallPercent", Math.round(overallPercent * 100.0) / 100.0);
-        progress.put("status", status);
-        progress.put("color", color);
-        progress.put("behindSchedule", status.equals("Behind Schedule"));
-
-        return progress;
+
+        return CenterProgressResponse.builder()
+            .centerId(centerId)
+            .centerName(centerName)
+            .year(year)
+            .month(month)
+            .actualTotal(actualTotal)
+            .targetTotal(targetTotal)
+            .overallPercent(Math.round(overallPercent * 100.0) / 100.0)
+            .status(status)
+            .color(getProgressColor(overallPercent))
+            .behindSchedule(status.equals("Behind Schedule"))
+            .build();
     }
 
     private String determineProgressStatus(double percent, int month) {
@@ -593,18 +685,38 @@ public class HealthStatisticsService {
         else return "red";
     }
 
+    /**
+     * Calculate progress for all centers in a month
+     * حساب التقدم لجميع المراكز في شهر
+     * 
+     * Uses one grouped query for actuals and one for targets, regardless of the number of centers
+     * يستخدم استعلاماً مجمعاً واحداً للإنجاز وآخر للأهداف بغض النظر عن عدد المراكز
+     */
     public Map<String, Object> getAllCentersProgress(Integer year, Integer month) {
+        YearMonth yearMonth = YearMonth.of(year, month);
+
+        Map<String, Long> actualByCenter = new HashMap<>();
+        for (Object[] row : statisticsRepository.aggregateCenterTotals(yearMonth.atDay(1), yearMonth.atEndOfMonth())) {
+            actualByCenter.put((String) row[0], ((Number) row[1]).longValue());
+        }
+
+        Map<String, Long> targetByCenter = new HashMap<>();
+        for (Object[] row : targetRepository.aggregateCenterTargets(year, month)) {
+            targetByCenter.put((String) row[0], ((Number) row[1]).longValue());
+        }
+
         List<UserProfile> centers = userProfileRepository.findAll();
-        List<Map<String, Object>> centersProgress = new ArrayList<>();
-        double totalActual = 0;
-        double totalTarget = 0;
+        List<CenterProgressResponse> centersProgress = new ArrayList<>(centers.size());
+        long totalActual = 0;
+        long totalTarget = 0;
 
         for (UserProfile center : centers) {
-            Map<String, Object> progress = calculateProgress(center.getUserId(), year, month);
-            progress.put("centerName", center.getHealthCenterName() != null ? center.getHealthCenterName() : center.getUserId());
-            centersProgress.add(progress);
-            totalActual += ((Number) progress.get("actualTotal")).longValue();
-            totalTarget += ((Number) progress.get("targetTotal")).longValue();
+            long actual = actualByCenter.getOrDefault(center.getUserId(), 0L);
+            long target = targetByCenter.getOrDefault(center.getUserId(), 0L);
+            String centerName = center.getHealthCenterName() != null ? center.getHealthCenterName() : center.getUserId();
+            centersProgress.add(buildProgress(center.getUserId(), centerName, year, month, actual, target));
+            totalActual += actual;
+            totalTarget += target;
         }
 
         double overallCompletion = totalTarget > 0 ? (totalActual * 100.0 / totalTarget) : 0;
@@ -626,17 +738,28 @@ public class HealthStatisticsService {
         if (!validTopics.contains(target.getTopicName())) {
             throw new IllegalArgumentException("Invalid topic: " + target.getTopicName());
         }
-        Optional<MonthlyTarget> existing = targetRepository.findByCenterIdAndCategoryNameAndTopicNameAndTargetYearAndTargetMonth(
-            target.getCenterId(), target.getCategoryName(), target.getTopicName(),
-            target.getTargetYear(), target.getTargetMonth());
-        if (existing.isPresent()) {
-            MonthlyTarget existingTarget = existing.get();
-            existingTarget.setTargetMeetings(target.getTargetMeetings());
-            existingTarget.setTargetLectures(target.getTargetLectures());
-            existingTarget.setTargetSeminars(target.getTargetSeminars());
-            return targetRepository.save(existingTarget);
+        Short categoryKey = topicDictionary.getCategoryKey(target.getCategoryName());
+        Short topicKey = topicDictionary.getTopicKey(target.getCategoryName(), target.getTopicName());
+        if (categoryKey == null || topicKey == null) {
+            throw new IllegalArgumentException("Topic not registered in health_topics: " + target.getTopicName());
         }
-        return targetRepository.save(target);
+        MonthlyTarget saved = targetRepository.upsert(
+            UUID.randomUUID().toString(),
+            target.getCenterId(),
+            target.getCategoryName(),
+            target.getTopicName(),
+            categoryKey,
+            topicKey,
+            target.getTargetMeetings() != null ? target.getTargetMeetings() : 0,
+            target.getTargetLectures() != null ? target.getTargetLectures() : 0,
+            target.getTargetSeminars() != null ? target.getTargetSeminars() : 0,
+            target.getTargetYear(),
+            target.getTargetMonth()
+        );
+
+        eventPublisher.publishEvent(new StatisticsChangedEvent(
+            saved.getCenterId(), YearMonth.of(saved.getTargetYear(), saved.getTargetMonth())));
+        return saved;
     }
 
     public List<MonthlyTarget> getTargets(String centerId, Integer year, Integer month) {
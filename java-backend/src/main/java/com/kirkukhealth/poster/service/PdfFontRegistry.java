@@ -0,0 +1,162 @@
+package com.kirkukhealth.poster.service;
+
+import com.lowagie.text.Font;
+import com.lowagie.text.FontFactory;
+import com.lowagie.text.pdf.BaseFont;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.Color;
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PDF Font Registry
+ * سجل خطوط تقارير PDF
+ *
+ * Loads the Arabic-capable base font once at startup and shares the derived
+ * Font objects between all report generations.
+ *
+ * BaseFont is safe to share between concurrent documents: glyph subsets are
+ * tracked per PdfWriter, so each PDF embeds only the glyphs it uses (IDENTITY_H).
+ * The Font objects are never modified after loading, so callers must not call
+ * their setters; derive a new Font from getBaseFont() instead.
+ *
+ * يحمل الخط العربي مرة واحدة ويشاركه بين جميع التقارير بشكل آمن
+ */
+@Service
+public class PdfFontRegistry {
+
+    /**
+     * Optional explicit font file (TTF/OTF with Arabic glyphs)
+     * مسار ملف الخط الاختياري
+     */
+    @Value("${pdf.font.path:}")
+    private String configuredFontPath;
+
+    /**
+     * Common locations of Arabic-capable fonts (Linux containers, Windows)
+     */
+    private static final List<String> FONT_CANDIDATES = List.of(
+        "/usr/share/fonts/truetype/noto/NotoNaskhArabic-Regular.ttf",
+        "/usr/share/fonts/truetype/noto/NotoSansArabic-Regular.ttf",
+        "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf",
+        "/usr/share/fonts/dejavu/DejaVuSans.ttf",
+        "C:/Windows/Fonts/arial.ttf"
+    );
+
+    /**
+     * Immutable set of fonts used by the reports
+     */
+    public record Fonts(Font title, Font subtitle, Font reportType, Font date, Font section,
+                        Font category, Font header, Font data, Font dataBold, Font muted) {
+    }
+
+    private volatile Fonts fonts;
+    private volatile String fontSource;
+    private volatile long loadTimeMillis;
+    private volatile LocalDateTime loadedAt;
+
+    @PostConstruct
+    public void load() {
+        long start = System.nanoTime();
+        Fonts loaded;
+        String source;
+
+        BaseFont baseFont = null;
+        String path = null;
+        for (String candidate : candidatePaths()) {
+            if (new File(candidate).isFile()) {
+                try {
+                    baseFont = BaseFont.createFont(candidate, BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
+                    path = candidate;
+                    break;
+                } catch (Exception e) {
+                    System.err.println("⚠️ Could not load PDF font " + candidate + ": " + e.getMessage());
+                }
+            }
+        }
+
+        if (baseFont == null) {
+            try {
+                // No Arabic font found: Helvetica keeps reports working but cannot render Arabic glyphs
+                baseFont = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
+                path = BaseFont.HELVETICA;
+            } catch (Exception e) {
+                baseFont = null;
+            }
+        }
+
+        if (baseFont != null) {
+            loaded = new Fonts(
+                new Font(baseFont, 18, Font.BOLD, Color.BLACK),
+                new Font(baseFont, 14, Font.NORMAL, Color.BLACK),
+                new Font(baseFont, 16, Font.BOLD, Color.DARK_GRAY),
+                new Font(baseFont, 11, Font.NORMAL, Color.GRAY),
+                new Font(baseFont, 14, Font.BOLD, Color.BLACK),
+                new Font(baseFont, 12, Font.BOLD, new Color(70, 130, 180)),
+                new Font(baseFont, 12, Font.BOLD, Color.WHITE),
+                new Font(baseFont, 11, Font.NORMAL, Color.BLACK),
+                new Font(baseFont, 11, Font.BOLD, Color.BLACK),
+                new Font(baseFont, 11, Font.NORMAL, Color.GRAY));
+            source = path;
+        } else {
+            // Fallback to default fonts
+            loaded = new Fonts(
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18, Color.BLACK),
+                FontFactory.getFont(FontFactory.HELVETICA, 14, Color.BLACK),
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, Color.DARK_GRAY),
+                FontFactory.getFont(FontFactory.HELVETICA, 11, Color.GRAY),
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14, Color.BLACK),
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, new Color(70, 130, 180)),
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, Color.WHITE),
+                FontFactory.getFont(FontFactory.HELVETICA, 11, Color.BLACK),
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11, Color.BLACK),
+                FontFactory.getFont(FontFactory.HELVETICA, 11, Color.GRAY));
+            source = "FontFactory.HELVETICA";
+        }
+
+        this.fonts = loaded;
+        this.fontSource = source;
+        this.loadTimeMillis = (System.nanoTime() - start) / 1_000_000;
+        this.loadedAt = LocalDateTime.now();
+
+        System.out.println("✅ PDF fonts loaded from " + source + " in " + loadTimeMillis + " ms");
+    }
+
+    /**
+     * Shared report fonts
+     * الخطوط المشتركة للتقارير
+     */
+    public Fonts fonts() {
+        return fonts;
+    }
+
+    /**
+     * Load-time metrics of the font registry
+     * مقاييس تحميل الخطوط
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("fontSource", fontSource);
+        metrics.put("arabicCapable", fontSource != null && !fontSource.startsWith("Helvetica")
+            && !fontSource.startsWith("FontFactory"));
+        metrics.put("loadTimeMillis", loadTimeMillis);
+        metrics.put("loadedAt", loadedAt != null ? loadedAt.toString() : null);
+        return metrics;
+    }
+
+    private List<String> candidatePaths() {
+        List<String> paths = new ArrayList<>();
+        if (configuredFontPath != null && !configuredFontPath.isBlank()) {
+            paths.add(configuredFontPath);
+        }
+        paths.addAll(FONT_CANDIDATES);
+        return paths;
+    }
+}
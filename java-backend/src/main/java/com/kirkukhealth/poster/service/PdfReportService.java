@@ -1,5 +1,9 @@
 package com.kirkukhealth.poster.service;
 
+import com.kirkukhealth.poster.dto.CategoryTotals;
+import com.kirkukhealth.poster.dto.CenterMonthlyTotals;
+import com.kirkukhealth.poster.dto.ReportSnapshot;
+import com.kirkukhealth.poster.dto.TopicTotals;
 import com.kirkukhealth.poster.model.*;
 import com.kirkukhealth.poster.repository.*;
 import com.lowagie.text.*;
@@ -10,11 +14,12 @@ import org.springframework.stereotype.Service;
 import java.awt.Color;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * PDF Report Service
@@ -40,9 +45,6 @@ import java.util.stream.Collectors;
 @Service
 public class PdfReportService {
 
-    @Autowired
-    private DailyStatisticsRepository statisticsRepository;
-
     @Autowired
     private PosterRepository posterRepository;
 
@@ -52,52 +54,71 @@ public class PdfReportService {
     @Autowired
     private HealthStatisticsService healthStatisticsService;
 
-    // Arabic fonts for RTL support
-    private Font arabicTitleFont;
-    private Font arabicHeaderFont;
-    private Font arabicDataFont;
-    private Font arabicSectionFont;
+    @Autowired
+    private PdfFontRegistry fontRegistry;
+
+    public static final String WEEKLY_TITLE = "تقرير الأنشطة الأسبوعي";
+    public static final String MONTHLY_TITLE = "تقرير الأنشطة الشهري";
+
+    private static final Color CATEGORY_COLOR = new Color(70, 130, 180);
+    private static final Color TOTAL_BACKGROUND = new Color(240, 240, 240);
 
     /**
-     * Initialize Arabic fonts
-     * تهيئة الخطوط العربية
+     * Sector row collecting activity whose category or topic is not in the dictionary
+     * فئة الأنشطة غير المعروفة
      */
-    private void initializeFonts() {
-        try {
-            // Use BaseFont for better Arabic support
-            BaseFont baseFont;
-            try {
-                // Try to use Arial Unicode MS or fallback to Helvetica
-                baseFont = BaseFont.createFont("Arial Unicode MS", BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
-            } catch (Exception e) {
-                // Fallback to Helvetica if Arial Unicode MS not available
-                baseFont = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
-            }
-
-            arabicTitleFont = new Font(baseFont, 18, Font.BOLD, Color.BLACK);
-            arabicSectionFont = new Font(baseFont, 14, Font.BOLD, Color.BLACK);
-            arabicHeaderFont = new Font(baseFont, 12, Font.BOLD, Color.WHITE);
-            arabicDataFont = new Font(baseFont, 11, Font.NORMAL, Color.BLACK);
-        } catch (Exception e) {
-            // Fallback to default fonts
-            arabicTitleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18, Color.BLACK);
-            arabicSectionFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14, Color.BLACK);
-            arabicHeaderFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, Color.WHITE);
-            arabicDataFont = FontFactory.getFont(FontFactory.HELVETICA, 11, Color.BLACK);
-        }
-    }
+    private static final String UNKNOWN_CATEGORY = "غير معروف";
 
     /**
      * Generate official weekly PDF report
      * توليد تقرير PDF أسبوعي رسمي
      */
     public byte[] generateWeeklyReport(LocalDate startDate, LocalDate endDate) throws DocumentException, IOException {
-        // Initialize fonts
-        initializeFonts();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeWeeklyReport(startDate, endDate, baos);
+        return baos.toByteArray();
+    }
 
-        Document document = new Document(PageSize.A4, 50, 50, 50, 50); // Margins: left, right, top, bottom
+    /**
+     * Generate official monthly PDF report
+     * توليد تقرير PDF شهري رسمي
+     */
+    public byte[] generateMonthlyReport(YearMonth yearMonth) throws DocumentException, IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PdfWriter writer = PdfWriter.getInstance(document, baos);
+        writeMonthlyReport(yearMonth, baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Write the weekly report to a stream (response, file or ZIP entry)
+     * كتابة التقرير الأسبوعي إلى مجرى مباشرة
+     */
+    public void writeWeeklyReport(LocalDate startDate, LocalDate endDate, OutputStream out) throws DocumentException, IOException {
+        writeReport(loadSnapshot(startDate, endDate), WEEKLY_TITLE, out);
+    }
+
+    /**
+     * Write the monthly report to a stream
+     * كتابة التقرير الشهري إلى مجرى مباشرة
+     */
+    public void writeMonthlyReport(YearMonth yearMonth, OutputStream out) throws DocumentException, IOException {
+        writeReport(loadSnapshot(yearMonth.atDay(1), yearMonth.atEndOfMonth()), MONTHLY_TITLE, out);
+    }
+
+    /**
+     * Render a sector report from a snapshot into the output stream
+     * توليد التقرير من لقطة البيانات إلى المجرى
+     * 
+     * Completed pages are written to the stream as the document grows; tables
+     * are small (at most one row per topic of a category, or ten performers), so
+     * each is added whole. The stream is flushed but not closed.
+     */
+    public void writeReport(ReportSnapshot snapshot, String reportTitle, OutputStream out) throws DocumentException, IOException {
+        PdfFontRegistry.Fonts fonts = fontRegistry.fonts();
+
+        Document document = new Document(PageSize.A4, 50, 50, 50, 50); // Margins: left, right, top, bottom
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        writer.setCloseStream(false);
 
         // Enable RTL support
         writer.setRunDirection(PdfWriter.RUN_DIRECTION_RTL);
@@ -105,55 +126,225 @@ public class PdfReportService {
         document.open();
 
         // Add header
-        addHeader(document, startDate, endDate);
+        addHeader(document, fonts, reportTitle, snapshot.startDate(), snapshot.endDate());
 
         // Add sector overview
-        addSectorOverview(document, startDate, endDate);
+        addSectorOverview(document, fonts, snapshot);
 
         // Add detailed statistical breakdown with 66 sub-topics
-        addDetailedStatisticalBreakdown(document, startDate, endDate);
+        addDetailedStatisticalBreakdown(document, fonts, snapshot);
 
         // Add top performers
-        addTopPerformers(document, startDate, endDate);
+        addTopPerformers(document, fonts, snapshot);
 
         // Add poster activity
-        addPosterActivity(document, startDate, endDate);
+        addPosterActivity(document, fonts, snapshot);
 
         document.close();
-        return baos.toByteArray();
+        out.flush();
+    }
+
+    /**
+     * Render one center's annex from a shared snapshot into the output stream
+     * توليد ملحق مركز صحي واحد من لقطة البيانات المشتركة
+     * 
+     * Only reads the snapshot, so annexes of different centers can be rendered concurrently.
+     * The stream is flushed but not closed.
+     */
+    public void writeCenterReport(ReportSnapshot snapshot, String centerId, OutputStream out) throws DocumentException, IOException {
+        PdfFontRegistry.Fonts fonts = fontRegistry.fonts();
+
+        Document document = new Document(PageSize.A4, 50, 50, 50, 50);
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        writer.setCloseStream(false);
+        writer.setRunDirection(PdfWriter.RUN_DIRECTION_RTL);
+
+        document.open();
+
+        addHeader(document, fonts, "الملحق الشهري للمركز الصحي", snapshot.startDate(), snapshot.endDate());
+        addCenterOverview(document, fonts, snapshot, centerId);
+
+        Paragraph sectionTitle = new Paragraph("التفصيل الإحصائي حسب الفئات والمواضيع", fonts.section());
+        sectionTitle.setSpacingBefore(15);
+        sectionTitle.setSpacingAfter(10);
+        document.add(sectionTitle);
+
+        for (CategoryTotals category : snapshot.centerCategories(centerId)) {
+            addCategoryTable(document, fonts, category);
+        }
+
+        document.close();
+        out.flush();
+    }
+
+    /**
+     * Assemble all report data for a period
+     * تجميع جميع بيانات التقرير لفترة معينة
+     * 
+     * One grouped statistics query (center × category × topic), one profile load
+     * and one grouped poster count; every section renders from the result.
+     * Topics missing from the dictionary are moved into a "غير معروف" category, so
+     * the sector totals always add up to the sum of the center totals.
+     */
+    public ReportSnapshot loadSnapshot(LocalDate startDate, LocalDate endDate) {
+        Map<String, String> centerNames = new TreeMap<>();
+        Map<String, String> managerNames = new HashMap<>();
+        for (UserProfile profile : userProfileRepository.findAll()) {
+            if (profile.getHealthCenterName() != null) {
+                centerNames.put(profile.getUserId(), profile.getHealthCenterName());
+            }
+            if (profile.getManagerName() != null) {
+                managerNames.put(profile.getUserId(), profile.getManagerName());
+            }
+        }
+
+        Map<String, List<String>> categoryTopics = healthStatisticsService.getAllCategoryTopics();
+        List<CenterMonthlyTotals> centers = healthStatisticsService.getAllCentersTotals(
+                startDate, endDate, startDate + ".." + endDate, centerNames).stream()
+            .map(center -> withUnknownCategory(center, categoryTopics))
+            .toList();
+
+        // Sector totals per topic: meetings, lectures, seminars
+        Map<String, Map<String, long[]>> topicCounts = new HashMap<>();
+        for (CenterMonthlyTotals center : centers) {
+            for (CategoryTotals category : center.categories()) {
+                Map<String, long[]> categoryCounts = topicCounts.computeIfAbsent(category.categoryName(), k -> new HashMap<>());
+                for (TopicTotals topic : category.topics()) {
+                    long[] counts = categoryCounts.computeIfAbsent(topic.topicName(), k -> new long[3]);
+                    counts[0] += topic.individualMeetings();
+                    counts[1] += topic.lectures();
+                    counts[2] += topic.seminars();
+                }
+            }
+        }
+
+        // Every category and topic in the official order, zeros included
+        List<CategoryTotals> sectorCategories = new ArrayList<>();
+        for (Map.Entry<String, List<String>> categoryEntry : categoryTopics.entrySet()) {
+            List<TopicTotals> topics = new ArrayList<>();
+            long meetings = 0;
+            long lectures = 0;
+            long seminars = 0;
+            Map<String, long[]> categoryCounts = topicCounts.getOrDefault(categoryEntry.getKey(), Map.of());
+            for (String topicName : categoryEntry.getValue()) {
+                long[] counts = categoryCounts.getOrDefault(topicName, new long[3]);
+                topics.add(new TopicTotals(topicName, counts[0], counts[1], counts[2]));
+                meetings += counts[0];
+                lectures += counts[1];
+                seminars += counts[2];
+            }
+            sectorCategories.add(new CategoryTotals(categoryEntry.getKey(), List.copyOf(topics),
+                meetings, lectures, seminars));
+        }
+        Map<String, long[]> unknownCounts = topicCounts.get(UNKNOWN_CATEGORY);
+        if (unknownCounts != null && !categoryTopics.containsKey(UNKNOWN_CATEGORY)) {
+            sectorCategories.add(toCategoryTotals(UNKNOWN_CATEGORY, new TreeMap<>(unknownCounts)));
+        }
+
+        long approvedPosters = 0;
+        long pendingPosters = 0;
+        long totalPosters = 0;
+        for (Object[] row : posterRepository.countGroupedByStatus()) {
+            long count = ((Number) row[1]).longValue();
+            if (row[0] == Poster.PosterStatus.APPROVED) {
+                approvedPosters = count;
+            } else if (row[0] == Poster.PosterStatus.PENDING) {
+                pendingPosters = count;
+            }
+            totalPosters += count;
+        }
+
+        return new ReportSnapshot(startDate, endDate, centers, List.copyOf(sectorCategories),
+            Collections.unmodifiableMap(centerNames), Collections.unmodifiableMap(managerNames),
+            approvedPosters, pendingPosters, totalPosters);
+    }
+
+    /**
+     * Move a center's topics that are not in the dictionary into the "غير معروف"
+     * category; the center's grand totals are unchanged
+     * نقل المواضيع غير الموجودة في القاموس إلى فئة "غير معروف"
+     */
+    private CenterMonthlyTotals withUnknownCategory(CenterMonthlyTotals center, Map<String, List<String>> categoryTopics) {
+        List<CategoryTotals> categories = new ArrayList<>();
+        Map<String, long[]> unknownCounts = new TreeMap<>();
+        for (CategoryTotals category : center.categories()) {
+            List<String> knownTopics = categoryTopics.getOrDefault(category.categoryName(), List.of());
+            List<TopicTotals> topics = new ArrayList<>();
+            for (TopicTotals topic : category.topics()) {
+                if (knownTopics.contains(topic.topicName())) {
+                    topics.add(topic);
+                } else {
+                    String label = UNKNOWN_CATEGORY.equals(category.categoryName())
+                        ? topic.topicName() : category.categoryName() + " / " + topic.topicName();
+                    long[] counts = unknownCounts.computeIfAbsent(label, k -> new long[3]);
+                    counts[0] += topic.individualMeetings();
+                    counts[1] += topic.lectures();
+                    counts[2] += topic.seminars();
+                }
+            }
+            if (topics.size() == category.topics().size()) {
+                categories.add(category);
+            } else if (!topics.isEmpty()) {
+                categories.add(new CategoryTotals(category.categoryName(), List.copyOf(topics),
+                    topics.stream().mapToLong(TopicTotals::individualMeetings).sum(),
+                    topics.stream().mapToLong(TopicTotals::lectures).sum(),
+                    topics.stream().mapToLong(TopicTotals::seminars).sum()));
+            }
+        }
+        if (unknownCounts.isEmpty()) {
+            return center;
+        }
+        categories.add(toCategoryTotals(UNKNOWN_CATEGORY, unknownCounts));
+
+        return new CenterMonthlyTotals(center.centerId(), center.centerName(), center.yearMonth(),
+            center.startDate(), center.endDate(), List.copyOf(categories),
+            center.grandTotalMeetings(), center.grandTotalLectures(), center.grandTotalSeminars());
+    }
+
+    private static CategoryTotals toCategoryTotals(String categoryName, Map<String, long[]> topicCounts) {
+        List<TopicTotals> topics = new ArrayList<>();
+        long meetings = 0;
+        long lectures = 0;
+        long seminars = 0;
+        for (Map.Entry<String, long[]> topic : topicCounts.entrySet()) {
+            long[] counts = topic.getValue();
+            topics.add(new TopicTotals(topic.getKey(), counts[0], counts[1], counts[2]));
+            meetings += counts[0];
+            lectures += counts[1];
+            seminars += counts[2];
+        }
+        return new CategoryTotals(categoryName, List.copyOf(topics), meetings, lectures, seminars);
     }
 
     /**
      * Add PDF header
      * إضافة رأس PDF
      */
-    private void addHeader(Document document, LocalDate startDate, LocalDate endDate) throws DocumentException {
+    private void addHeader(Document document, PdfFontRegistry.Fonts fonts, String reportTitle,
+                           LocalDate startDate, LocalDate endDate) throws DocumentException {
         // Title
-        Paragraph title = new Paragraph("دائرة صحة كركوك – قطاع كركوك الأول", arabicTitleFont);
+        Paragraph title = new Paragraph("دائرة صحة كركوك – قطاع كركوك الأول", fonts.title());
         title.setAlignment(Element.ALIGN_CENTER);
         title.setSpacingAfter(8);
         document.add(title);
 
         // Subtitle
-        Font subtitleFont = new Font(arabicTitleFont.getBaseFont(), 14, Font.NORMAL, Color.BLACK);
-        Paragraph subtitle = new Paragraph("وحدة تعزيز الصحة", subtitleFont);
+        Paragraph subtitle = new Paragraph("وحدة تعزيز الصحة", fonts.subtitle());
         subtitle.setAlignment(Element.ALIGN_CENTER);
         subtitle.setSpacingAfter(5);
         document.add(subtitle);
 
         // Report type
-        Font reportFont = new Font(arabicTitleFont.getBaseFont(), 16, Font.BOLD, Color.DARK_GRAY);
-        Paragraph reportType = new Paragraph("تقرير الأنشطة الأسبوعي", reportFont);
+        Paragraph reportType = new Paragraph(reportTitle, fonts.reportType());
         reportType.setAlignment(Element.ALIGN_CENTER);
         reportType.setSpacingAfter(10);
         document.add(reportType);
 
         // Date range
-        Font dateFont = new Font(arabicTitleFont.getBaseFont(), 11, Font.NORMAL, Color.GRAY);
         String dateRange = String.format("من %s إلى %s", 
             startDate.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")),
             endDate.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
-        Paragraph date = new Paragraph("فترة التقرير: " + dateRange, dateFont);
+        Paragraph date = new Paragraph("فترة التقرير: " + dateRange, fonts.date());
         date.setAlignment(Element.ALIGN_CENTER);
         date.setSpacingAfter(15);
         document.add(date);
@@ -166,24 +357,15 @@ public class PdfReportService {
      * Add sector overview
      * إضافة نظرة عامة على القطاع
      */
-    private void addSectorOverview(Document document, LocalDate startDate, LocalDate endDate) throws DocumentException {
-        Paragraph sectionTitle = new Paragraph("نظرة عامة على القطاع", arabicSectionFont);
+    private void addSectorOverview(Document document, PdfFontRegistry.Fonts fonts, ReportSnapshot snapshot) throws DocumentException {
+        Paragraph sectionTitle = new Paragraph("نظرة عامة على القطاع", fonts.section());
         sectionTitle.setSpacingBefore(10);
         sectionTitle.setSpacingAfter(10);
         document.add(sectionTitle);
 
-        // Get all statistics for the period
-        List<Object[]> allStats = statisticsRepository.aggregateAllCentersMonthlyTotals(startDate, endDate);
-
-        long totalMeetings = 0;
-        long totalLectures = 0;
-        long totalSeminars = 0;
-
-        for (Object[] row : allStats) {
-            totalMeetings += ((Number) row[3]).longValue();
-            totalLectures += ((Number) row[4]).longValue();
-            totalSeminars += ((Number) row[5]).longValue();
-        }
+        long totalMeetings = snapshot.totalMeetings();
+        long totalLectures = snapshot.totalLectures();
+        long totalSeminars = snapshot.totalSeminars();
 
         // Create overview table
         PdfPTable overviewTable = new PdfPTable(4);
@@ -193,26 +375,24 @@ public class PdfReportService {
         overviewTable.setSpacingAfter(5);
 
         // Header row
-        addTableHeader(overviewTable, "النشاط", arabicHeaderFont, Color.DARK_GRAY);
-        addTableHeader(overviewTable, "اللقاءات الفردية", arabicHeaderFont, Color.DARK_GRAY);
-        addTableHeader(overviewTable, "المحاضرات", arabicHeaderFont, Color.DARK_GRAY);
-        addTableHeader(overviewTable, "الندوات", arabicHeaderFont, Color.DARK_GRAY);
+        addTableHeader(overviewTable, "النشاط", fonts.header(), Color.DARK_GRAY);
+        addTableHeader(overviewTable, "اللقاءات الفردية", fonts.header(), Color.DARK_GRAY);
+        addTableHeader(overviewTable, "المحاضرات", fonts.header(), Color.DARK_GRAY);
+        addTableHeader(overviewTable, "الندوات", fonts.header(), Color.DARK_GRAY);
 
         // Data rows
-        addTableCell(overviewTable, "إجمالي القطاع", arabicDataFont);
-        addTableCell(overviewTable, String.valueOf(totalMeetings), arabicDataFont);
-        addTableCell(overviewTable, String.valueOf(totalLectures), arabicDataFont);
-        addTableCell(overviewTable, String.valueOf(totalSeminars), arabicDataFont);
+        addTableCell(overviewTable, "إجمالي القطاع", fonts.data());
+        addTableCell(overviewTable, String.valueOf(totalMeetings), fonts.data());
+        addTableCell(overviewTable, String.valueOf(totalLectures), fonts.data());
+        addTableCell(overviewTable, String.valueOf(totalSeminars), fonts.data());
 
-        addTableCell(overviewTable, "إجمالي الأنشطة", 
-            new Font(arabicDataFont.getBaseFont(), 11, Font.BOLD, Color.BLACK));
+        addTableCell(overviewTable, "إجمالي الأنشطة", fonts.dataBold());
         long totalActivities = totalMeetings + totalLectures + totalSeminars;
-        PdfPCell totalCell = new PdfPCell(new Phrase(String.valueOf(totalActivities), 
-            new Font(arabicDataFont.getBaseFont(), 11, Font.BOLD, Color.BLACK)));
+        PdfPCell totalCell = new PdfPCell(new Phrase(String.valueOf(totalActivities), fonts.dataBold()));
         totalCell.setColspan(3);
         totalCell.setHorizontalAlignment(Element.ALIGN_CENTER);
         totalCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        totalCell.setBackgroundColor(new Color(240, 240, 240));
+        totalCell.setBackgroundColor(TOTAL_BACKGROUND);
         totalCell.setPadding(8);
         overviewTable.addCell(totalCell);
 
@@ -220,128 +400,136 @@ public class PdfReportService {
         document.add(new Paragraph(" "));
     }
 
+    /**
+     * Center identity, totals, share of the sector and rank
+     * بيانات المركز وإجمالياته ونسبته من القطاع وترتيبه
+     */
+    private void addCenterOverview(Document document, PdfFontRegistry.Fonts fonts, ReportSnapshot snapshot,
+                                   String centerId) throws DocumentException {
+        String centerName = snapshot.centerNames().getOrDefault(centerId, centerId);
+        Paragraph sectionTitle = new Paragraph(centerName, fonts.section());
+        sectionTitle.setSpacingBefore(10);
+        sectionTitle.setSpacingAfter(10);
+        document.add(sectionTitle);
+
+        CenterMonthlyTotals center = snapshot.center(centerId);
+        long meetings = center != null ? center.grandTotalMeetings() : 0;
+        long lectures = center != null ? center.grandTotalLectures() : 0;
+        long seminars = center != null ? center.grandTotalSeminars() : 0;
+        long total = meetings + lectures + seminars;
+        long sectorTotal = snapshot.totalMeetings() + snapshot.totalLectures() + snapshot.totalSeminars();
+        int rank = snapshot.rankOf(centerId);
+
+        PdfPTable overviewTable = new PdfPTable(2);
+        overviewTable.setWidthPercentage(100);
+        overviewTable.setWidths(new float[]{2, 3});
+        overviewTable.setSpacingBefore(5);
+        overviewTable.setSpacingAfter(5);
+
+        addTableHeader(overviewTable, "البيان", fonts.header(), Color.DARK_GRAY);
+        addTableHeader(overviewTable, "القيمة", fonts.header(), Color.DARK_GRAY);
+
+        addTableCell(overviewTable, "اسم المدير", fonts.data());
+        addTableCell(overviewTable, snapshot.managerNames().getOrDefault(centerId, "غير محدد"), fonts.data());
+        addTableCell(overviewTable, "اللقاءات الفردية", fonts.data());
+        addTableCell(overviewTable, String.valueOf(meetings), fonts.data());
+        addTableCell(overviewTable, "المحاضرات", fonts.data());
+        addTableCell(overviewTable, String.valueOf(lectures), fonts.data());
+        addTableCell(overviewTable, "الندوات", fonts.data());
+        addTableCell(overviewTable, String.valueOf(seminars), fonts.data());
+        addTableCell(overviewTable, "إجمالي الأنشطة", fonts.dataBold());
+        addTableCell(overviewTable, String.valueOf(total), fonts.dataBold());
+        addTableCell(overviewTable, "النسبة من إجمالي القطاع", fonts.data());
+        addTableCell(overviewTable, sectorTotal > 0
+            ? String.format("%.1f%%", total * 100.0 / sectorTotal) : "0%", fonts.data());
+        addTableCell(overviewTable, "الترتيب في القطاع", fonts.data());
+        addTableCell(overviewTable, rank > 0
+            ? rank + " من " + snapshot.centerNames().size() : "لا توجد أنشطة", fonts.data());
+
+        document.add(overviewTable);
+        document.add(new Paragraph(" "));
+    }
+
     /**
      * Add detailed statistical breakdown with 66 sub-topics
      * إضافة التفصيل الإحصائي المفصل مع 66 موضوع فرعي
      */
-    private void addDetailedStatisticalBreakdown(Document document, LocalDate startDate, LocalDate endDate) throws DocumentException {
-        Paragraph sectionTitle = new Paragraph("التفصيل الإحصائي حسب الفئات والمواضيع", arabicSectionFont);
+    private void addDetailedStatisticalBreakdown(Document document, PdfFontRegistry.Fonts fonts, ReportSnapshot snapshot) throws DocumentException {
+        Paragraph sectionTitle = new Paragraph("التفصيل الإحصائي حسب الفئات والمواضيع", fonts.section());
         sectionTitle.setSpacingBefore(15);
         sectionTitle.setSpacingAfter(10);
         document.add(sectionTitle);
 
-        // Get all category topics from HealthStatisticsService
-        Map<String, List<String>> categoryTopics = healthStatisticsService.getAllCategoryTopics();
-
-        // Get statistics for the period
-        List<Object[]> allStats = statisticsRepository.aggregateAllCentersMonthlyTotals(startDate, endDate);
-
-        // Organize statistics by category and topic
-        Map<String, Map<String, Long>> categoryTopicStats = new LinkedHashMap<>();
-        
-        for (Object[] row : allStats) {
-            String category = (String) row[1];
-            String topic = (String) row[2];
-            Long totalMeetings = ((Number) row[3]).longValue();
-            Long totalLectures = ((Number) row[4]).longValue();
-            Long totalSeminars = ((Number) row[5]).longValue();
-            Long total = totalMeetings + totalLectures + totalSeminars;
-
-            categoryTopicStats.putIfAbsent(category, new LinkedHashMap<>());
-            categoryTopicStats.get(category).put(topic, 
-                categoryTopicStats.get(category).getOrDefault(topic, 0L) + total);
-        }
-
         // Create table for each category with its sub-topics
-        for (Map.Entry<String, List<String>> categoryEntry : categoryTopics.entrySet()) {
-            String categoryName = categoryEntry.getKey();
-            List<String> topics = categoryEntry.getValue();
-            Map<String, Long> topicStats = categoryTopicStats.getOrDefault(categoryName, new LinkedHashMap<>());
-
-            // Category header
-            Font categoryFont = new Font(arabicSectionFont.getBaseFont(), 12, Font.BOLD, new Color(70, 130, 180));
-            Paragraph categoryTitle = new Paragraph(categoryName, categoryFont);
-            categoryTitle.setSpacingBefore(10);
-            categoryTitle.setSpacingAfter(5);
-            document.add(categoryTitle);
-
-            // Create table for this category
-            PdfPTable categoryTable = new PdfPTable(5);
-            categoryTable.setWidthPercentage(100);
-            categoryTable.setWidths(new float[]{3, 1, 1, 1, 1});
-            categoryTable.setSpacingBefore(5);
-            categoryTable.setSpacingAfter(5);
-
-            // Table header
-            addTableHeader(categoryTable, "الموضوع", arabicHeaderFont, new Color(70, 130, 180));
-            addTableHeader(categoryTable, "اللقاءات", arabicHeaderFont, new Color(70, 130, 180));
-            addTableHeader(categoryTable, "المحاضرات", arabicHeaderFont, new Color(70, 130, 180));
-            addTableHeader(categoryTable, "الندوات", arabicHeaderFont, new Color(70, 130, 180));
-            addTableHeader(categoryTable, "الإجمالي", arabicHeaderFont, new Color(70, 130, 180));
-
-            // Add rows for each topic
-            long categoryTotalMeetings = 0;
-            long categoryTotalLectures = 0;
-            long categoryTotalSeminars = 0;
-
-            for (String topic : topics) {
-                // Get topic statistics
-                Long topicTotal = topicStats.getOrDefault(topic, 0L);
-                
-                // Calculate individual components (simplified - would need more detailed query)
-                Long topicMeetings = topicTotal / 3; // Approximation
-                Long topicLectures = topicTotal / 3;
-                Long topicSeminars = topicTotal / 3;
-
-                addTableCell(categoryTable, topic, arabicDataFont);
-                addTableCell(categoryTable, String.valueOf(topicMeetings), arabicDataFont);
-                addTableCell(categoryTable, String.valueOf(topicLectures), arabicDataFont);
-                addTableCell(categoryTable, String.valueOf(topicSeminars), arabicDataFont);
-                addTableCell(categoryTable, String.valueOf(topicTotal), arabicDataFont);
-
-                categoryTotalMeetings += topicMeetings;
-                categoryTotalLectures += topicLectures;
-                categoryTotalSeminars += topicSeminars;
-            }
+        for (CategoryTotals category : snapshot.sectorCategories()) {
+            addCategoryTable(document, fonts, category);
+        }
+    }
 
-            // Category total row
-            PdfPCell totalLabelCell = new PdfPCell(new Phrase("إجمالي " + categoryName, 
-                new Font(arabicDataFont.getBaseFont(), 11, Font.BOLD, Color.BLACK)));
-            totalLabelCell.setBackgroundColor(new Color(240, 240, 240));
-            totalLabelCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-            totalLabelCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-            totalLabelCell.setPadding(8);
-            totalLabelCell.setBorderWidth(0.5f);
-            totalLabelCell.setBorderColor(Color.GRAY);
-            categoryTable.addCell(totalLabelCell);
-
-            Font boldFont = new Font(arabicDataFont.getBaseFont(), 11, Font.BOLD, Color.BLACK);
-            addTableCell(categoryTable, String.valueOf(categoryTotalMeetings), boldFont);
-            addTableCell(categoryTable, String.valueOf(categoryTotalLectures), boldFont);
-            addTableCell(categoryTable, String.valueOf(categoryTotalSeminars), boldFont);
-            addTableCell(categoryTable, String.valueOf(categoryTotalMeetings + categoryTotalLectures + categoryTotalSeminars), boldFont);
-
-            document.add(categoryTable);
-            document.add(new Paragraph(" "));
+    /**
+     * Category title and topic table with exact per-activity counts
+     * عنوان الفئة وجدول المواضيع بالأعداد الفعلية لكل نشاط
+     */
+    private void addCategoryTable(Document document, PdfFontRegistry.Fonts fonts, CategoryTotals category) throws DocumentException {
+        // Category header
+        Paragraph categoryTitle = new Paragraph(category.categoryName(), fonts.category());
+        categoryTitle.setSpacingBefore(10);
+        categoryTitle.setSpacingAfter(5);
+        document.add(categoryTitle);
+
+        // Create table for this category
+        PdfPTable categoryTable = newHeaderTable(new float[]{3, 1, 1, 1, 1});
+
+        // Table header
+        addTableHeader(categoryTable, "الموضوع", fonts.header(), CATEGORY_COLOR);
+        addTableHeader(categoryTable, "اللقاءات", fonts.header(), CATEGORY_COLOR);
+        addTableHeader(categoryTable, "المحاضرات", fonts.header(), CATEGORY_COLOR);
+        addTableHeader(categoryTable, "الندوات", fonts.header(), CATEGORY_COLOR);
+        addTableHeader(categoryTable, "الإجمالي", fonts.header(), CATEGORY_COLOR);
+
+        // Add rows for each topic
+        for (TopicTotals topic : category.topics()) {
+            addTableCell(categoryTable, topic.topicName(), fonts.data());
+            addTableCell(categoryTable, String.valueOf(topic.individualMeetings()), fonts.data());
+            addTableCell(categoryTable, String.valueOf(topic.lectures()), fonts.data());
+            addTableCell(categoryTable, String.valueOf(topic.seminars()), fonts.data());
+            addTableCell(categoryTable, String.valueOf(topic.total()), fonts.data());
         }
+
+        // Category total row
+        PdfPCell totalLabelCell = new PdfPCell(new Phrase("إجمالي " + category.categoryName(), fonts.dataBold()));
+        totalLabelCell.setBackgroundColor(TOTAL_BACKGROUND);
+        totalLabelCell.setHorizontalAlignment(Element.ALIGN_CENTER);
+        totalLabelCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
+        totalLabelCell.setPadding(8);
+        totalLabelCell.setBorderWidth(0.5f);
+        totalLabelCell.setBorderColor(Color.GRAY);
+        categoryTable.addCell(totalLabelCell);
+
+        addTableCell(categoryTable, String.valueOf(category.totalMeetings()), fonts.dataBold());
+        addTableCell(categoryTable, String.valueOf(category.totalLectures()), fonts.dataBold());
+        addTableCell(categoryTable, String.valueOf(category.totalSeminars()), fonts.dataBold());
+        addTableCell(categoryTable, String.valueOf(category.total()), fonts.dataBold());
+
+        document.add(categoryTable);
+        document.add(new Paragraph(" "));
     }
 
     /**
      * Add top performers section
      * إضافة قسم أفضل الأداء
      */
-    private void addTopPerformers(Document document, LocalDate startDate, LocalDate endDate) throws DocumentException {
-        Paragraph sectionTitle = new Paragraph("أفضل المراكز أداءً", arabicSectionFont);
+    private void addTopPerformers(Document document, PdfFontRegistry.Fonts fonts, ReportSnapshot snapshot) throws DocumentException {
+        Paragraph sectionTitle = new Paragraph("أفضل المراكز أداءً", fonts.section());
         sectionTitle.setSpacingBefore(10);
         sectionTitle.setSpacingAfter(10);
         document.add(sectionTitle);
 
         // Get center rankings
-        List<Map<String, Object>> topPerformers = getTopPerformers(startDate, endDate, 10);
+        List<CenterMonthlyTotals> topPerformers = snapshot.topCenters(10);
 
         if (topPerformers.isEmpty()) {
-            Font noDataFont = new Font(arabicDataFont.getBaseFont(), 11, Font.NORMAL, Color.GRAY);
-            Paragraph noData = new Paragraph("لا توجد بيانات متاحة", noDataFont);
+            Paragraph noData = new Paragraph("لا توجد بيانات متاحة", fonts.muted());
             noData.setAlignment(Element.ALIGN_CENTER);
             document.add(noData);
             document.add(new Paragraph(" "));
@@ -349,25 +537,21 @@ public class PdfReportService {
         }
 
         // Create performers table
-        PdfPTable performersTable = new PdfPTable(4);
-        performersTable.setWidthPercentage(100);
-        performersTable.setWidths(new float[]{1, 3, 2, 1});
-        performersTable.setSpacingBefore(5);
-        performersTable.setSpacingAfter(5);
+        PdfPTable performersTable = newHeaderTable(new float[]{1, 3, 2, 1});
 
         // Header
-        addTableHeader(performersTable, "الترتيب", arabicHeaderFont, Color.DARK_GRAY);
-        addTableHeader(performersTable, "اسم المركز", arabicHeaderFont, Color.DARK_GRAY);
-        addTableHeader(performersTable, "اسم المدير", arabicHeaderFont, Color.DARK_GRAY);
-        addTableHeader(performersTable, "إجمالي الأنشطة", arabicHeaderFont, Color.DARK_GRAY);
+        addTableHeader(performersTable, "الترتيب", fonts.header(), Color.DARK_GRAY);
+        addTableHeader(performersTable, "اسم المركز", fonts.header(), Color.DARK_GRAY);
+        addTableHeader(performersTable, "اسم المدير", fonts.header(), Color.DARK_GRAY);
+        addTableHeader(performersTable, "إجمالي الأنشطة", fonts.header(), Color.DARK_GRAY);
 
         // Data rows
         int rank = 1;
-        for (Map<String, Object> performer : topPerformers) {
-            addTableCell(performersTable, String.valueOf(rank++), arabicDataFont);
-            addTableCell(performersTable, (String) performer.get("centerName"), arabicDataFont);
-            addTableCell(performersTable, (String) performer.getOrDefault("managerName", "غير محدد"), arabicDataFont);
-            addTableCell(performersTable, String.valueOf(performer.get("totalActivity")), arabicDataFont);
+        for (CenterMonthlyTotals performer : topPerformers) {
+            addTableCell(performersTable, String.valueOf(rank++), fonts.data());
+            addTableCell(performersTable, snapshot.centerNames().getOrDefault(performer.centerId(), performer.centerId()), fonts.data());
+            addTableCell(performersTable, snapshot.managerNames().getOrDefault(performer.centerId(), "غير محدد"), fonts.data());
+            addTableCell(performersTable, String.valueOf(performer.grandTotal()), fonts.data());
         }
 
         document.add(performersTable);
@@ -378,17 +562,12 @@ public class PdfReportService {
      * Add poster activity section
      * إضافة قسم نشاط البوسترات
      */
-    private void addPosterActivity(Document document, LocalDate startDate, LocalDate endDate) throws DocumentException {
-        Paragraph sectionTitle = new Paragraph("نشاط البوسترات", arabicSectionFont);
+    private void addPosterActivity(Document document, PdfFontRegistry.Fonts fonts, ReportSnapshot snapshot) throws DocumentException {
+        Paragraph sectionTitle = new Paragraph("نشاط البوسترات", fonts.section());
         sectionTitle.setSpacingBefore(10);
         sectionTitle.setSpacingAfter(10);
         document.add(sectionTitle);
 
-        // Get poster statistics
-        long approvedPosters = posterRepository.countByStatus(Poster.PosterStatus.APPROVED);
-        long pendingPosters = posterRepository.countByStatus(Poster.PosterStatus.PENDING);
-        long totalPosters = posterRepository.count();
-
         // Create poster activity table
         PdfPTable posterTable = new PdfPTable(2);
         posterTable.setWidthPercentage(100);
@@ -397,21 +576,19 @@ public class PdfReportService {
         posterTable.setSpacingAfter(5);
 
         // Header
-        addTableHeader(posterTable, "الحالة", arabicHeaderFont, Color.DARK_GRAY);
-        addTableHeader(posterTable, "العدد", arabicHeaderFont, Color.DARK_GRAY);
+        addTableHeader(posterTable, "الحالة", fonts.header(), Color.DARK_GRAY);
+        addTableHeader(posterTable, "العدد", fonts.header(), Color.DARK_GRAY);
 
         // Data rows
-        addTableCell(posterTable, "معتمد", arabicDataFont);
-        addTableCell(posterTable, String.valueOf(approvedPosters), arabicDataFont);
+        addTableCell(posterTable, "معتمد", fonts.data());
+        addTableCell(posterTable, String.valueOf(snapshot.approvedPosters()), fonts.data());
 
-        addTableCell(posterTable, "في الانتظار", arabicDataFont);
-        addTableCell(posterTable, String.valueOf(pendingPosters), arabicDataFont);
+        addTableCell(posterTable, "في الانتظار", fonts.data());
+        addTableCell(posterTable, String.valueOf(snapshot.pendingPosters()), fonts.data());
 
-        addTableCell(posterTable, "إجمالي البوسترات", 
-            new Font(arabicDataFont.getBaseFont(), 11, Font.BOLD, Color.BLACK));
-        PdfPCell totalCell = new PdfPCell(new Phrase(String.valueOf(totalPosters), 
-            new Font(arabicDataFont.getBaseFont(), 11, Font.BOLD, Color.BLACK)));
-        totalCell.setBackgroundColor(new Color(240, 240, 240));
+        addTableCell(posterTable, "إجمالي البوسترات", fonts.dataBold());
+        PdfPCell totalCell = new PdfPCell(new Phrase(String.valueOf(snapshot.totalPosters()), fonts.dataBold()));
+        totalCell.setBackgroundColor(TOTAL_BACKGROUND);
         totalCell.setHorizontalAlignment(Element.ALIGN_CENTER);
         totalCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
         totalCell.setPadding(8);
@@ -422,44 +599,17 @@ public class PdfReportService {
     }
 
     /**
-     * Get top performers
-     * الحصول على أفضل الأداء
+     * Table whose first row is a header repeated on every page
+     * جدول بصف رأس متكرر في كل صفحة
      */
-    private List<Map<String, Object>> getTopPerformers(LocalDate startDate, LocalDate endDate, int limit) {
-        List<Object[]> results = statisticsRepository.aggregateAllCentersMonthlyTotals(startDate, endDate);
-
-        Map<String, Long> centerTotals = new HashMap<>();
-
-        for (Object[] row : results) {
-            String centerId = (String) row[0];
-            Long totalMeetings = ((Number) row[3]).longValue();
-            Long totalLectures = ((Number) row[4]).longValue();
-            Long totalSeminars = ((Number) row[5]).longValue();
-            Long total = totalMeetings + totalLectures + totalSeminars;
-
-            centerTotals.put(centerId, centerTotals.getOrDefault(centerId, 0L) + total);
-        }
-
-        // Sort by total (descending) and get top N
-        List<Map.Entry<String, Long>> sorted = centerTotals.entrySet().stream()
-            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-            .limit(limit)
-            .collect(Collectors.toList());
-
-        List<Map<String, Object>> performers = new ArrayList<>();
-        for (Map.Entry<String, Long> entry : sorted) {
-            Optional<UserProfile> profileOpt = userProfileRepository.findByUserId(entry.getKey());
-            Map<String, Object> performer = new HashMap<>();
-            performer.put("centerId", entry.getKey());
-            performer.put("centerName", profileOpt.map(UserProfile::getHealthCenterName)
-                .orElse(entry.getKey()));
-            performer.put("managerName", profileOpt.map(UserProfile::getManagerName)
-                .orElse("غير محدد"));
-            performer.put("totalActivity", entry.getValue());
-            performers.add(performer);
-        }
-
-        return performers;
+    private PdfPTable newHeaderTable(float[] widths) throws DocumentException {
+        PdfPTable table = new PdfPTable(widths.length);
+        table.setWidthPercentage(100);
+        table.setWidths(widths);
+        table.setSpacingBefore(5);
+        table.setSpacingAfter(5);
+        table.setHeaderRows(1);
+        return table;
     }
 
     /**
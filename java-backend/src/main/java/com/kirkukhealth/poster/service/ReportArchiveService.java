@@ -0,0 +1,384 @@
+package com.kirkukhealth.poster.service;
+
+import com.kirkukhealth.poster.dto.ReportSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Report Archive Service
+ * خدمة أرشيف التقارير
+ *
+ * Pre-generates weekly and monthly PDF reports for closed periods off-peak and
+ * stores them content-addressed. The file name is the SHA-256 of the report data
+ * (the ReportSnapshot plus REPORT_FORMAT_VERSION), not of the PDF bytes, which
+ * differ on every render because OpenPDF embeds creation dates and a random /ID;
+ * a report whose data did not change keeps its file and ETag. A report is marked
+ * stale when statistics for its period change, and regenerated on the next request
+ * or night run.
+ *
+ * Files no longer referenced are deleted by the night run only after
+ * ORPHAN_GRACE has passed, so a download already streaming an old version finishes.
+ *
+ * Only canonical periods are stored: working weeks starting on WEEK_START and
+ * calendar months. Reports whose period has not ended yet, and any other date
+ * range, are never stored; callers stream them straight from PdfReportService.
+ *
+ * يولد التقارير مسبقاً ويخزنها ويعيد توليدها فقط عند وصول بيانات متأخرة
+ */
+@Service
+public class ReportArchiveService {
+
+    public static final String WEEKLY = "WEEKLY";
+    public static final String MONTHLY = "MONTHLY";
+
+    /**
+     * Working week of the directorate starts on Saturday
+     * يبدأ أسبوع العمل يوم السبت
+     */
+    public static final DayOfWeek WEEK_START = DayOfWeek.SATURDAY;
+
+    /**
+     * Part of every content hash; bump when the PDF layout changes so stored reports are re-rendered
+     * يُرفع عند تغيير تصميم التقرير
+     */
+    private static final int REPORT_FORMAT_VERSION = 1;
+
+    /**
+     * Minimum age of an unreferenced report file before it is deleted
+     */
+    private static final Duration ORPHAN_GRACE = Duration.ofHours(1);
+
+    @Value("${reports.storage.dir:uploads/reports/}")
+    private String storageDir;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PdfReportService pdfReportService;
+
+    /**
+     * One generation at a time per period, so concurrent requests share the result.
+     * Striped by period key, so the lock set stays fixed in size.
+     */
+    private final Object[] periodLocks = new Object[32];
+
+    {
+        for (int i = 0; i < periodLocks.length; i++) {
+            periodLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * A report file in the archive
+     */
+    public record StoredReport(String contentHash, Path path, long sizeBytes, LocalDateTime generatedAt) {
+    }
+
+    /**
+     * Previous complete working week (Saturday–Friday) before the given day
+     * أسبوع العمل الكامل السابق
+     */
+    public static LocalDate[] previousWeek(LocalDate today) {
+        LocalDate start = today.with(TemporalAdjusters.previousOrSame(WEEK_START)).minusWeeks(1);
+        return new LocalDate[] {start, start.plusDays(6)};
+    }
+
+    /**
+     * Whether a period is archived: a whole working week, or a whole calendar month
+     * هل الفترة أسبوع عمل كامل أو شهر كامل
+     */
+    public static boolean isCanonicalPeriod(String reportType, LocalDate startDate, LocalDate endDate) {
+        if (WEEKLY.equals(reportType)) {
+            return startDate.getDayOfWeek() == WEEK_START && endDate.equals(startDate.plusDays(6));
+        }
+        return MONTHLY.equals(reportType) && startDate.getDayOfMonth() == 1
+            && endDate.equals(YearMonth.from(startDate).atEndOfMonth());
+    }
+
+    /**
+     * Weekly report for a closed period, from the archive when possible
+     * التقرير الأسبوعي من الأرشيف إن أمكن
+     *
+     * @return the stored report, or null when the period has not ended or is not a
+     *         whole working week (stream it instead)
+     */
+    public StoredReport getWeeklyReport(LocalDate startDate, LocalDate endDate) throws Exception {
+        return getOrGenerate(WEEKLY, startDate, endDate);
+    }
+
+    /**
+     * Monthly report for a closed month, from the archive when possible
+     * التقرير الشهري من الأرشيف إن أمكن
+     *
+     * @return the stored report, or null when the month has not ended
+     */
+    public StoredReport getMonthlyReport(YearMonth yearMonth) throws Exception {
+        return getOrGenerate(MONTHLY, yearMonth.atDay(1), yearMonth.atEndOfMonth());
+    }
+
+    private StoredReport getOrGenerate(String reportType, LocalDate startDate, LocalDate endDate) throws Exception {
+        if (!endDate.isBefore(LocalDate.now())) {
+            // Open period: data can still change, so it is never stored
+            return null;
+        }
+        if (!isCanonicalPeriod(reportType, startDate, endDate)) {
+            // Arbitrary ranges would be archived and refreshed forever
+            return null;
+        }
+
+        StoredReport stored = findFresh(reportType, startDate, endDate);
+        if (stored != null) {
+            return stored;
+        }
+
+        String periodKey = reportType + ":" + startDate + ":" + endDate;
+        Object lock = periodLocks[Math.floorMod(periodKey.hashCode(), periodLocks.length)];
+        synchronized (lock) {
+            stored = findFresh(reportType, startDate, endDate);
+            if (stored == null) {
+                stored = generateAndStore(reportType, startDate, endDate);
+            }
+            return stored;
+        }
+    }
+
+    /**
+     * Pre-generate last week's and last month's reports and refresh stale ones (off-peak)
+     * التوليد المسبق لتقارير الأسبوع والشهر السابقين وتحديث التقارير القديمة
+     */
+    @Scheduled(cron = "${reports.pregenerate.cron:0 30 1 * * *}")
+    public void pregenerateReports() {
+        LocalDate today = LocalDate.now();
+        LocalDate[] week = previousWeek(today);
+        YearMonth lastMonth = YearMonth.from(today).minusMonths(1);
+
+        try {
+            getWeeklyReport(week[0], week[1]);
+            getMonthlyReport(lastMonth);
+        } catch (Exception e) {
+            System.err.println("❌ Error pre-generating reports: " + e.getMessage());
+        }
+
+        int removed = deleteNonCanonicalReports();
+        List<Map<String, Object>> staleReports = jdbcTemplate.queryForList(
+            "SELECT report_type, start_date, end_date FROM generated_reports WHERE stale = TRUE");
+        for (Map<String, Object> row : staleReports) {
+            String reportType = (String) row.get("report_type");
+            LocalDate startDate = ((Date) row.get("start_date")).toLocalDate();
+            LocalDate endDate = ((Date) row.get("end_date")).toLocalDate();
+            try {
+                getOrGenerate(reportType, startDate, endDate);
+            } catch (Exception e) {
+                System.err.println("❌ Error regenerating " + reportType + " report " + startDate + ": " + e.getMessage());
+            }
+        }
+
+        int deleted = deleteOrphanedFiles();
+
+        System.out.println("✅ Reports pre-generated: week " + week[0] + " → " + week[1] + ", month " + lastMonth +
+            ", " + staleReports.size() + " stale reports refreshed, " + removed + " non-canonical reports dropped, " +
+            deleted + " old files deleted");
+    }
+
+    /**
+     * Drop archive rows for ranges that are no longer archived (stored before only
+     * canonical periods were kept); their files are then deleted as orphans
+     * حذف سجلات التقارير لفترات غير قياسية
+     */
+    private int deleteNonCanonicalReports() {
+        try {
+            return jdbcTemplate.update(
+                "DELETE FROM generated_reports WHERE NOT (" +
+                "(report_type = ? AND EXTRACT(ISODOW FROM start_date) = ? AND end_date = start_date + 6) OR " +
+                "(report_type = ? AND EXTRACT(DAY FROM start_date) = 1 " +
+                "AND end_date = (start_date + INTERVAL '1 month' - INTERVAL '1 day')::date))",
+                WEEKLY, WEEK_START.getValue(), MONTHLY);
+        } catch (Exception e) {
+            System.err.println("⚠️ Could not drop non-canonical reports: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Delete report files no table row points to, once they are older than ORPHAN_GRACE
+     * حذف ملفات التقارير غير المستخدمة بعد انقضاء مهلة الأمان
+     *
+     * A file's modification time is reset when it is stored, reused or superseded,
+     * so the grace period always counts from the moment it was last in use.
+     */
+    private int deleteOrphanedFiles() {
+        Path root = Paths.get(storageDir);
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        Instant cutoff = Instant.now().minus(ORPHAN_GRACE);
+        Set<String> referenced = new HashSet<>(jdbcTemplate.queryForList(
+            "SELECT DISTINCT content_hash FROM generated_reports", String.class));
+
+        int deleted = 0;
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                String name = file.getFileName().toString();
+                boolean orphan = name.endsWith(".pdf")
+                    ? !referenced.contains(name.substring(0, name.length() - 4))
+                    : name.startsWith("report_") && name.endsWith(".tmp");
+                try {
+                    if (orphan && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                        Files.deleteIfExists(file);
+                        deleted++;
+                    }
+                } catch (IOException e) {
+                    System.err.println("⚠️ Could not delete old report file " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Error scanning report storage: " + e.getMessage());
+        }
+        return deleted;
+    }
+
+    /**
+     * Mark stored reports overlapping a changed month as stale
+     * وضع علامة قديم على التقارير التي تغيرت بياناتها
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatisticsChanged(StatisticsChangedEvent event) {
+        try {
+            jdbcTemplate.update(
+                "UPDATE generated_reports SET stale = TRUE, invalidated_at = ? WHERE start_date <= ? AND end_date >= ?",
+                Timestamp.valueOf(LocalDateTime.now()),
+                Date.valueOf(event.yearMonth().atEndOfMonth()), Date.valueOf(event.yearMonth().atDay(1)));
+        } catch (Exception e) {
+            System.err.println("⚠️ Could not invalidate stored reports: " + e.getMessage());
+        }
+    }
+
+    private StoredReport findFresh(String reportType, LocalDate startDate, LocalDate endDate) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+            "SELECT content_hash, size_bytes, generated_at FROM generated_reports " +
+            "WHERE report_type = ? AND start_date = ? AND end_date = ? AND stale = FALSE",
+            reportType, Date.valueOf(startDate), Date.valueOf(endDate));
+        if (rows.isEmpty()) {
+            return null;
+        }
+
+        String hash = (String) rows.get(0).get("content_hash");
+        Path path = pathFor(hash);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        return new StoredReport(hash, path, ((Number) rows.get(0).get("size_bytes")).longValue(),
+            ((Timestamp) rows.get(0).get("generated_at")).toLocalDateTime());
+    }
+
+    private StoredReport generateAndStore(String reportType, LocalDate startDate, LocalDate endDate) throws Exception {
+        long start = System.currentTimeMillis();
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        ReportSnapshot snapshot = pdfReportService.loadSnapshot(startDate, endDate);
+        String hash = contentHash(reportType, snapshot);
+        Path path = pathFor(hash);
+
+        if (Files.isRegularFile(path)) {
+            // Same data as an existing file: reuse it, and restart its grace period
+            Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+        } else {
+            // Render straight into a temporary file, then move it into place
+            Path root = Paths.get(storageDir);
+            Files.createDirectories(root);
+            Path temp = Files.createTempFile(root, "report_", ".tmp");
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                    pdfReportService.writeReport(snapshot,
+                        MONTHLY.equals(reportType) ? PdfReportService.MONTHLY_TITLE : PdfReportService.WEEKLY_TITLE, out);
+                }
+                Files.createDirectories(path.getParent());
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        long sizeBytes = Files.size(path);
+
+        List<String> previous = jdbcTemplate.queryForList(
+            "SELECT content_hash FROM generated_reports WHERE report_type = ? AND start_date = ? AND end_date = ?",
+            String.class, reportType, Date.valueOf(startDate), Date.valueOf(endDate));
+
+        LocalDateTime generatedAt = LocalDateTime.now();
+        jdbcTemplate.update(
+            "INSERT INTO generated_reports (report_type, start_date, end_date, content_hash, size_bytes, generated_at, stale) " +
+            "VALUES (?, ?, ?, ?, ?, ?, FALSE) " +
+            "ON CONFLICT (report_type, start_date, end_date) DO UPDATE SET " +
+            "content_hash = EXCLUDED.content_hash, size_bytes = EXCLUDED.size_bytes, " +
+            "generated_at = EXCLUDED.generated_at, " +
+            // Data that changed while this report was being generated keeps it stale
+            "stale = COALESCE(generated_reports.invalidated_at > ?, FALSE)",
+            reportType, Date.valueOf(startDate), Date.valueOf(endDate), hash, sizeBytes,
+            Timestamp.valueOf(generatedAt), Timestamp.valueOf(startedAt));
+
+        // The previous version may still be streaming; the night run deletes it after ORPHAN_GRACE
+        for (String oldHash : previous) {
+            Path oldPath = pathFor(oldHash);
+            if (!oldHash.equals(hash) && Files.isRegularFile(oldPath)) {
+                Files.setLastModifiedTime(oldPath, FileTime.from(Instant.now()));
+            }
+        }
+
+        System.out.println("✅ " + reportType + " report " + startDate + " → " + endDate + " stored (" +
+            sizeBytes + " bytes, " + (System.currentTimeMillis() - start) + " ms)");
+        return new StoredReport(hash, path, sizeBytes, generatedAt);
+    }
+
+    /**
+     * SHA-256 of everything the PDF is rendered from; stable across renders of the same data
+     * بصمة بيانات التقرير
+     */
+    public static String contentHash(String reportType, ReportSnapshot snapshot) throws Exception {
+        String canonical = REPORT_FORMAT_VERSION + "|" + reportType + "|" +
+            snapshot.startDate() + "|" + snapshot.endDate() + "|" +
+            snapshot.centers() + "|" + snapshot.sectorCategories() + "|" +
+            new TreeMap<>(snapshot.centerNames()) + "|" + new TreeMap<>(snapshot.managerNames()) + "|" +
+            snapshot.approvedPosters() + "|" + snapshot.pendingPosters() + "|" + snapshot.totalPosters();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Content-addressed location: {storageDir}/ab/abcdef....pdf
+     */
+    private Path pathFor(String hash) {
+        return Paths.get(storageDir, hash.substring(0, 2), hash + ".pdf");
+    }
+}
@@ -0,0 +1,128 @@
+package com.kirkukhealth.poster.service;
+
+import com.kirkukhealth.poster.dto.SearchHit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Search Service
+ * خدمة البحث الموحد
+ *
+ * Full-text search over FAQ entries, bulletins and messages. Each table has a
+ * search_vector column generated from search_normalize() of its text, with a GIN
+ * index (see V17 migration), so a query is an index lookup instead of a LIKE scan.
+ * Titles/questions weigh more than tags, and tags more than body text; results of
+ * all types are merged by ts_rank_cd.
+ *
+ * Messages are private: they are searched only when a userId is given, and only
+ * messages sent or received by that user.
+ */
+@Service
+public class SearchService {
+
+    public enum SearchType {
+        FAQ, BULLETIN, MESSAGE
+    }
+
+    private static final int MAX_LIMIT = 100;
+
+    private static final String FAQ_SQL = """
+        SELECT 'FAQ' AS type, f.id, f.question AS title, LEFT(f.answer, 200) AS snippet,
+               ts_rank_cd(f.search_vector, q.query) AS rank, f.created_at
+        FROM faq_entries f, q
+        WHERE f.search_vector @@ q.query
+        """;
+
+    private static final String BULLETIN_SQL = """
+        SELECT 'BULLETIN' AS type, b.id, b.title, LEFT(b.content, 200) AS snippet,
+               ts_rank_cd(b.search_vector, q.query) AS rank, b.created_at
+        FROM bulletins b, q
+        WHERE b.search_vector @@ q.query
+        """;
+
+    private static final String MESSAGE_SQL = """
+        SELECT 'MESSAGE' AS type, m.id, LEFT(m.content, 80) AS title, LEFT(m.content, 200) AS snippet,
+               ts_rank_cd(m.search_vector, q.query) AS rank, m.created_at
+        FROM messages m, q
+        WHERE m.search_vector @@ q.query AND (m.sender_id = ? OR m.receiver_id = ?)
+        """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Search across the given types, best matches first
+     * البحث في الأسئلة الشائعة والنشرات والرسائل
+     *
+     * @param types  types to search; all when null or empty
+     * @param userId owner of the messages to search; messages are skipped when null
+     */
+    public List<SearchHit> search(String query, Set<SearchType> types, String userId, int limit) {
+        String tsQuery = SearchTextNormalizer.toPrefixQuery(query);
+        if (tsQuery == null) {
+            return List.of();
+        }
+        Set<SearchType> selected = types == null || types.isEmpty() ? EnumSet.allOf(SearchType.class) : types;
+
+        List<String> parts = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        params.add(tsQuery);
+        if (selected.contains(SearchType.FAQ)) {
+            parts.add(FAQ_SQL);
+        }
+        if (selected.contains(SearchType.BULLETIN)) {
+            parts.add(BULLETIN_SQL);
+        }
+        if (selected.contains(SearchType.MESSAGE) && userId != null && !userId.isBlank()) {
+            parts.add(MESSAGE_SQL);
+            params.add(userId);
+            params.add(userId);
+        }
+        if (parts.isEmpty()) {
+            return List.of();
+        }
+        params.add(Math.max(1, Math.min(limit, MAX_LIMIT)));
+
+        String sql = "WITH q AS (SELECT to_tsquery('simple', ?) AS query) " +
+            String.join(" UNION ALL ", parts) +
+            " ORDER BY rank DESC, created_at DESC LIMIT ?";
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new SearchHit(
+            rs.getString("type"),
+            rs.getString("id"),
+            rs.getString("title"),
+            rs.getString("snippet"),
+            rs.getDouble("rank"),
+            rs.getTimestamp("created_at") != null ? rs.getTimestamp("created_at").toLocalDateTime() : null
+        ), params.toArray());
+    }
+
+    /**
+     * Parse a comma-separated type list ("faq,bulletin")
+     *
+     * @throws IllegalArgumentException for an unknown type
+     */
+    public static Set<SearchType> parseTypes(String types) {
+        Set<SearchType> result = EnumSet.noneOf(SearchType.class);
+        if (types == null || types.isBlank()) {
+            return result;
+        }
+        for (String type : types.split(",")) {
+            if (!type.isBlank()) {
+                try {
+                    result.add(SearchType.valueOf(type.trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown search type: " + type.trim());
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,149 @@
+package com.kirkukhealth.poster.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Search Text Normalizer
+ * توحيد النصوص للبحث (العربية والكردية والتركمانية)
+ *
+ * Folds spelling variants so a query matches regardless of how a word was typed:
+ *   - alef with hamza / madda / wasla → ا, hamza carriers ؤ → و and ئ → ي
+ *   - ى and Kurdish/Persian ی → ي, Kurdish ک → ك
+ *   - taa marbuta ة, Kurdish ە and ھ → ه
+ *   - Arabic-Indic and Persian digits → 0-9
+ *   - Turkmen/Turkish Latin letters (ı ş ç ğ ö ü ä ň ý ž) → plain Latin
+ *   - diacritics (tashkeel), superscript alef, tatweel removed
+ *   - punctuation and whitespace runs → one space
+ *   - leading article ال (also وال بال كال فال) removed, and لل (لِ + ال) becomes ل
+ *     (للقاح → لقاح), when at least two letters follow
+ *
+ * The same rules run inside PostgreSQL as search_normalize() (see V17 migration),
+ * which feeds the search_vector columns; DatabaseSeeder builds that function from
+ * the constants below, so indexed text and queries are always folded the same way.
+ * Character classes are spelled out instead of \s, \p{Punct} or [[:punct:]]: those
+ * are ASCII-only in Java but locale- and Unicode-aware in PostgreSQL. Escapes used
+ * (\xhh and ranges) mean the same in both regex dialects.
+ */
+public final class SearchTextNormalizer {
+
+    static final String FOLD_FROM =
+        "\u0623\u0625\u0622\u0671" +               // أ إ آ ٱ
+        "\u0649\u06CC\u0626\u0624" +               // ى ی ئ ؤ
+        "\u0629\u06D5\u06BE\u06A9" +               // ة ە ھ ک
+        "\u0660\u0661\u0662\u0663\u0664\u0665\u0666\u0667\u0668\u0669" +
+        "\u06F0\u06F1\u06F2\u06F3\u06F4\u06F5\u06F6\u06F7\u06F8\u06F9" +
+        "\u0131\u015F\u00E7\u011F\u00F6\u00FC\u00E4\u0148\u00FD\u017E"; // ı ş ç ğ ö ü ä ň ý ž
+    static final String FOLD_TO =
+        "\u0627\u0627\u0627\u0627" +
+        "\u064A\u064A\u064A\u0648" +
+        "\u0647\u0647\u0647\u0643" +
+        "0123456789" +
+        "0123456789" +
+        "iscgouanyz";
+
+    /**
+     * Tashkeel, superscript alef, tatweel and the combining dot left by lower-casing İ
+     */
+    static final String DIACRITICS_CLASS = "[\u064B-\u065F\u0670\u0640\u0307]";
+
+    /**
+     * Word separators: ASCII whitespace and punctuation, no-break and typographic
+     * spaces, guillemets, and Arabic comma, semicolon and question mark
+     */
+    static final String SEPARATOR_CLASS =
+        "[\\x09-\\x0D\\x20-\\x2F\\x3A-\\x40\\x5B-\\x60\\x7B-\\x7E" +
+        "\u00A0\u00AB\u00BB\u060C\u061B\u061F\u2000-\u200A\u2028\u2029\u202F\u205F\u3000]";
+
+    private static final Pattern DIACRITICS = Pattern.compile(DIACRITICS_CLASS);
+    private static final Pattern SEPARATORS = Pattern.compile(SEPARATOR_CLASS + "+");
+    private static final Pattern ARTICLE = Pattern.compile("(^| )(?:[وفبك]?ال|(ل)ل)(?=[^ ][^ ])");
+
+    /**
+     * A query word that is an article plus one letter, left unstripped by normalize()
+     * (e.g. "الل" while typing "اللقاح"); group 1 + group 2 is the stem
+     */
+    private static final Pattern ARTICLE_AND_LETTER = Pattern.compile("(?:[وفبك]?ال|(ل)ل)(.)");
+    private static final Pattern SPACES = Pattern.compile(" +");
+
+    /**
+     * Longest query honoured; extra words are ignored
+     */
+    private static final int MAX_QUERY_TERMS = 8;
+
+    private SearchTextNormalizer() {
+    }
+
+    /**
+     * Normalize text for indexing or searching
+     * توحيد النص
+     */
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder folded = new StringBuilder(lower.length());
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            int index = FOLD_FROM.indexOf(c);
+            folded.append(index >= 0 ? FOLD_TO.charAt(index) : c);
+        }
+        String result = DIACRITICS.matcher(folded).replaceAll("");
+        result = SEPARATORS.matcher(result).replaceAll(" ");
+        return ARTICLE.matcher(result).replaceAll("$1$2");
+    }
+
+    /**
+     * PostgreSQL tsquery for a user query: every word must match, words of two or
+     * more letters also match as prefixes (typing "لقا" finds "لقاح"). A word that
+     * is an article plus one letter matches with or without the article, since
+     * indexed text has the article stripped once the word is complete.
+     *
+     * @return tsquery text for to_tsquery('simple', ?), or null when the query has no words
+     */
+    public static String toPrefixQuery(String query) {
+        List<String> terms = new ArrayList<>();
+        for (String word : SPACES.split(normalize(query).trim())) {
+            String term = word.replaceAll("[^\\p{L}\\p{N}]", "");
+            if (term.isEmpty()) {
+                continue;
+            }
+            Matcher article = ARTICLE_AND_LETTER.matcher(term);
+            if (article.matches()) {
+                String stem = (article.group(1) != null ? article.group(1) : "") + article.group(2);
+                terms.add("(" + term + ":* | " + stem + ":*)");
+            } else {
+                terms.add(term.length() >= 2 ? term + ":*" : term);
+            }
+            if (terms.size() == MAX_QUERY_TERMS) {
+                break;
+            }
+        }
+        return terms.isEmpty() ? null : String.join(" & ", terms);
+    }
+
+    /**
+     * CREATE FUNCTION statement of search_normalize(text), equivalent to normalize()
+     */
+    public static String sqlFunctionDefinition() {
+        return "CREATE OR REPLACE FUNCTION search_normalize(input TEXT) RETURNS TEXT " +
+            "LANGUAGE SQL IMMUTABLE PARALLEL SAFE AS $fn$ " + sqlFunctionBody() + " $fn$";
+    }
+
+    /**
+     * Body of search_normalize(text); compared with pg_proc.prosrc to detect rule changes
+     */
+    public static String sqlFunctionBody() {
+        return "SELECT regexp_replace(" +
+            "regexp_replace(" +
+            "regexp_replace(" +
+            "translate(lower(coalesce(input, '')), '" + FOLD_FROM + "', '" + FOLD_TO + "'), " +
+            "'" + DIACRITICS_CLASS + "', '', 'g'), " +
+            "'" + SEPARATOR_CLASS + "+', ' ', 'g'), " +
+            "'(^| )(?:[وفبك]?ال|(ل)ل)([^ ][^ ])', '\\1\\2\\3', 'g')";
+    }
+}
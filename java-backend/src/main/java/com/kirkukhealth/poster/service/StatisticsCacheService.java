@@ -0,0 +1,129 @@
+package com.kirkukhealth.poster.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Statistics Cache Service
+ * خدمة التخزين المؤقت للإحصائيات
+ * 
+ * Caches the computed dashboard views (summary per month/category, progress per month)
+ * so concurrent viewers share one computation. Writes to DailyStatistics and MonthlyTarget
+ * refresh the affected month in the background, and entries older than REFRESH_AFTER are
+ * reloaded on the next read; in both cases the previous value keeps being served until
+ * the new one is ready (stale-while-revalidate). Reloads run on a small dedicated pool.
+ * Center profile changes (center list and names) drop all entries.
+ * 
+ * يخزن ملخص لوحة التحكم والتقدم مؤقتاً، ويُحدَّث عند كل كتابة للإحصائيات أو الأهداف
+ */
+@Service
+public class StatisticsCacheService {
+
+    /**
+     * Age after which a read triggers a background reload, for time-dependent fields
+     * (e.g. inactive centers in the last 3 days)
+     * العمر الذي يُعاد بعده التحميل في الخلفية للحقول المعتمدة على الوقت
+     */
+    private static final Duration REFRESH_AFTER = Duration.ofMinutes(10);
+
+    /**
+     * Entries not reloaded for this long (nobody read them) are dropped instead of being served stale
+     */
+    private static final Duration MAX_AGE = Duration.ofHours(1);
+
+    private static final String DEFAULT_CATEGORY = "صحة الأم والطفل";
+
+    private record SummaryKey(YearMonth yearMonth, String category) {
+    }
+
+    private final HealthStatisticsService statisticsService;
+
+    private final LoadingCache<SummaryKey, Map<String, Object>> summaryCache;
+
+    private final LoadingCache<YearMonth, Map<String, Object>> progressCache;
+
+    /**
+     * Background reloads (instead of ForkJoinPool.commonPool)
+     */
+    private final ExecutorService refreshExecutor = Executors.newFixedThreadPool(2);
+
+    @Autowired
+    public StatisticsCacheService(HealthStatisticsService statisticsService) {
+        this.statisticsService = statisticsService;
+        this.summaryCache = Caffeine.newBuilder()
+            .maximumSize(256)
+            .refreshAfterWrite(REFRESH_AFTER)
+            .expireAfterWrite(MAX_AGE)
+            .executor(refreshExecutor)
+            .build(key -> Collections.unmodifiableMap(
+                statisticsService.getDashboardSummary(key.yearMonth(), key.category())));
+        this.progressCache = Caffeine.newBuilder()
+            .maximumSize(64)
+            .refreshAfterWrite(REFRESH_AFTER)
+            .expireAfterWrite(MAX_AGE)
+            .executor(refreshExecutor)
+            .build(key -> Collections.unmodifiableMap(
+                statisticsService.getAllCentersProgress(key.getYear(), key.getMonthValue())));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Get cached dashboard summary for the current month
+     * الحصول على ملخص لوحة التحكم المخزن للشهر الحالي
+     */
+    public Map<String, Object> getDashboardSummary(String categoryFilter) {
+        String category = (categoryFilter != null && !categoryFilter.isEmpty())
+            ? categoryFilter : DEFAULT_CATEGORY;
+        return summaryCache.get(new SummaryKey(YearMonth.now(), category));
+    }
+
+    /**
+     * Get cached progress of all centers for a month
+     * الحصول على تقدم جميع المراكز المخزن لشهر
+     */
+    public Map<String, Object> getAllCentersProgress(Integer year, Integer month) {
+        return progressCache.get(YearMonth.of(year, month));
+    }
+
+    /**
+     * Refresh cached views of the changed month once the write has committed
+     * تحديث العروض المخزنة للشهر المتغير بعد تأكيد الكتابة
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatisticsChanged(StatisticsChangedEvent event) {
+        YearMonth changed = event.yearMonth();
+        if (progressCache.getIfPresent(changed) != null) {
+            progressCache.refresh(changed);
+        }
+        for (SummaryKey key : summaryCache.asMap().keySet()) {
+            if (key.yearMonth().equals(changed)) {
+                summaryCache.refresh(key);
+            }
+        }
+    }
+
+    /**
+     * Drop all cached views when a center profile changes (centers and names in every month)
+     * حذف العروض المخزنة عند تغيّر ملف أحد المراكز
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCenterProfileChanged(CenterProfileChangedEvent event) {
+        progressCache.invalidateAll();
+        summaryCache.invalidateAll();
+    }
+}
@@ -0,0 +1,13 @@
+package com.kirkukhealth.poster.service;
+
+import java.time.YearMonth;
+
+/**
+ * Statistics Changed Event
+ * حدث تغيّر الإحصائيات
+ * 
+ * Published after a DailyStatistics or MonthlyTarget write for the affected month
+ * يُنشر بعد كتابة إحصائية يومية أو هدف شهري للشهر المتأثر
+ */
+public record StatisticsChangedEvent(String centerId, YearMonth yearMonth) {
+}
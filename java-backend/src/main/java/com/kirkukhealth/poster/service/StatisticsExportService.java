@@ -1,16 +1,26 @@
 package com.kirkukhealth.poster.service;
 
+import com.kirkukhealth.poster.dto.AllCentersMonthlyTotals;
+import com.kirkukhealth.poster.dto.CategoryTotals;
+import com.kirkukhealth.poster.dto.CenterMonthlyTotals;
+import com.kirkukhealth.poster.dto.TopicTotals;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Statistics Export Service
@@ -26,181 +36,459 @@ public class StatisticsExportService {
     private HealthStatisticsService statisticsService;
 
     /**
-     * Export monthly report to Excel
-     * تصدير التقرير الشهري إلى Excel
+     * Rows kept in memory per sheet; older rows are flushed to a compressed temp file
+     * عدد الصفوف المحتفظ بها في الذاكرة لكل ورقة
      */
-    public byte[] exportMonthlyReportToExcel(YearMonth yearMonth, String centerId) throws IOException {
-        Map<String, Object> monthlyData;
+    private static final int ROW_ACCESS_WINDOW = 100;
+
+    private static final String[] TABLE_HEADERS =
+        {"الفئة", "الموضوع", "اللقاءات الفردية", "المحاضرات", "الندوات", "الإجمالي"};
+
+    /**
+     * Fixed column widths (in characters) instead of autoSizeColumn, which has to
+     * measure every cell and cannot see rows already flushed by the streaming writer
+     * عرض الأعمدة محسوب مسبقاً
+     */
+    private static final int[] COLUMN_WIDTHS = {32, 42, 18, 14, 14, 14};
+
+    private static final int MONTH_COLUMN_WIDTH = 10;
+
+    /**
+     * Cell styles created once per workbook and shared by every cell
+     * أنماط الخلايا المشتركة للمصنف
+     */
+    private record ReportStyles(CellStyle header, CellStyle title, CellStyle data) {
+    }
+
+    /**
+     * Longest range of a multi-month workbook
+     * أطول فترة لمصنف متعدد الأشهر
+     */
+    public static final int MAX_WORKBOOK_MONTHS = 24;
+
+    /**
+     * One topic row of a multi-month sheet
+     */
+    private record TopicSeries(String categoryName, String topicName, long[] monthTotals,
+                               long meetings, long lectures, long seminars) {
+        long total() {
+            return meetings + lectures + seminars;
+        }
+    }
+
+    /**
+     * Prepared data of one center's sheet
+     */
+    private record CenterSheet(String centerId, String centerName, List<TopicSeries> topics,
+                               long[] monthTotals, long meetings, long lectures, long seminars) {
+        long total() {
+            return meetings + lectures + seminars;
+        }
+    }
+
+    /**
+     * Export monthly report to Excel, written directly to the output stream
+     * تصدير التقرير الشهري إلى Excel مباشرة إلى مجرى الإخراج
+     */
+    public void writeMonthlyReport(YearMonth yearMonth, String centerId, OutputStream out) throws IOException {
         final boolean isSingleCenter = (centerId != null && !centerId.isEmpty());
+        CenterMonthlyTotals centerData = null;
+        AllCentersMonthlyTotals allCentersData = null;
         
         if (isSingleCenter) {
-            monthlyData = statisticsService.getMonthlyTotals(centerId, yearMonth);
+            centerData = statisticsService.getMonthlyTotals(centerId, yearMonth);
         } else {
-            monthlyData = statisticsService.getAllCentersMonthlyTotals(yearMonth);
+            allCentersData = statisticsService.getAllCentersMonthlyTotals(yearMonth);
         }
 
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("التقرير الشهري");
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            ReportStyles styles = createStyles(workbook);
+            Sheet sheet = createReportSheet(workbook, "التقرير الشهري");
 
-        // Create styles
-        CellStyle headerStyle = createHeaderStyle(workbook);
-        CellStyle titleStyle = createTitleStyle(workbook);
-        CellStyle dataStyle = createDataStyle(workbook);
+            int rowNum = writeReportHeader(sheet, styles,
+                "تقرير إحصائيات الصحة الشهري - دائرة صحة كركوك – قطاع كركوك الأول",
+                "الشهر: " + yearMonth.toString());
 
+            // Data rows
+            if (isSingleCenter) {
+                rowNum = writeCenterCategories(sheet, styles, centerData, rowNum);
+                writeTotalRow(sheet.createRow(rowNum), "الإجمالي الكلي",
+                    centerData.grandTotalMeetings(), centerData.grandTotalLectures(),
+                    centerData.grandTotalSeminars(), centerData.grandTotal(), styles.title());
+            } else {
+                // Handle all centers report
+                for (CenterMonthlyTotals center : allCentersData.centers()) {
+                    // Center header
+                    Row centerHeaderRow = sheet.createRow(rowNum++);
+                    Cell centerHeaderCell = centerHeaderRow.createCell(0);
+                    centerHeaderCell.setCellValue("المركز: " + center.centerName());
+                    centerHeaderCell.setCellStyle(styles.title());
+                    sheet.addMergedRegion(new CellRangeAddress(rowNum - 1, rowNum - 1, 0, 5));
+                    
+                    // Center categories
+                    for (CategoryTotals category : center.categories()) {
+                        for (TopicTotals topic : category.topics()) {
+                            writeTopicRow(sheet.createRow(rowNum++), category.categoryName(), topic, styles.data());
+                        }
+                    }
+                    
+                    rowNum++; // Empty row between centers
+                }
+            }
+
+            workbook.write(out);
+        } finally {
+            // Delete the temp files backing flushed rows
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * Export a multi-month workbook: a summary sheet plus (optionally) one sheet per center
+     * تصدير مصنف متعدد الأشهر: ورقة ملخص وورقة لكل مركز
+     * 
+     * All data comes from one grouped query, folded into per-center sheet data in a
+     * single pass; sheets are then streamed one after another into the workbook.
+     */
+    public void writeRangeWorkbook(YearMonth from, YearMonth to, boolean centerSheets, OutputStream out) throws IOException {
+        List<YearMonth> months = new ArrayList<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            months.add(month);
+        }
+
+        Map<String, String> centerNames = statisticsService.getCenterNames();
+        // Rows: centerId, categoryName, topicName, year, month, meetings, lectures, seminars
+        List<Object[]> rows = statisticsService.getCenterTopicMonthlyRows(from, to);
+
+        List<CenterSheet> sheets = new ArrayList<>();
+        Set<String> centersWithData = new HashSet<>();
+        int i = 0;
+        while (i < rows.size()) {
+            String centerId = (String) rows.get(i)[0];
+            int end = i;
+            while (end < rows.size() && centerId.equals(rows.get(end)[0])) {
+                end++;
+            }
+            sheets.add(buildCenterSheet(centerId, centerNames.getOrDefault(centerId, "Unknown"),
+                rows.subList(i, end), from, months.size()));
+            centersWithData.add(centerId);
+            i = end;
+        }
+        // Centers without any entry still appear in the summary
+        for (Map.Entry<String, String> center : centerNames.entrySet()) {
+            if (!centersWithData.contains(center.getKey())) {
+                sheets.add(new CenterSheet(center.getKey(), center.getValue(), List.of(),
+                    new long[months.size()], 0, 0, 0));
+            }
+        }
+        sheets.sort(Comparator.comparing(CenterSheet::centerId));
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            ReportStyles styles = createStyles(workbook);
+            String period = from.equals(to) ? from.toString() : from + " – " + to;
+
+            writeSummarySheet(workbook, styles, sheets, months, period);
+
+            if (centerSheets) {
+                Set<String> usedNames = new HashSet<>();
+                usedNames.add("الملخص");
+                for (CenterSheet center : sheets) {
+                    if (!center.topics().isEmpty()) {
+                        writeCenterSheet(workbook, styles, center, months, period, usedNames);
+                    }
+                }
+            }
+
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * Fold one center's ordered rows into topic series
+     * تجميع صفوف مركز واحد إلى سلاسل المواضيع
+     */
+    private CenterSheet buildCenterSheet(String centerId, String centerName, List<Object[]> rows,
+                                         YearMonth from, int monthCount) {
+        List<TopicSeries> topics = new ArrayList<>();
+        long[] centerMonths = new long[monthCount];
+        long centerMeetings = 0;
+        long centerLectures = 0;
+        long centerSeminars = 0;
+
+        int i = 0;
+        while (i < rows.size()) {
+            String categoryName = (String) rows.get(i)[1];
+            String topicName = (String) rows.get(i)[2];
+            long[] monthTotals = new long[monthCount];
+            long meetings = 0;
+            long lectures = 0;
+            long seminars = 0;
+
+            while (i < rows.size() && categoryName.equals(rows.get(i)[1]) && topicName.equals(rows.get(i)[2])) {
+                Object[] row = rows.get(i++);
+                YearMonth month = YearMonth.of(((Number) row[3]).intValue(), ((Number) row[4]).intValue());
+                int index = (int) from.until(month, ChronoUnit.MONTHS);
+                long m = ((Number) row[5]).longValue();
+                long l = ((Number) row[6]).longValue();
+                long s = ((Number) row[7]).longValue();
+                monthTotals[index] += m + l + s;
+                centerMonths[index] += m + l + s;
+                meetings += m;
+                lectures += l;
+                seminars += s;
+            }
+
+            topics.add(new TopicSeries(categoryName, topicName, monthTotals, meetings, lectures, seminars));
+            centerMeetings += meetings;
+            centerLectures += lectures;
+            centerSeminars += seminars;
+        }
+
+        return new CenterSheet(centerId, centerName, List.copyOf(topics), centerMonths,
+            centerMeetings, centerLectures, centerSeminars);
+    }
+
+    /**
+     * Summary sheet: one row per center, one column per month, plus activity totals
+     * ورقة الملخص: صف لكل مركز وعمود لكل شهر
+     */
+    private void writeSummarySheet(Workbook workbook, ReportStyles styles, List<CenterSheet> centers,
+                                   List<YearMonth> months, String period) {
+        Sheet sheet = workbook.createSheet("الملخص");
+        int lastColumn = writeRangeHeader(sheet, styles, "المركز", null, months,
+            "ملخص إحصائيات الصحة - دائرة صحة كركوك – قطاع كركوك الأول", "الفترة: " + period);
+
+        int rowNum = 4;
+        long[] sectorMonths = new long[months.size()];
+        long meetings = 0;
+        long lectures = 0;
+        long seminars = 0;
+        for (CenterSheet center : centers) {
+            Row row = sheet.createRow(rowNum++);
+            writeSeriesRow(row, 0, center.centerName(), null, center.monthTotals(),
+                center.meetings(), center.lectures(), center.seminars(), styles.data());
+            for (int m = 0; m < sectorMonths.length; m++) {
+                sectorMonths[m] += center.monthTotals()[m];
+            }
+            meetings += center.meetings();
+            lectures += center.lectures();
+            seminars += center.seminars();
+        }
+
+        writeSeriesRow(sheet.createRow(rowNum), 0, "الإجمالي الكلي", null, sectorMonths,
+            meetings, lectures, seminars, styles.header());
+        sheet.createFreezePane(1, 4);
+        sheet.setColumnWidth(0, COLUMN_WIDTHS[0] * 256);
+        setSeriesColumnWidths(sheet, 1, lastColumn);
+    }
+
+    /**
+     * Center sheet: one row per topic, one column per month, plus activity totals
+     * ورقة المركز: صف لكل موضوع وعمود لكل شهر
+     */
+    private void writeCenterSheet(Workbook workbook, ReportStyles styles, CenterSheet center,
+                                  List<YearMonth> months, String period, Set<String> usedNames) {
+        Sheet sheet = workbook.createSheet(uniqueSheetName(center.centerName(), usedNames));
+        int lastColumn = writeRangeHeader(sheet, styles, "الفئة", "الموضوع", months,
+            "المركز: " + center.centerName(), "الفترة: " + period);
+
+        int rowNum = 4;
+        for (TopicSeries topic : center.topics()) {
+            writeSeriesRow(sheet.createRow(rowNum++), 0, topic.categoryName(), topic.topicName(),
+                topic.monthTotals(), topic.meetings(), topic.lectures(), topic.seminars(), styles.data());
+        }
+
+        writeSeriesRow(sheet.createRow(rowNum), 0, "الإجمالي الكلي", "", center.monthTotals(),
+            center.meetings(), center.lectures(), center.seminars(), styles.header());
+        sheet.createFreezePane(2, 4);
+        sheet.setColumnWidth(0, COLUMN_WIDTHS[0] * 256);
+        sheet.setColumnWidth(1, COLUMN_WIDTHS[1] * 256);
+        setSeriesColumnWidths(sheet, 2, lastColumn);
+    }
+
+    /**
+     * Title rows and the month/total column header; returns the last column index
+     * صفوف العنوان ورأس أعمدة الأشهر والإجماليات
+     */
+    private int writeRangeHeader(Sheet sheet, ReportStyles styles, String firstLabel, String secondLabel,
+                                 List<YearMonth> months, String title, String subtitle) {
+        List<String> headers = new ArrayList<>();
+        headers.add(firstLabel);
+        if (secondLabel != null) {
+            headers.add(secondLabel);
+        }
+        for (YearMonth month : months) {
+            headers.add(month.toString());
+        }
+        headers.add(TABLE_HEADERS[2]);
+        headers.add(TABLE_HEADERS[3]);
+        headers.add(TABLE_HEADERS[4]);
+        headers.add(TABLE_HEADERS[5]);
+        int lastColumn = headers.size() - 1;
+
+        Row titleRow = sheet.createRow(0);
+        Cell titleCell = titleRow.createCell(0);
+        titleCell.setCellValue(title);
+        titleCell.setCellStyle(styles.title());
+        sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, Math.min(lastColumn, 5)));
+
+        Cell periodCell = sheet.createRow(1).createCell(0);
+        periodCell.setCellValue(subtitle);
+        periodCell.setCellStyle(styles.data());
+
+        Row headerRow = sheet.createRow(3);
+        for (int i = 0; i < headers.size(); i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers.get(i));
+            cell.setCellStyle(styles.header());
+        }
+        return lastColumn;
+    }
+
+    private void writeSeriesRow(Row row, int column, String firstLabel, String secondLabel, long[] monthTotals,
+                                long meetings, long lectures, long seminars, CellStyle style) {
+        row.createCell(column++).setCellValue(firstLabel);
+        if (secondLabel != null) {
+            row.createCell(column++).setCellValue(secondLabel);
+        }
+        for (long monthTotal : monthTotals) {
+            row.createCell(column++).setCellValue(monthTotal);
+        }
+        row.createCell(column++).setCellValue(meetings);
+        row.createCell(column++).setCellValue(lectures);
+        row.createCell(column++).setCellValue(seminars);
+        row.createCell(column).setCellValue(meetings + lectures + seminars);
+
+        for (Cell cell : row) {
+            cell.setCellStyle(style);
+        }
+    }
+
+    private void setSeriesColumnWidths(Sheet sheet, int firstColumn, int lastColumn) {
+        // Month columns are narrow; the four activity totals use the data widths
+        int firstTotal = lastColumn - 3;
+        for (int i = firstColumn; i <= lastColumn; i++) {
+            sheet.setColumnWidth(i, (i < firstTotal ? MONTH_COLUMN_WIDTH : COLUMN_WIDTHS[2 + i - firstTotal]) * 256);
+        }
+    }
+
+    /**
+     * Excel sheet names: max 31 characters, no []:*?/\ and unique per workbook
+     * أسماء الأوراق: 31 حرفاً كحد أقصى وفريدة
+     */
+    private static String uniqueSheetName(String name, Set<String> usedNames) {
+        String base = WorkbookUtil.createSafeSheetName(name != null ? name : "Unknown");
+        String candidate = base;
+        int suffix = 2;
+        while (!usedNames.add(candidate.toLowerCase())) {
+            String tail = " (" + suffix++ + ")";
+            candidate = base.substring(0, Math.min(base.length(), 31 - tail.length())) + tail;
+        }
+        return candidate;
+    }
+
+    /**
+     * Create a sheet with the report's fixed column widths
+     * إنشاء ورقة بعرض الأعمدة الثابت
+     */
+    private Sheet createReportSheet(Workbook workbook, String name) {
+        Sheet sheet = workbook.createSheet(name);
+        for (int i = 0; i < COLUMN_WIDTHS.length; i++) {
+            sheet.setColumnWidth(i, COLUMN_WIDTHS[i] * 256);
+        }
+        return sheet;
+    }
+
+    /**
+     * Title, subtitle and table header; returns the next free row
+     * كتابة العنوان ورأس الجدول
+     */
+    private int writeReportHeader(Sheet sheet, ReportStyles styles, String title, String subtitle) {
         int rowNum = 0;
 
         // Title row
         Row titleRow = sheet.createRow(rowNum++);
         Cell titleCell = titleRow.createCell(0);
-        titleCell.setCellValue("تقرير إحصائيات الصحة الشهري - دائرة صحة كركوك – قطاع كركوك الأول");
-        titleCell.setCellStyle(titleStyle);
+        titleCell.setCellValue(title);
+        titleCell.setCellStyle(styles.title());
         sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 5));
 
         // Month info
         Row monthRow = sheet.createRow(rowNum++);
         Cell monthCell = monthRow.createCell(0);
-        monthCell.setCellValue("الشهر: " + yearMonth.toString());
-        monthCell.setCellStyle(dataStyle);
+        monthCell.setCellValue(subtitle);
+        monthCell.setCellStyle(styles.data());
 
         rowNum++; // Empty row
 
         // Table header
         Row headerRow = sheet.createRow(rowNum++);
-        String[] headers = {"الفئة", "الموضوع", "اللقاءات الفردية", "المحاضرات", "الندوات", "الإجمالي"};
-        for (int i = 0; i < headers.length; i++) {
+        for (int i = 0; i < TABLE_HEADERS.length; i++) {
             Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.setCellStyle(headerStyle);
+            cell.setCellValue(TABLE_HEADERS[i]);
+            cell.setCellStyle(styles.header());
         }
+        return rowNum;
+    }
 
-        // Data rows
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> categories = (List<Map<String, Object>>) monthlyData.get("categories");
-        
-        if (isSingleCenter && categories != null) {
-            for (Map<String, Object> category : categories) {
-                String categoryName = (String) category.get("categoryName");
-                
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> topics = (List<Map<String, Object>>) category.get("topics");
-                
-                if (topics != null) {
-                    for (Map<String, Object> topic : topics) {
-                        Row dataRow = sheet.createRow(rowNum++);
-                        
-                        dataRow.createCell(0).setCellValue(categoryName);
-                        dataRow.createCell(1).setCellValue((String) topic.get("topicName"));
-                        dataRow.createCell(2).setCellValue(((Number) topic.get("individualMeetings")).longValue());
-                        dataRow.createCell(3).setCellValue(((Number) topic.get("lectures")).longValue());
-                        dataRow.createCell(4).setCellValue(((Number) topic.get("seminars")).longValue());
-                        dataRow.createCell(5).setCellValue(((Number) topic.get("total")).longValue());
-                        
-                        for (int i = 0; i < 6; i++) {
-                            dataRow.getCell(i).setCellStyle(dataStyle);
-                        }
-                    }
-                }
-                
-                // Category total row
-                Row totalRow = sheet.createRow(rowNum++);
-                Cell totalLabelCell = totalRow.createCell(0);
-                totalLabelCell.setCellValue("إجمالي " + categoryName);
-                totalLabelCell.setCellStyle(headerStyle);
-                
-                totalRow.createCell(2).setCellValue(((Number) category.get("totalMeetings")).longValue());
-                totalRow.createCell(3).setCellValue(((Number) category.get("totalLectures")).longValue());
-                totalRow.createCell(4).setCellValue(((Number) category.get("totalSeminars")).longValue());
-                totalRow.createCell(5).setCellValue(((Number) category.get("total")).longValue());
-                
-                for (int i = 0; i < 6; i++) {
-                    if (totalRow.getCell(i) != null) {
-                        totalRow.getCell(i).setCellStyle(headerStyle);
-                    }
-                }
-                
-                rowNum++; // Empty row
-            }
-        } else if (!isSingleCenter) {
-            // Handle all centers report
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> centers = (List<Map<String, Object>>) monthlyData.get("centers");
-            
-            if (centers != null) {
-                for (Map<String, Object> center : centers) {
-                    // Center header
-                    Row centerHeaderRow = sheet.createRow(rowNum++);
-                    Cell centerHeaderCell = centerHeaderRow.createCell(0);
-                    centerHeaderCell.setCellValue("المركز: " + center.get("centerName"));
-                    centerHeaderCell.setCellStyle(titleStyle);
-                    sheet.addMergedRegion(new CellRangeAddress(rowNum - 1, rowNum - 1, 0, 5));
-                    
-                    // Center categories
-                    @SuppressWarnings("unchecked")
-                    Map<String, Map<String, Object>> centerCategories = 
-                        (Map<String, Map<String, Object>>) center.get("categories");
-                    
-                    if (centerCategories != null) {
-                        for (Map.Entry<String, Map<String, Object>> catEntry : centerCategories.entrySet()) {
-                            String categoryName = catEntry.getKey();
-                            Map<String, Object> category = catEntry.getValue();
-                            
-                            @SuppressWarnings("unchecked")
-                            List<Map<String, Object>> topics = (List<Map<String, Object>>) category.get("topics");
-                            
-                            if (topics != null) {
-                                for (Map<String, Object> topic : topics) {
-                                    Row dataRow = sheet.createRow(rowNum++);
-                                    
-                                    dataRow.createCell(0).setCellValue(categoryName);
-                                    dataRow.createCell(1).setCellValue((String) topic.get("topicName"));
-                                    dataRow.createCell(2).setCellValue(((Number) topic.get("individualMeetings")).longValue());
-                                    dataRow.createCell(3).setCellValue(((Number) topic.get("lectures")).longValue());
-                                    dataRow.createCell(4).setCellValue(((Number) topic.get("seminars")).longValue());
-                                    dataRow.createCell(5).setCellValue(((Number) topic.get("total")).longValue());
-                                    
-                                    for (int i = 0; i < 6; i++) {
-                                        dataRow.getCell(i).setCellStyle(dataStyle);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    
-                    rowNum++; // Empty row between centers
-                }
+    /**
+     * Topic rows and a total row per category for one center; returns the next free row
+     * صفوف المواضيع وإجمالي كل فئة لمركز واحد
+     */
+    private int writeCenterCategories(Sheet sheet, ReportStyles styles, CenterMonthlyTotals centerData, int rowNum) {
+        for (CategoryTotals category : centerData.categories()) {
+            for (TopicTotals topic : category.topics()) {
+                writeTopicRow(sheet.createRow(rowNum++), category.categoryName(), topic, styles.data());
             }
-        }
-
-        // Grand total row (only for single center)
-        if (isSingleCenter && monthlyData.containsKey("grandTotal")) {
-            Row grandTotalRow = sheet.createRow(rowNum++);
-            Cell grandTotalLabelCell = grandTotalRow.createCell(0);
-            grandTotalLabelCell.setCellValue("الإجمالي الكلي");
-            grandTotalLabelCell.setCellStyle(titleStyle);
             
-            grandTotalRow.createCell(2).setCellValue(((Number) monthlyData.get("grandTotalMeetings")).longValue());
-            grandTotalRow.createCell(3).setCellValue(((Number) monthlyData.get("grandTotalLectures")).longValue());
-            grandTotalRow.createCell(4).setCellValue(((Number) monthlyData.get("grandTotalSeminars")).longValue());
-            grandTotalRow.createCell(5).setCellValue(((Number) monthlyData.get("grandTotal")).longValue());
+            // Category total row
+            writeTotalRow(sheet.createRow(rowNum++), "إجمالي " + category.categoryName(),
+                category.totalMeetings(), category.totalLectures(), category.totalSeminars(),
+                category.total(), styles.header());
             
-            for (int i = 0; i < 6; i++) {
-                if (grandTotalRow.getCell(i) != null) {
-                    grandTotalRow.getCell(i).setCellStyle(titleStyle);
-                }
-            }
+            rowNum++; // Empty row
         }
+        return rowNum;
+    }
 
-        // Auto-size columns
+    private void writeTotalRow(Row row, String label, long meetings, long lectures,
+                                    long seminars, long total, CellStyle style) {
+        row.createCell(0).setCellValue(label);
+        row.createCell(2).setCellValue(meetings);
+        row.createCell(3).setCellValue(lectures);
+        row.createCell(4).setCellValue(seminars);
+        row.createCell(5).setCellValue(total);
+        
         for (int i = 0; i < 6; i++) {
-            sheet.autoSizeColumn(i);
+            if (row.getCell(i) != null) {
+                row.getCell(i).setCellStyle(style);
+            }
         }
+    }
 
-        // Convert to byte array
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        workbook.write(baos);
-        workbook.close();
+    private ReportStyles createStyles(Workbook workbook) {
+        return new ReportStyles(createHeaderStyle(workbook), createTitleStyle(workbook), createDataStyle(workbook));
+    }
+
+    private void writeTopicRow(Row dataRow, String categoryName, TopicTotals topic, CellStyle dataStyle) {
+        dataRow.createCell(0).setCellValue(categoryName);
+        dataRow.createCell(1).setCellValue(topic.topicName());
+        dataRow.createCell(2).setCellValue(topic.individualMeetings());
+        dataRow.createCell(3).setCellValue(topic.lectures());
+        dataRow.createCell(4).setCellValue(topic.seminars());
+        dataRow.createCell(5).setCellValue(topic.total());
         
-        return baos.toByteArray();
+        for (int i = 0; i < 6; i++) {
+            dataRow.getCell(i).setCellStyle(dataStyle);
+        }
     }
 
     private CellStyle createHeaderStyle(Workbook workbook) {
@@ -0,0 +1,198 @@
+package com.kirkukhealth.poster.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Statistics Partition Service
+ * خدمة تقسيم جدول الإحصائيات
+ * 
+ * Maintains monthly range partitions of daily_statistics (see V12 migration;
+ * DatabaseSeeder performs the conversion): creates upcoming partitions ahead of
+ * time and detaches old years for archival. Rows outside every monthly partition
+ * land in daily_statistics_default and are moved when their month's partition is
+ * created. No-op when daily_statistics is a plain (non-partitioned) table.
+ * 
+ * يدير الأقسام الشهرية لجدول الإحصائيات اليومية: إنشاء الأقسام مسبقاً وفصل السنوات القديمة للأرشفة
+ */
+@Service
+public class StatisticsPartitionService {
+
+    private static final int MONTHS_AHEAD = 3;
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    /**
+     * Suffix given to detached partitions, so the monthly name is free again
+     */
+    private static final String ARCHIVED_SUFFIX = "_archived";
+
+    /**
+     * Storage options of every partition (V11): vacuum often enough that the
+     * visibility map stays fresh and aggregates remain index-only scans
+     */
+    public static final String AUTOVACUUM_SETTINGS =
+        "autovacuum_vacuum_scale_factor = 0.05, autovacuum_analyze_scale_factor = 0.02";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Set<YearMonth> knownPartitions = ConcurrentHashMap.newKeySet();
+
+    private volatile Boolean partitioned;
+
+    /**
+     * Partition table name for a month (daily_statistics_p2025_03)
+     * اسم جدول القسم لشهر معين
+     */
+    public static String partitionName(YearMonth month) {
+        return "daily_statistics_p" + month.format(SUFFIX);
+    }
+
+    /**
+     * Whether daily_statistics is range-partitioned in this database
+     * هل الجدول مقسم في قاعدة البيانات
+     */
+    public boolean isPartitioned() {
+        Boolean current = partitioned;
+        // Only "partitioned" is cached: the seeder may convert the table after the first check
+        if (!Boolean.TRUE.equals(current)) {
+            current = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt " +
+                "JOIN pg_class c ON c.oid = pt.partrelid WHERE c.relname = 'daily_statistics')",
+                Boolean.class));
+            partitioned = current;
+        }
+        return current;
+    }
+
+    /**
+     * Make sure the partition for a month exists (runs in its own transaction)
+     * التأكد من وجود القسم الخاص بشهر معين
+     * 
+     * Rows of that month already in the DEFAULT partition are moved into the new
+     * partition in the same statement, under an advisory lock against concurrent creation.
+     * 
+     * @throws IllegalArgumentException when the month was archived (detached)
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void ensurePartition(YearMonth month) {
+        if (knownPartitions.contains(month) || !isPartitioned()) {
+            return;
+        }
+        String name = partitionName(month);
+        if (isArchived(name)) {
+            throw new IllegalArgumentException("Statistics for " + month + " are archived and can no longer be changed");
+        }
+        jdbcTemplate.execute(String.format("""
+            DO $$
+            BEGIN
+                PERFORM pg_advisory_xact_lock(hashtext('daily_statistics_partitions'));
+                IF EXISTS (SELECT 1 FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                           WHERE c.relname = '%1$s' AND i.inhparent = 'daily_statistics'::regclass) THEN
+                    RETURN;
+                END IF;
+
+                CREATE TABLE %1$s (LIKE daily_statistics INCLUDING DEFAULTS);
+                ALTER TABLE %1$s SET (%4$s);
+                IF to_regclass('daily_statistics_default') IS NOT NULL THEN
+                    WITH moved AS (
+                        DELETE FROM daily_statistics_default
+                        WHERE entry_date >= '%2$s' AND entry_date < '%3$s'
+                        RETURNING *
+                    )
+                    INSERT INTO %1$s SELECT * FROM moved;
+                END IF;
+                ALTER TABLE daily_statistics ATTACH PARTITION %1$s FOR VALUES FROM ('%2$s') TO ('%3$s');
+            END $$
+            """, name, month.atDay(1), month.plusMonths(1).atDay(1), AUTOVACUUM_SETTINGS));
+        knownPartitions.add(month);
+    }
+
+    /**
+     * A month is archived when its table exists but is not attached, either renamed
+     * by detachYear or under the monthly name (detached before renaming was introduced)
+     */
+    private boolean isArchived(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM pg_class c WHERE c.relname IN (?, ?) AND c.relkind = 'r' " +
+            "AND NOT EXISTS (SELECT 1 FROM pg_inherits i WHERE i.inhrelid = c.oid))",
+            Boolean.class, name, name + ARCHIVED_SUFFIX));
+    }
+
+    /**
+     * Create partitions for the current month and the next months (daily at 02:00 and on startup)
+     * إنشاء أقسام الشهر الحالي والأشهر القادمة
+     */
+    @Scheduled(cron = "0 0 2 * * *")
+    @EventListener(ApplicationReadyEvent.class)
+    public void createUpcomingPartitions() {
+        try {
+            if (!isPartitioned()) {
+                return;
+            }
+            YearMonth current = YearMonth.now();
+            for (int i = 0; i <= MONTHS_AHEAD; i++) {
+                ensurePartition(current.plusMonths(i));
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Failed to create statistics partitions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * List attached partitions
+     * عرض الأقسام المرتبطة
+     */
+    public List<String> listPartitions() {
+        return jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = 'daily_statistics' ORDER BY c.relname",
+            String.class);
+    }
+
+    /**
+     * Detach all monthly partitions of a year; the detached tables stay in place for archival (pg_dump / DROP)
+     * as daily_statistics_pYYYY_MM_archived, and later writes to those months are rejected
+     * فصل أقسام سنة كاملة للأرشفة
+     */
+    @Transactional
+    public List<String> detachYear(int year) {
+        if (!isPartitioned()) {
+            throw new IllegalStateException("daily_statistics is not partitioned");
+        }
+        if (year >= YearMonth.now().getYear()) {
+            throw new IllegalArgumentException("Cannot detach the current or a future year: " + year);
+        }
+
+        List<String> attached = listPartitions();
+        List<String> detached = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            YearMonth yearMonth = YearMonth.of(year, month);
+            String name = partitionName(yearMonth);
+            if (attached.contains(name)) {
+                jdbcTemplate.execute("ALTER TABLE daily_statistics DETACH PARTITION " + name);
+                jdbcTemplate.execute("ALTER TABLE " + name + " RENAME TO " + name + ARCHIVED_SUFFIX);
+                knownPartitions.remove(yearMonth);
+                detached.add(name + ARCHIVED_SUFFIX);
+            }
+        }
+        System.out.println("✅ Detached " + detached.size() + " statistics partitions for " + year);
+        return detached;
+    }
+}
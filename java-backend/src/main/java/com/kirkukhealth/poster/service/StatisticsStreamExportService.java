@@ -0,0 +1,172 @@
+package com.kirkukhealth.poster.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+
+/**
+ * Statistics Stream Export Service
+ * خدمة التصدير المتدفق للإحصائيات
+ *
+ * Streams daily statistics rows as CSV or NDJSON straight to an output stream.
+ * Rows are read through a forward-only cursor (fetch-size batches), so memory stays
+ * constant regardless of the date range or number of centers.
+ *
+ * يكتب صفوف الإحصائيات مباشرة إلى مجرى الإخراج دون تحميلها كاملة في الذاكرة
+ */
+@Service
+public class StatisticsStreamExportService {
+
+    /**
+     * Rows fetched per round trip; PostgreSQL only honours this inside a transaction
+     * عدد الصفوف في كل دفعة
+     */
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String EXPORT_QUERY =
+        "SELECT d.entry_date, d.center_id, u.health_center_name, d.category_name, d.topic_name, " +
+        "d.individual_meetings, d.lectures, d.seminars " +
+        "FROM daily_statistics d " +
+        "LEFT JOIN user_profiles u ON u.user_id = d.center_id " +
+        "WHERE d.entry_date >= ? AND d.entry_date <= ? ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Write statistics as CSV (UTF-8 with BOM for Excel)
+     * كتابة الإحصائيات بصيغة CSV
+     *
+     * @param centerId center to export, or null for all centers
+     * @return number of data rows written
+     */
+    @Transactional(readOnly = true)
+    public long writeCsv(OutputStream out, String centerId, LocalDate startDate, LocalDate endDate) throws IOException {
+        out.write(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write("Entry Date,Center ID,Health Center Name,Category,Topic,Individual Meetings,Lectures,Seminars\n");
+
+        long[] count = {0};
+        stream(centerId, startDate, endDate, rs -> {
+            try {
+                writer.write(rs.getDate(1).toString());
+                writer.write(',');
+                writer.write(escapeCSV(rs.getString(2)));
+                writer.write(',');
+                writer.write(escapeCSV(rs.getString(3)));
+                writer.write(',');
+                writer.write(escapeCSV(rs.getString(4)));
+                writer.write(',');
+                writer.write(escapeCSV(rs.getString(5)));
+                writer.write(',');
+                writer.write(Integer.toString(rs.getInt(6)));
+                writer.write(',');
+                writer.write(Integer.toString(rs.getInt(7)));
+                writer.write(',');
+                writer.write(Integer.toString(rs.getInt(8)));
+                writer.write('\n');
+                count[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        writer.flush();
+        return count[0];
+    }
+
+    /**
+     * Write statistics as newline-delimited JSON (one object per line)
+     * كتابة الإحصائيات بصيغة NDJSON
+     *
+     * @param centerId center to export, or null for all centers
+     * @return number of rows written
+     */
+    @Transactional(readOnly = true)
+    public long writeNdjson(OutputStream out, String centerId, LocalDate startDate, LocalDate endDate) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        long[] count = {0};
+        stream(centerId, startDate, endDate, rs -> {
+            try {
+                generator.writeStartObject();
+                generator.writeStringField("entryDate", rs.getDate(1).toString());
+                generator.writeStringField("centerId", rs.getString(2));
+                generator.writeStringField("healthCenterName", rs.getString(3));
+                generator.writeStringField("categoryName", rs.getString(4));
+                generator.writeStringField("topicName", rs.getString(5));
+                generator.writeNumberField("individualMeetings", rs.getInt(6));
+                generator.writeNumberField("lectures", rs.getInt(7));
+                generator.writeNumberField("seminars", rs.getInt(8));
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                count[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        generator.close();
+        return count[0];
+    }
+
+    /**
+     * Run the export query through a forward-only, read-only cursor
+     * تنفيذ استعلام التصدير عبر مؤشر أمامي فقط
+     */
+    private void stream(String centerId, LocalDate startDate, LocalDate endDate, RowCallbackHandler handler) {
+        String sql = EXPORT_QUERY +
+            (centerId != null ? "AND d.center_id = ? " : "") +
+            "ORDER BY d.entry_date, d.center_id, d.topic_key";
+
+        PreparedStatementCreator creator = connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setDate(1, Date.valueOf(startDate));
+            ps.setDate(2, Date.valueOf(endDate));
+            if (centerId != null) {
+                ps.setString(3, centerId);
+            }
+            return ps;
+        };
+
+        jdbcTemplate.query(creator, handler);
+    }
+
+    /**
+     * Escape CSV special characters
+     * تهريب الأحرف الخاصة في CSV
+     */
+    private static String escapeCSV(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
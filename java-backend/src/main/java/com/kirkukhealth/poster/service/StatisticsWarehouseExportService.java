@@ -0,0 +1,254 @@
+package com.kirkukhealth.poster.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Statistics Warehouse Export Service
+ * خدمة تصدير مستودع الإحصائيات للتحليل
+ *
+ * Writes an analysis extract of daily statistics, monthly targets and poster counts
+ * as a ZIP of month-partitioned, dictionary-encoded CSV files:
+ *
+ *   manifest.json
+ *   dictionary/categories.csv   category_key, category_name
+ *   dictionary/topics.csv       topic_key, category_key, topic_name
+ *   centers.csv                 center_id, health_center_name, posters_generated_count
+ *   daily_statistics/month=YYYY-MM/part-0.csv
+ *   monthly_targets/month=YYYY-MM/part-0.csv
+ *
+ * Fact files carry only the SMALLINT keys, never the Arabic names, and the
+ * month=... directories are read as a partition column by DuckDB, pandas/pyarrow and R arrow.
+ * Incremental extracts contain rows with updated_at after the watermark; rows are keyed by
+ * (center_id, topic_key, entry_date) or (center_id, topic_key, target_year, target_month),
+ * so a re-delivered row replaces the earlier copy.
+ *
+ * يصدر مستخلصاً مضغوطاً مقسماً شهرياً ومرمّزاً بالقاموس لأدوات التحليل
+ */
+@Service
+public class StatisticsWarehouseExportService {
+
+    private static final int FETCH_SIZE = 1000;
+
+    /**
+     * Overlap applied to the stored watermark so rows committed by transactions
+     * that started before the previous extract are not missed
+     * هامش التداخل مع آخر تصدير
+     */
+    private static final int WATERMARK_OVERLAP_MINUTES = 10;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Watermark of the last completed extract, minus the overlap (null if none)
+     * علامة آخر تصدير مكتمل
+     */
+    public LocalDateTime getLastWatermark() {
+        Timestamp last = jdbcTemplate.queryForObject(
+            "SELECT MAX(watermark) FROM analytics_export_runs", Timestamp.class);
+        return last != null ? last.toLocalDateTime().minusMinutes(WATERMARK_OVERLAP_MINUTES) : null;
+    }
+
+    /**
+     * Record a completed extract so the next incremental run starts from its watermark
+     * تسجيل تصدير مكتمل
+     */
+    public void recordRun(Map<String, Object> manifest) {
+        jdbcTemplate.update(
+            "INSERT INTO analytics_export_runs (watermark, since, daily_rows, target_rows, exported_at) " +
+            "VALUES (?, ?, ?, ?, NOW())",
+            Timestamp.valueOf((LocalDateTime) manifest.get("watermark")),
+            manifest.get("since") != null ? Timestamp.valueOf((LocalDateTime) manifest.get("since")) : null,
+            manifest.get("dailyStatisticsRows"),
+            manifest.get("monthlyTargetRows"));
+    }
+
+    /**
+     * Write the extract ZIP to the output stream
+     * كتابة ملف المستخلص
+     *
+     * All tables are read in one REPEATABLE READ transaction, so every CSV and the
+     * watermark come from the same snapshot even while centers keep saving.
+     *
+     * @param since only rows updated after this time, or null for a full extract
+     * @return the manifest written into the ZIP
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public Map<String, Object> writeExtract(OutputStream out, LocalDateTime since) throws IOException {
+        // Database clock, taken inside the snapshot the extract is read from
+        LocalDateTime watermark = jdbcTemplate.queryForObject("SELECT LOCALTIMESTAMP", LocalDateTime.class);
+
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+
+        copyTable(zip, writer, "dictionary/categories.csv",
+            "SELECT category_key, category_name FROM health_categories ORDER BY category_key");
+        copyTable(zip, writer, "dictionary/topics.csv",
+            "SELECT t.topic_key, c.category_key, t.topic_name FROM health_topics t " +
+            "JOIN health_categories c ON c.category_name = t.category_name " +
+            "WHERE t.topic_key IS NOT NULL ORDER BY t.topic_key");
+        copyTable(zip, writer, "centers.csv",
+            "SELECT user_id AS center_id, health_center_name, COALESCE(posters_generated_count, 0) AS posters_generated_count " +
+            "FROM user_profiles WHERE health_center_name IS NOT NULL ORDER BY user_id");
+
+        long dailyRows = copyPartitioned(zip, writer, "daily_statistics",
+            "SELECT to_char(entry_date, 'YYYY-MM') AS month, center_id, category_key, topic_key, entry_date, " +
+            "individual_meetings, lectures, seminars, updated_at " +
+            "FROM daily_statistics " +
+            (since != null ? "WHERE updated_at > ? " : "") +
+            "ORDER BY entry_date, center_id, topic_key",
+            since);
+        long targetRows = copyPartitioned(zip, writer, "monthly_targets",
+            "SELECT to_char(make_date(target_year, target_month, 1), 'YYYY-MM') AS month, center_id, category_key, topic_key, " +
+            "target_year, target_month, target_meetings, target_lectures, target_seminars, updated_at " +
+            "FROM monthly_targets " +
+            (since != null ? "WHERE updated_at > ? " : "") +
+            "ORDER BY target_year, target_month, center_id, topic_key",
+            since);
+
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("format", "csv");
+        manifest.put("partitioning", "month");
+        manifest.put("incremental", since != null);
+        manifest.put("since", since);
+        manifest.put("watermark", watermark);
+        manifest.put("dailyStatisticsRows", dailyRows);
+        manifest.put("monthlyTargetRows", targetRows);
+
+        zip.putNextEntry(new ZipEntry("manifest.json"));
+        Map<String, Object> json = new LinkedHashMap<>(manifest);
+        json.put("since", since != null ? since.toString() : null);
+        json.put("watermark", watermark.toString());
+        writer.write(objectMapper.writeValueAsString(json));
+        writer.flush();
+        zip.closeEntry();
+        zip.finish();
+
+        return manifest;
+    }
+
+    /**
+     * Copy a small query result into one CSV entry
+     */
+    private void copyTable(ZipOutputStream zip, Writer writer, String entryName, String sql) throws IOException {
+        zip.putNextEntry(new ZipEntry(entryName));
+        boolean[] first = {true};
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            try {
+                if (first[0]) {
+                    writeHeader(writer, rs, 1);
+                    first[0] = false;
+                }
+                writeRow(writer, rs, 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    /**
+     * Stream a query ordered by month into one CSV entry per month; column 1 is the month
+     * نسخ النتائج إلى ملف لكل شهر في مرور واحد
+     */
+    private long copyPartitioned(ZipOutputStream zip, Writer writer, String dir, String sql,
+                                 LocalDateTime since) throws IOException {
+        PreparedStatementCreator creator = connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            if (since != null) {
+                ps.setTimestamp(1, Timestamp.valueOf(since));
+            }
+            return ps;
+        };
+
+        String[] currentMonth = {null};
+        long[] count = {0};
+        jdbcTemplate.query(creator, (RowCallbackHandler) rs -> {
+            try {
+                String month = rs.getString(1);
+                if (!month.equals(currentMonth[0])) {
+                    if (currentMonth[0] != null) {
+                        writer.flush();
+                        zip.closeEntry();
+                    }
+                    zip.putNextEntry(new ZipEntry(dir + "/month=" + month + "/part-0.csv"));
+                    writeHeader(writer, rs, 2);
+                    currentMonth[0] = month;
+                }
+                writeRow(writer, rs, 2);
+                count[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        if (currentMonth[0] != null) {
+            writer.flush();
+            zip.closeEntry();
+        }
+        return count[0];
+    }
+
+    private static void writeHeader(Writer writer, ResultSet rs, int firstColumn) throws IOException {
+        try {
+            int columns = rs.getMetaData().getColumnCount();
+            for (int i = firstColumn; i <= columns; i++) {
+                if (i > firstColumn) writer.write(',');
+                writer.write(rs.getMetaData().getColumnLabel(i));
+            }
+            writer.write('\n');
+        } catch (java.sql.SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void writeRow(Writer writer, ResultSet rs, int firstColumn) throws IOException {
+        try {
+            int columns = rs.getMetaData().getColumnCount();
+            for (int i = firstColumn; i <= columns; i++) {
+                if (i > firstColumn) writer.write(',');
+                String value = rs.getString(i);
+                writer.write(value != null ? escapeCSV(value) : "");
+            }
+            writer.write('\n');
+        } catch (java.sql.SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String escapeCSV(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
@@ -1,5 +1,7 @@
 package com.kirkukhealth.poster.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.jasypt.encryption.StringEncryptor;
 import org.jasypt.encryption.pbe.PooledPBEStringEncryptor;
 import org.jasypt.encryption.pbe.config.SimpleStringPBEConfig;
@@ -8,34 +10,95 @@ import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
 /**
  * Token Encryption Service
  * خدمة تشفير الرموز
- * 
+ *
  * Encrypts and decrypts OAuth tokens for secure storage
  * يشفر ويفك تشفير رموز OAuth للتخزين الآمن
+ *
+ * Current format: "v2:" + base64(IV | AES-256-GCM ciphertext and tag). The AES key is
+ * derived once at startup (PBKDF2-HMAC-SHA256), so each operation is a single fast,
+ * authenticated cipher call with no shared lock. Values written by the earlier
+ * jasypt scheme (PBEWithMD5AndDES) are still decrypted; isLegacy() tells callers to
+ * store them again in the current format.
+ *
+ * Decrypted tokens are cached briefly per user and ciphertext, so a rotated token
+ * (new ciphertext) never returns a stale value.
  */
 @Service
 public class TokenEncryptionService {
 
+    private static final String CURRENT_PREFIX = "v2:";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+    private static final int KEY_DERIVATION_ITERATIONS = 210_000;
+
+    /**
+     * How long a decrypted token stays in memory
+     */
+    private static final Duration DECRYPTED_TTL = Duration.ofMinutes(10);
+
     @Value("${jasypt.encryptor.password:KirkukHealth2024SecretKey}")
     private String encryptionPassword;
 
-    private StringEncryptor encryptor;
+    /**
+     * Salt of the key derivation; changing it makes existing v2 values unreadable
+     */
+    @Value("${token.encryption.salt:KirkukHealthSector1-token-v2}")
+    private String keySalt;
+
+    private StringEncryptor legacyEncryptor;
+
+    private SecretKey key;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private record CacheKey(String userId, String ciphertext) {
+    }
+
+    private final Cache<CacheKey, String> decryptedTokens = Caffeine.newBuilder()
+        .maximumSize(2_000)
+        .expireAfterWrite(DECRYPTED_TTL)
+        .build();
 
     @PostConstruct
-    public void init() {
+    public void init() throws Exception {
         PooledPBEStringEncryptor pooledEncryptor = new PooledPBEStringEncryptor();
         SimpleStringPBEConfig config = new SimpleStringPBEConfig();
         config.setPassword(encryptionPassword);
         config.setAlgorithm("PBEWithMD5AndDES");
         config.setKeyObtentionIterations("1000");
-        config.setPoolSize("1");
+        // One encryptor per core instead of a single serialized instance
+        config.setPoolSize(String.valueOf(Runtime.getRuntime().availableProcessors()));
         config.setProviderName("SunJCE");
         config.setSaltGeneratorClassName("org.jasypt.salt.RandomSaltGenerator");
         config.setStringOutputType("base64");
         pooledEncryptor.setConfig(config);
-        this.encryptor = pooledEncryptor;
+        this.legacyEncryptor = pooledEncryptor;
+
+        long start = System.currentTimeMillis();
+        PBEKeySpec spec = new PBEKeySpec(encryptionPassword.toCharArray(),
+            keySalt.getBytes(StandardCharsets.UTF_8), KEY_DERIVATION_ITERATIONS, 256);
+        try {
+            byte[] keyBytes = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            this.key = new SecretKeySpec(keyBytes, "AES");
+        } finally {
+            spec.clearPassword();
+        }
+        System.out.println("✅ Token encryption key derived in " + (System.currentTimeMillis() - start) + " ms");
     }
 
     /**
@@ -46,7 +109,18 @@ public class TokenEncryptionService {
         if (token == null || token.isEmpty()) {
             return null;
         }
-        return encryptor.encrypt(token);
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            secureRandom.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            byte[] ciphertext = cipher.doFinal(token.getBytes(StandardCharsets.UTF_8));
+
+            return CURRENT_PREFIX + Base64.getEncoder().encodeToString(
+                ByteBuffer.allocate(iv.length + ciphertext.length).put(iv).put(ciphertext).array());
+        } catch (Exception e) {
+            throw new IllegalStateException("Token encryption failed", e);
+        }
     }
 
     /**
@@ -58,11 +132,53 @@ public class TokenEncryptionService {
             return null;
         }
         try {
-            return encryptor.decrypt(encryptedToken);
+            if (!encryptedToken.startsWith(CURRENT_PREFIX)) {
+                return legacyEncryptor.decrypt(encryptedToken);
+            }
+
+            byte[] data = Base64.getDecoder().decode(encryptedToken.substring(CURRENT_PREFIX.length()));
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, data, 0, IV_LENGTH));
+            return new String(cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH), StandardCharsets.UTF_8);
         } catch (Exception e) {
             System.err.println("Error decrypting token: " + e.getMessage());
             return null;
         }
     }
-}
 
+    /**
+     * Decrypt a user's token through the short-lived cache
+     * فك تشفير رمز المستخدم مع التخزين المؤقت
+     */
+    public String decryptCached(String userId, String encryptedToken) {
+        if (encryptedToken == null || encryptedToken.isEmpty()) {
+            return null;
+        }
+        CacheKey cacheKey = new CacheKey(userId, encryptedToken);
+        String cached = decryptedTokens.getIfPresent(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        String token = decrypt(encryptedToken);
+        if (token != null) {
+            decryptedTokens.put(cacheKey, token);
+        }
+        return token;
+    }
+
+    /**
+     * Drop a user's decrypted tokens (unlink, token rotation)
+     * حذف الرموز المفكوكة للمستخدم من الذاكرة
+     */
+    public void evict(String userId) {
+        decryptedTokens.asMap().keySet().removeIf(cacheKey -> cacheKey.userId().equals(userId));
+    }
+
+    /**
+     * Whether a stored value uses the earlier scheme and should be encrypted again
+     * هل القيمة مشفرة بالطريقة القديمة
+     */
+    public boolean isLegacy(String encryptedToken) {
+        return encryptedToken != null && !encryptedToken.isEmpty() && !encryptedToken.startsWith(CURRENT_PREFIX);
+    }
+}
@@ -0,0 +1,187 @@
+package com.kirkukhealth.poster.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Topic Dictionary Service
+ * خدمة قاموس المواضيع
+ * 
+ * Maps Arabic category/topic names to the compact SMALLINT keys stored in
+ * daily_statistics and monthly_targets (health_categories.category_key, health_topics.topic_key),
+ * and decodes aggregate rows grouped by key back to names.
+ * 
+ * يحول أسماء الفئات والمواضيع إلى مفاتيح رقمية مختصرة والعكس
+ * 
+ * Unknown names trigger at most one dictionary reload per RELOAD_INTERVAL, so
+ * requests with invalid filters cannot turn every lookup into a query.
+ */
+@Service
+public class TopicDictionaryService {
+
+    private static final String UNKNOWN = "غير معروف";
+
+    /**
+     * Minimum time between reloads triggered by a lookup miss
+     */
+    private static final long RELOAD_INTERVAL_MS = 30_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private record Dictionary(Map<String, Short> categoryKeys,
+                              Map<String, Short> topicKeys,
+                              Map<Short, String> categoryNames,
+                              Map<Short, String> topicNames) {
+    }
+
+    private volatile Dictionary dictionary;
+
+    private volatile long lastReloadMillis;
+
+    /**
+     * Get category key, or null if the category is not registered
+     * الحصول على مفتاح الفئة
+     */
+    public Short getCategoryKey(String categoryName) {
+        Short key = get().categoryKeys().get(categoryName);
+        if (key == null) {
+            key = reloadOnMiss().categoryKeys().get(categoryName);
+        }
+        return key;
+    }
+
+    /**
+     * Get topic key, or null if the topic is not registered under the category
+     * الحصول على مفتاح الموضوع
+     */
+    public Short getTopicKey(String categoryName, String topicName) {
+        String composite = categoryName + "\n" + topicName;
+        Short key = get().topicKeys().get(composite);
+        if (key == null) {
+            key = reloadOnMiss().topicKeys().get(composite);
+        }
+        return key;
+    }
+
+    /**
+     * Replace the category/topic key columns of aggregate rows with their names
+     * استبدال أعمدة المفاتيح في صفوف التجميع بالأسماء
+     * 
+     * Rows must end with meetings, lectures, seminars followed by the category and
+     * topic name of rows whose keys are still NULL (written before the backfill or by
+     * an older instance); those names are used instead of the keys. Such a row is
+     * merged into the keyed row of the same group, or placed after its category, so
+     * categories stay contiguous. The two name columns are removed from the result.
+     * 
+     * @param categoryIndex index of the category key column; the topic key column must follow it
+     */
+    public List<Object[]> decodeNames(List<Object[]> rows, int categoryIndex) {
+        Dictionary current = get();
+        List<Object[]> decoded = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            int width = row.length - 2;
+            Object[] out = Arrays.copyOf(row, width);
+            if (row[categoryIndex + 1] != null) {
+                out[categoryIndex] = current.categoryNames().getOrDefault(toKey(row[categoryIndex]), UNKNOWN);
+                out[categoryIndex + 1] = current.topicNames().getOrDefault(toKey(row[categoryIndex + 1]), UNKNOWN);
+                decoded.add(out);
+                continue;
+            }
+
+            out[categoryIndex] = row[width] != null ? row[width] : UNKNOWN;
+            out[categoryIndex + 1] = row[width + 1] != null ? row[width + 1] : UNKNOWN;
+            mergeNamedRow(decoded, out, categoryIndex, width - 3);
+        }
+        return decoded;
+    }
+
+    /**
+     * Add a name-decoded row: sum into the row of the same group, otherwise insert it
+     * after the last row of its category (or append)
+     */
+    private static void mergeNamedRow(List<Object[]> decoded, Object[] row, int categoryIndex, int sumIndex) {
+        int categoryEnd = -1;
+        for (int i = decoded.size() - 1; i >= 0; i--) {
+            Object[] other = decoded.get(i);
+            if (!Arrays.equals(other, 0, categoryIndex + 1, row, 0, categoryIndex + 1)) {
+                continue;
+            }
+            if (Arrays.equals(other, 0, sumIndex, row, 0, sumIndex)) {
+                for (int j = sumIndex; j < sumIndex + 3; j++) {
+                    other[j] = ((Number) other[j]).longValue() + ((Number) row[j]).longValue();
+                }
+                return;
+            }
+            if (categoryEnd < 0) {
+                categoryEnd = i;
+            }
+        }
+        if (categoryEnd >= 0) {
+            decoded.add(categoryEnd + 1, row);
+        } else {
+            decoded.add(row);
+        }
+    }
+
+    private static Short toKey(Object value) {
+        return value != null ? ((Number) value).shortValue() : null;
+    }
+
+    private Dictionary get() {
+        Dictionary current = dictionary;
+        return current != null ? current : reload();
+    }
+
+    /**
+     * Reload after a lookup miss, unless the dictionary was loaded recently
+     */
+    private Dictionary reloadOnMiss() {
+        Dictionary current = dictionary;
+        if (current != null && System.currentTimeMillis() - lastReloadMillis < RELOAD_INTERVAL_MS) {
+            return current;
+        }
+        synchronized (this) {
+            if (dictionary != null && System.currentTimeMillis() - lastReloadMillis < RELOAD_INTERVAL_MS) {
+                return dictionary;
+            }
+            return reload();
+        }
+    }
+
+    private synchronized Dictionary reload() {
+        Map<String, Short> categoryKeys = new HashMap<>();
+        Map<String, Short> topicKeys = new HashMap<>();
+        Map<Short, String> categoryNames = new HashMap<>();
+        Map<Short, String> topicNames = new HashMap<>();
+
+        jdbcTemplate.query(
+            "SELECT c.category_key, c.category_name, t.topic_key, t.topic_name " +
+            "FROM health_topics t JOIN health_categories c ON c.category_name = t.category_name " +
+            "WHERE t.topic_key IS NOT NULL",
+            rs -> {
+                short categoryKey = rs.getShort(1);
+                String categoryName = rs.getString(2);
+                short topicKey = rs.getShort(3);
+                String topicName = rs.getString(4);
+
+                categoryKeys.put(categoryName, categoryKey);
+                categoryNames.put(categoryKey, categoryName);
+                topicKeys.put(categoryName + "\n" + topicName, topicKey);
+                topicNames.put(topicKey, topicName);
+            });
+
+        Dictionary loaded = new Dictionary(Map.copyOf(categoryKeys), Map.copyOf(topicKeys),
+            Map.copyOf(categoryNames), Map.copyOf(topicNames));
+        dictionary = loaded;
+        lastReloadMillis = System.currentTimeMillis();
+        return loaded;
+    }
+}
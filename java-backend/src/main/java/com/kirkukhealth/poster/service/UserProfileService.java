@@ -3,6 +3,7 @@ package com.kirkukhealth.poster.service;
 import com.kirkukhealth.poster.model.UserProfile;
 import com.kirkukhealth.poster.repository.UserProfileRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,6 +26,9 @@ public class UserProfileService {
     @Autowired
     private UserProfileRepository profileRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Get or create user profile
      * الحصول على أو إنشاء الملف الشخصي للمستخدم
@@ -45,7 +49,9 @@ public class UserProfileService {
             .showVerificationBadge(true)
             .build();
         
-        return profileRepository.save(profile);
+        UserProfile saved = profileRepository.save(profile);
+        eventPublisher.publishEvent(new CenterProfileChangedEvent(userId));
+        return saved;
     }
 
     /**
@@ -81,7 +87,9 @@ public class UserProfileService {
             existing.setShowVerificationBadge(updatedProfile.getShowVerificationBadge());
         }
         
-        return profileRepository.save(existing);
+        UserProfile saved = profileRepository.save(existing);
+        eventPublisher.publishEvent(new CenterProfileChangedEvent(userId));
+        return saved;
     }
 
     /**
@@ -90,7 +98,9 @@ public class UserProfileService {
      */
     @Transactional
     public UserProfile saveProfile(UserProfile profile) {
-        return profileRepository.save(profile);
+        UserProfile saved = profileRepository.save(profile);
+        eventPublisher.publishEvent(new CenterProfileChangedEvent(saved.getUserId()));
+        return saved;
     }
 
     /**
@@ -99,8 +109,10 @@ public class UserProfileService {
      */
     @Transactional
     public void deleteProfile(String userId) {
-        profileRepository.findByUserId(userId)
-            .ifPresent(profileRepository::delete);
+        profileRepository.findByUserId(userId).ifPresent(profile -> {
+            profileRepository.delete(profile);
+            eventPublisher.publishEvent(new CenterProfileChangedEvent(userId));
+        });
     }
 
     /**
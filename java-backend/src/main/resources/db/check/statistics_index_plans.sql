@@ -0,0 +1,158 @@
+-- ============================================================================
+-- Query Plan Check: statistics indexes (V11, V12)
+-- ============================================================================
+-- فحص خطط الاستعلام لفهارس الإحصائيات
+-- Seeds a scratch schema with 5 years x 23 centers of synthetic data, then
+-- asserts that each aggregate repository query runs as an Index Only Scan.
+-- The statements are the SQL Hibernate generates for the @Query methods
+-- (spring.jpa.show-sql=true), prepared with the same parameters, so the name
+-- fallback columns and nullable filters are part of the check. When a query
+-- changes, paste its logged SQL here.
+--
+-- Not checked: findByEntryDateBetween / findByCenterIdAndEntryDateBetween and the
+-- monthly_targets finders load whole entities, so they use the indexes for the
+-- range lookup but always read the heap.
+--
+-- Usage: psql "$DATABASE_URL" -v ON_ERROR_STOP=1 -f statistics_index_plans.sql
+-- Requires migrations up to V12. Leaves no data behind.
+-- ============================================================================
+
+DROP SCHEMA IF EXISTS plan_check CASCADE;
+CREATE SCHEMA plan_check;
+SET search_path = plan_check;
+
+CREATE TABLE daily_statistics (LIKE public.daily_statistics INCLUDING ALL);
+CREATE TABLE monthly_targets (LIKE public.monthly_targets INCLUDING ALL);
+
+-- 5 years x 23 centers x 6 topics per day
+INSERT INTO daily_statistics (id, center_id, category_name, topic_name, category_key, topic_key,
+                              individual_meetings, lectures, seminars, entry_date, created_at, updated_at)
+SELECT md5(c::text || '-' || t::text || '-' || d::text),
+       'user_id_' || lpad(c::text, 2, '0'),
+       'category', 'topic',
+       ((t - 1) / 6 + 1)::smallint, t::smallint,
+       (random() * 10)::int, (random() * 3)::int, (random() * 2)::int,
+       d::date, now(), now()
+FROM generate_series(1, 23) c,
+     generate_series(1, 66, 11) t,
+     generate_series(date '2021-01-01', date '2025-12-31', interval '1 day') d;
+
+-- 5 years x 12 months x 23 centers x 66 topics
+INSERT INTO monthly_targets (id, center_id, category_name, topic_name, category_key, topic_key,
+                             target_meetings, target_lectures, target_seminars, target_month, target_year,
+                             created_at, updated_at)
+SELECT md5(c::text || '-' || t::text || '-' || y::text || '-' || m::text),
+       'user_id_' || lpad(c::text, 2, '0'),
+       'category', 'topic',
+       ((t - 1) / 6 + 1)::smallint, t::smallint,
+       20, 4, 2, m, y, now(), now()
+FROM generate_series(1, 23) c,
+     generate_series(1, 66) t,
+     generate_series(2021, 2025) y,
+     generate_series(1, 12) m;
+
+VACUUM ANALYZE daily_statistics;
+VACUUM ANALYZE monthly_targets;
+
+CREATE FUNCTION pg_temp.assert_index_only(label TEXT, statement TEXT) RETURNS VOID AS $$
+DECLARE
+    plan TEXT;
+BEGIN
+    EXECUTE 'EXPLAIN (FORMAT JSON) ' || statement INTO plan;
+    IF plan NOT LIKE '%Index Only Scan%' OR plan LIKE '%"Seq Scan"%' THEN
+        RAISE EXCEPTION 'Plan regression (%): expected Index Only Scan, got %', label, plan;
+    END IF;
+    RAISE NOTICE 'OK: %', label;
+END;
+$$ LANGUAGE plpgsql;
+
+-- DailyStatisticsRepository.aggregateMonthlyTotals
+PREPARE aggregate_monthly_totals(VARCHAR, DATE, DATE) AS
+select d1_0.category_key,d1_0.topic_key,sum(d1_0.individual_meetings),sum(d1_0.lectures),sum(d1_0.seminars),
+case when d1_0.topic_key is null then d1_0.category_name end,case when d1_0.topic_key is null then d1_0.topic_name end
+from daily_statistics d1_0
+where d1_0.center_id=$1 and d1_0.entry_date>=$2 and d1_0.entry_date<=$3
+group by d1_0.category_key,d1_0.topic_key,
+case when d1_0.topic_key is null then d1_0.category_name end,case when d1_0.topic_key is null then d1_0.topic_name end
+order by d1_0.category_key,d1_0.topic_key;
+SELECT pg_temp.assert_index_only('aggregateMonthlyTotals',
+    $q$EXECUTE aggregate_monthly_totals('user_id_07', '2024-03-01', '2024-03-31')$q$);
+
+-- DailyStatisticsRepository.aggregateAllCentersMonthlyTotals
+PREPARE aggregate_all_centers_monthly_totals(DATE, DATE) AS
+select d1_0.center_id,d1_0.category_key,d1_0.topic_key,sum(d1_0.individual_meetings),sum(d1_0.lectures),sum(d1_0.seminars),
+case when d1_0.topic_key is null then d1_0.category_name end,case when d1_0.topic_key is null then d1_0.topic_name end
+from daily_statistics d1_0
+where d1_0.entry_date>=$1 and d1_0.entry_date<=$2
+group by d1_0.center_id,d1_0.category_key,d1_0.topic_key,
+case when d1_0.topic_key is null then d1_0.category_name end,case when d1_0.topic_key is null then d1_0.topic_name end
+order by d1_0.center_id,d1_0.category_key,d1_0.topic_key;
+SELECT pg_temp.assert_index_only('aggregateAllCentersMonthlyTotals',
+    $q$EXECUTE aggregate_all_centers_monthly_totals('2024-03-01', '2024-03-31')$q$);
+
+-- DailyStatisticsRepository.aggregateCenterTotals
+PREPARE aggregate_center_totals(DATE, DATE) AS
+select d1_0.center_id,sum(((d1_0.individual_meetings+d1_0.lectures)+d1_0.seminars))
+from daily_statistics d1_0
+where d1_0.entry_date>=$1 and d1_0.entry_date<=$2
+group by d1_0.center_id;
+SELECT pg_temp.assert_index_only('aggregateCenterTotals',
+    $q$EXECUTE aggregate_center_totals('2024-03-01', '2024-03-31')$q$);
+
+-- DailyStatisticsRepository.sumCenterTotal
+PREPARE sum_center_total(VARCHAR, DATE, DATE) AS
+select coalesce(sum(((d1_0.individual_meetings+d1_0.lectures)+d1_0.seminars)),0)
+from daily_statistics d1_0
+where d1_0.center_id=$1 and d1_0.entry_date>=$2 and d1_0.entry_date<=$3;
+SELECT pg_temp.assert_index_only('sumCenterTotal',
+    $q$EXECUTE sum_center_total('user_id_07', '2024-03-01', '2024-03-31')$q$);
+
+-- DailyStatisticsRepository.aggregateMonthlySeries (all filters null, and one center)
+PREPARE aggregate_monthly_series(DATE, DATE, VARCHAR, SMALLINT, SMALLINT) AS
+select extract(year from d1_0.entry_date),extract(month from d1_0.entry_date),
+sum(d1_0.individual_meetings),sum(d1_0.lectures),sum(d1_0.seminars)
+from daily_statistics d1_0
+where d1_0.entry_date>=$1 and d1_0.entry_date<=$2
+and ($3 is null or d1_0.center_id=$3)
+and ($4 is null or d1_0.category_key=$4)
+and ($5 is null or d1_0.topic_key=$5)
+group by extract(year from d1_0.entry_date),extract(month from d1_0.entry_date)
+order by extract(year from d1_0.entry_date),extract(month from d1_0.entry_date);
+SELECT pg_temp.assert_index_only('aggregateMonthlySeries',
+    $q$EXECUTE aggregate_monthly_series('2023-04-01', '2024-03-31', NULL, NULL, NULL)$q$);
+SELECT pg_temp.assert_index_only('aggregateMonthlySeries (center)',
+    $q$EXECUTE aggregate_monthly_series('2023-04-01', '2024-03-31', 'user_id_07', NULL, NULL)$q$);
+
+-- DailyStatisticsRepository.aggregateCenterTopicMonthly
+PREPARE aggregate_center_topic_monthly(DATE, DATE) AS
+select d1_0.center_id,d1_0.category_key,d1_0.topic_key,extract(year from d1_0.entry_date),extract(month from d1_0.entry_date),
+sum(d1_0.individual_meetings),sum(d1_0.lectures),sum(d1_0.seminars),
+case when d1_0.topic_key is null then d1_0.category_name end,case when d1_0.topic_key is null then d1_0.topic_name end
+from daily_statistics d1_0
+where d1_0.entry_date>=$1 and d1_0.entry_date<=$2
+group by d1_0.center_id,d1_0.category_key,d1_0.topic_key,extract(year from d1_0.entry_date),extract(month from d1_0.entry_date),
+case when d1_0.topic_key is null then d1_0.category_name end,case when d1_0.topic_key is null then d1_0.topic_name end
+order by d1_0.center_id,d1_0.category_key,d1_0.topic_key,extract(year from d1_0.entry_date),extract(month from d1_0.entry_date);
+SELECT pg_temp.assert_index_only('aggregateCenterTopicMonthly',
+    $q$EXECUTE aggregate_center_topic_monthly('2024-01-01', '2024-03-31')$q$);
+
+-- MonthlyTargetRepository.aggregateCenterTargets
+PREPARE aggregate_center_targets(INTEGER, INTEGER) AS
+select m1_0.center_id,sum(((m1_0.target_meetings+m1_0.target_lectures)+m1_0.target_seminars))
+from monthly_targets m1_0
+where m1_0.target_year=$1 and m1_0.target_month=$2
+group by m1_0.center_id;
+SELECT pg_temp.assert_index_only('aggregateCenterTargets',
+    $q$EXECUTE aggregate_center_targets(2024, 3)$q$);
+
+-- MonthlyTargetRepository.getTotalTargetForCenter
+PREPARE get_total_target_for_center(VARCHAR, INTEGER, INTEGER) AS
+select sum(((m1_0.target_meetings+m1_0.target_lectures)+m1_0.target_seminars))
+from monthly_targets m1_0
+where m1_0.center_id=$1 and m1_0.target_year=$2 and m1_0.target_month=$3;
+SELECT pg_temp.assert_index_only('getTotalTargetForCenter',
+    $q$EXECUTE get_total_target_for_center('user_id_07', 2024, 3)$q$);
+
+DEALLOCATE ALL;
+RESET search_path;
+DROP SCHEMA plan_check CASCADE;
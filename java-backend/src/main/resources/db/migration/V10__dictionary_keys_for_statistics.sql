@@ -0,0 +1,69 @@
+-- ============================================================================
+-- Database Migration V10: Dictionary-encoded category and topic keys
+-- ============================================================================
+-- ترميز الفئات والمواضيع بمفاتيح رقمية مختصرة
+-- Replace repeated Arabic category/topic strings in grouping and uniqueness
+-- with SMALLINT keys from health_categories / health_topics
+--
+-- Name columns are kept (and still written) for dual-read compatibility;
+-- aggregation and unique constraints now use the keys.
+-- ============================================================================
+
+CREATE TABLE IF NOT EXISTS health_categories (
+    category_key SMALLINT PRIMARY KEY,
+    category_name VARCHAR(200) NOT NULL UNIQUE
+);
+
+INSERT INTO health_categories (category_key, category_name) VALUES
+(1, 'صحة الأم والطفل'),
+(2, 'التطعيم'),
+(3, 'الأمراض المعدية'),
+(4, 'الأمراض غير المعدية'),
+(5, 'الصحة النفسية'),
+(6, 'الإسعافات الأولية'),
+(7, 'النظافة'),
+(8, 'سوء استخدام الأدوية'),
+(9, 'مقاومة المضادات الحيوية'),
+(10, 'المناسبات الصحية'),
+(11, 'أخرى')
+ON CONFLICT DO NOTHING;
+
+-- topic_key is the numeric part of topic_id (topic_007 -> 7)
+ALTER TABLE health_topics ADD COLUMN IF NOT EXISTS topic_key SMALLINT;
+UPDATE health_topics SET topic_key = CAST(SUBSTRING(topic_id FROM 7) AS SMALLINT)
+WHERE topic_key IS NULL AND topic_id LIKE 'topic\_%';
+CREATE UNIQUE INDEX IF NOT EXISTS uk_health_topics_topic_key ON health_topics(topic_key);
+
+-- Add key columns
+ALTER TABLE daily_statistics ADD COLUMN IF NOT EXISTS category_key SMALLINT;
+ALTER TABLE daily_statistics ADD COLUMN IF NOT EXISTS topic_key SMALLINT;
+ALTER TABLE monthly_targets ADD COLUMN IF NOT EXISTS category_key SMALLINT;
+ALTER TABLE monthly_targets ADD COLUMN IF NOT EXISTS topic_key SMALLINT;
+
+-- Backfill existing rows
+UPDATE daily_statistics s SET category_key = c.category_key, topic_key = t.topic_key
+FROM health_topics t JOIN health_categories c ON c.category_name = t.category_name
+WHERE s.topic_key IS NULL AND t.category_name = s.category_name AND t.topic_name = s.topic_name;
+
+UPDATE monthly_targets s SET category_key = c.category_key, topic_key = t.topic_key
+FROM health_topics t JOIN health_categories c ON c.category_name = t.category_name
+WHERE s.topic_key IS NULL AND t.category_name = s.category_name AND t.topic_name = s.topic_name;
+
+-- Key-based uniqueness (topic_key determines category_key)
+ALTER TABLE daily_statistics DROP CONSTRAINT IF EXISTS uk_daily_stats;
+ALTER TABLE daily_statistics ADD CONSTRAINT uk_daily_stats UNIQUE (center_id, topic_key, entry_date);
+
+ALTER TABLE monthly_targets DROP CONSTRAINT IF EXISTS uk_monthly_targets;
+ALTER TABLE monthly_targets ADD CONSTRAINT uk_monthly_targets UNIQUE (center_id, topic_key, target_month, target_year);
+
+-- Replace name-based indexes
+DROP INDEX IF EXISTS idx_daily_stats_category;
+DROP INDEX IF EXISTS idx_monthly_targets_category;
+CREATE INDEX IF NOT EXISTS idx_daily_stats_category_key ON daily_statistics(category_key);
+CREATE INDEX IF NOT EXISTS idx_monthly_targets_category_key ON monthly_targets(category_key);
+
+COMMENT ON TABLE health_categories IS 'الفئات الصحية (11 فئة) مع مفاتيح رقمية | Health categories with numeric keys';
+COMMENT ON COLUMN daily_statistics.category_key IS 'مفتاح الفئة (health_categories) | Category key';
+COMMENT ON COLUMN daily_statistics.topic_key IS 'مفتاح الموضوع (health_topics) | Topic key';
+COMMENT ON COLUMN monthly_targets.category_key IS 'مفتاح الفئة (health_categories) | Category key';
+COMMENT ON COLUMN monthly_targets.topic_key IS 'مفتاح الموضوع (health_topics) | Topic key';
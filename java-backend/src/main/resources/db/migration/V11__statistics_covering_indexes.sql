@@ -0,0 +1,55 @@
+-- ============================================================================
+-- Database Migration V11: Composite and covering indexes for statistics
+-- ============================================================================
+-- فهارس مركبة وشاملة لاستعلامات الإحصائيات
+-- Indexes matched to the repository query shapes so that monthly
+-- aggregations run as index-only scans (INCLUDE requires PostgreSQL 11+).
+-- category_name / topic_name are included because the aggregations also
+-- select them for rows whose keys are still NULL (legacy name fallback).
+--
+-- daily_statistics, index-only:
+--   (entry_date) INCLUDE ...            -> aggregateAllCentersMonthlyTotals, aggregateCenterTotals,
+--                                          aggregateMonthlySeries, aggregateCenterTopicMonthly
+--   (center_id, entry_date) INCLUDE ... -> aggregateMonthlyTotals, sumCenterTotal
+--   uk_daily_stats (center_id, topic_key, entry_date) -> upsert
+-- daily_statistics, range lookup only (entities load whole rows from the heap):
+--   findByEntryDateBetween, findByCenterIdAndEntryDateBetween
+-- monthly_targets, index-only:
+--   (target_year, target_month) INCLUDE ...            -> aggregateCenterTargets
+--   (center_id, target_year, target_month) INCLUDE ... -> getTotalTargetForCenter
+-- monthly_targets, range lookup only:
+--   findByTargetYearAndTargetMonth, findByCenterIdAndTargetYearAndTargetMonth
+--
+-- Plan check: db/check/statistics_index_plans.sql
+-- ============================================================================
+
+CREATE INDEX IF NOT EXISTS idx_daily_stats_date_covering
+    ON daily_statistics (entry_date)
+    INCLUDE (center_id, category_key, topic_key, individual_meetings, lectures, seminars,
+             category_name, topic_name);
+
+CREATE INDEX IF NOT EXISTS idx_daily_stats_center_date_covering
+    ON daily_statistics (center_id, entry_date)
+    INCLUDE (category_key, topic_key, individual_meetings, lectures, seminars,
+             category_name, topic_name);
+
+CREATE INDEX IF NOT EXISTS idx_monthly_targets_period_covering
+    ON monthly_targets (target_year, target_month)
+    INCLUDE (center_id, target_meetings, target_lectures, target_seminars);
+
+CREATE INDEX IF NOT EXISTS idx_monthly_targets_center_period_covering
+    ON monthly_targets (center_id, target_year, target_month)
+    INCLUDE (target_meetings, target_lectures, target_seminars);
+
+-- Superseded by the covering indexes above
+DROP INDEX IF EXISTS idx_daily_stats_center_id;
+DROP INDEX IF EXISTS idx_daily_stats_entry_date;
+DROP INDEX IF EXISTS idx_daily_stats_center_date;
+DROP INDEX IF EXISTS idx_monthly_targets_center_id;
+DROP INDEX IF EXISTS idx_monthly_targets_month_year;
+DROP INDEX IF EXISTS idx_monthly_targets_center_month_year;
+
+-- Keep the visibility map fresh so index-only scans avoid heap fetches.
+-- After V12 these options live on each partition (a partitioned parent has no
+-- storage options); DatabaseSeeder and StatisticsPartitionService set them.
+ALTER TABLE daily_statistics SET (autovacuum_vacuum_scale_factor = 0.05, autovacuum_analyze_scale_factor = 0.02);
@@ -0,0 +1,122 @@
+-- ============================================================================
+-- Database Migration V12: Monthly range partitioning of daily_statistics
+-- ============================================================================
+-- تقسيم جدول الإحصائيات اليومية شهرياً حسب تاريخ الإدخال
+-- Convert daily_statistics into a table partitioned by RANGE (entry_date),
+-- one partition per month (daily_statistics_pYYYY_MM).
+--
+-- - Date-range queries only touch the matching partitions (partition pruning)
+-- - Upcoming partitions are created by StatisticsPartitionService (daily job)
+-- - Old years are archived with ALTER TABLE ... DETACH PARTITION and renamed
+--   to daily_statistics_pYYYY_MM_archived (StatisticsPartitionService.detachYear)
+-- - daily_statistics_default receives dates without a monthly partition; their
+--   rows move when that month's partition is created
+-- - DatabaseSeeder applies the same conversion at startup
+--
+-- Primary key becomes (id, entry_date): unique keys must include the partition key.
+-- ============================================================================
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table pt
+               JOIN pg_class c ON c.oid = pt.partrelid
+               WHERE c.relname = 'daily_statistics') THEN
+        RAISE NOTICE 'daily_statistics is already partitioned';
+        RETURN;
+    END IF;
+
+    ALTER TABLE daily_statistics RENAME TO daily_statistics_unpartitioned;
+    ALTER TABLE daily_statistics_unpartitioned DROP CONSTRAINT IF EXISTS daily_statistics_pkey;
+    ALTER TABLE daily_statistics_unpartitioned DROP CONSTRAINT IF EXISTS uk_daily_stats;
+    DROP INDEX IF EXISTS idx_daily_stats_date_covering;
+    DROP INDEX IF EXISTS idx_daily_stats_center_date_covering;
+    DROP INDEX IF EXISTS idx_daily_stats_category_key;
+
+    CREATE TABLE daily_statistics (
+        id VARCHAR(255) NOT NULL,
+        center_id VARCHAR(255) NOT NULL,
+        category_name VARCHAR(200) NOT NULL,
+        topic_name VARCHAR(300) NOT NULL,
+        category_key SMALLINT,
+        topic_key SMALLINT,
+        individual_meetings INTEGER NOT NULL DEFAULT 0,
+        lectures INTEGER NOT NULL DEFAULT 0,
+        seminars INTEGER NOT NULL DEFAULT 0,
+        entry_date DATE NOT NULL,
+        created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+        updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+
+        CONSTRAINT daily_statistics_pkey PRIMARY KEY (id, entry_date),
+        CONSTRAINT uk_daily_stats UNIQUE (center_id, topic_key, entry_date)
+    ) PARTITION BY RANGE (entry_date);
+END $$;
+
+-- Monthly partitions from the oldest entry up to three months ahead
+DO $$
+DECLARE
+    first_month DATE;
+    last_month DATE;
+    m DATE;
+BEGIN
+    IF to_regclass('daily_statistics_unpartitioned') IS NOT NULL THEN
+        SELECT date_trunc('month', COALESCE(MIN(entry_date), CURRENT_DATE))::date,
+               date_trunc('month', GREATEST(COALESCE(MAX(entry_date), CURRENT_DATE), CURRENT_DATE + INTERVAL '3 months'))::date
+        INTO first_month, last_month
+        FROM daily_statistics_unpartitioned;
+    ELSE
+        first_month := date_trunc('month', CURRENT_DATE)::date;
+        last_month := date_trunc('month', CURRENT_DATE + INTERVAL '3 months')::date;
+    END IF;
+
+    m := first_month;
+    WHILE m <= last_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF daily_statistics FOR VALUES FROM (%L) TO (%L)',
+                       'daily_statistics_p' || to_char(m, 'YYYY_MM'), m, (m + INTERVAL '1 month')::date);
+        m := (m + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+CREATE TABLE IF NOT EXISTS daily_statistics_default PARTITION OF daily_statistics DEFAULT;
+
+-- Copy existing rows and drop the old heap
+DO $$
+BEGIN
+    IF to_regclass('daily_statistics_unpartitioned') IS NOT NULL THEN
+        INSERT INTO daily_statistics (id, center_id, category_name, topic_name, category_key, topic_key,
+                                      individual_meetings, lectures, seminars, entry_date, created_at, updated_at)
+        SELECT id, center_id, category_name, topic_name, category_key, topic_key,
+               individual_meetings, lectures, seminars, entry_date, created_at, updated_at
+        FROM daily_statistics_unpartitioned;
+
+        DROP TABLE daily_statistics_unpartitioned;
+    END IF;
+END $$;
+
+-- Partitioned indexes (created on every partition, including future ones)
+CREATE INDEX IF NOT EXISTS idx_daily_stats_date_covering
+    ON daily_statistics (entry_date)
+    INCLUDE (center_id, category_key, topic_key, individual_meetings, lectures, seminars,
+             category_name, topic_name);
+
+CREATE INDEX IF NOT EXISTS idx_daily_stats_center_date_covering
+    ON daily_statistics (center_id, entry_date)
+    INCLUDE (category_key, topic_key, individual_meetings, lectures, seminars,
+             category_name, topic_name);
+
+CREATE INDEX IF NOT EXISTS idx_daily_stats_category_key ON daily_statistics (category_key);
+
+-- V11 autovacuum options, now per partition (new partitions get them from StatisticsPartitionService)
+DO $$
+DECLARE
+    part RECORD;
+BEGIN
+    FOR part IN
+        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'daily_statistics'::regclass
+    LOOP
+        EXECUTE format('ALTER TABLE %I SET (autovacuum_vacuum_scale_factor = 0.05, autovacuum_analyze_scale_factor = 0.02)',
+                       part.relname);
+    END LOOP;
+END $$;
+
+COMMENT ON TABLE daily_statistics IS 'الإحصائيات اليومية لأنشطة تعزيز الصحة (مقسمة شهرياً) | Daily health promotion activity statistics (monthly partitions)';
@@ -0,0 +1,23 @@
+-- ============================================================================
+-- Database Migration V13: Analytics extract watermarks
+-- ============================================================================
+-- سجل عمليات تصدير مستخلص التحليلات
+-- Each completed extract (GET /api/admin/statistics/warehouse-export) records
+-- the database time it was read at; incremental extracts export rows with
+-- updated_at after the latest watermark (minus a small overlap).
+-- ============================================================================
+
+CREATE TABLE IF NOT EXISTS analytics_export_runs (
+    id BIGSERIAL PRIMARY KEY,
+    watermark TIMESTAMP NOT NULL,
+    since TIMESTAMP,
+    daily_rows BIGINT NOT NULL DEFAULT 0,
+    target_rows BIGINT NOT NULL DEFAULT 0,
+    exported_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Incremental extracts filter on updated_at
+CREATE INDEX IF NOT EXISTS idx_daily_stats_updated_at ON daily_statistics (updated_at);
+CREATE INDEX IF NOT EXISTS idx_monthly_targets_updated_at ON monthly_targets (updated_at);
+
+COMMENT ON TABLE analytics_export_runs IS 'سجل تصدير مستخلص التحليلات | Analytics extract runs and watermarks';
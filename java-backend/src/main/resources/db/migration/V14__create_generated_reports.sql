@@ -0,0 +1,30 @@
+-- ============================================================================
+-- Database Migration V14: Archive of pre-generated PDF reports
+-- ============================================================================
+-- فهرس تقارير PDF المولدة مسبقاً
+-- Weekly/monthly reports of closed periods are stored on disk under the
+-- SHA-256 of their report data (reports.storage.dir/ab/<hash>.pdf); this table maps a period to
+-- its current file. The hash doubles as the HTTP ETag.
+--
+-- stale / invalidated_at: set when statistics of an overlapping month change,
+-- so the report is regenerated on the next request or nightly run.
+-- ============================================================================
+
+CREATE TABLE IF NOT EXISTS generated_reports (
+    id BIGSERIAL PRIMARY KEY,
+    report_type VARCHAR(20) NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    content_hash CHAR(64) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    generated_at TIMESTAMP NOT NULL,
+    stale BOOLEAN NOT NULL DEFAULT FALSE,
+    invalidated_at TIMESTAMP,
+
+    CONSTRAINT uk_generated_reports_period UNIQUE (report_type, start_date, end_date),
+    CONSTRAINT chk_generated_reports_type CHECK (report_type IN ('WEEKLY', 'MONTHLY'))
+);
+
+CREATE INDEX IF NOT EXISTS idx_generated_reports_hash ON generated_reports (content_hash);
+
+COMMENT ON TABLE generated_reports IS 'أرشيف تقارير PDF المولدة | Archive of generated PDF reports';
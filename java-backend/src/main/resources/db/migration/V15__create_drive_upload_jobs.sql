@@ -0,0 +1,43 @@
+-- ============================================================================
+-- Database Migration V15: Google Drive upload queue (outbox)
+-- ============================================================================
+-- طابور رفع الملفات إلى Google Drive
+-- Requests enqueue a job and return; background workers upload the spooled
+-- file (drive.upload.spool-dir) with retries and exponential backoff.
+--
+-- idempotency_key: one job per logical upload; repeated requests reuse it and
+--                  the key is stored on the Drive file (appProperties) so a
+--                  retry never creates a duplicate.
+-- status:          PENDING → UPLOADING → DONE | FAILED (PENDING again on retry)
+-- ============================================================================
+
+CREATE TABLE IF NOT EXISTS drive_upload_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    idempotency_key VARCHAR(200) NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    file_name VARCHAR(500) NOT NULL,
+    mime_type VARCHAR(100) NOT NULL,
+    spool_path TEXT NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    bytes_uploaded BIGINT NOT NULL DEFAULT 0,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_at TIMESTAMP,
+    last_error TEXT,
+    drive_file_id VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP,
+
+    CONSTRAINT uk_drive_upload_jobs_key UNIQUE (idempotency_key),
+    CONSTRAINT chk_drive_upload_jobs_status CHECK (status IN ('PENDING', 'UPLOADING', 'DONE', 'FAILED'))
+);
+
+-- Workers claim due jobs in order
+CREATE INDEX IF NOT EXISTS idx_drive_upload_jobs_due ON drive_upload_jobs (next_attempt_at, id)
+    WHERE status = 'PENDING';
+
+-- Status page per user and per-user concurrency check
+CREATE INDEX IF NOT EXISTS idx_drive_upload_jobs_user ON drive_upload_jobs (user_id, status);
+
+COMMENT ON TABLE drive_upload_jobs IS 'طابور رفع الملفات إلى Google Drive | Durable Drive upload queue';
@@ -0,0 +1,19 @@
+-- ============================================================================
+-- Database Migration V16: Upload queue sources without spool files
+-- ============================================================================
+-- مصادر الرفع دون ملفات مؤقتة
+-- Besides spooled files (SPOOL), a job can point at content the application
+-- already stores, read straight into the upload when the worker runs:
+--   POSTER            source_ref = poster ID (posters.image_bytes, approved only)
+--   MONTHLY_WORKBOOK  source_ref = yyyy-MM or yyyy-MM:centerId (Excel export)
+-- size_bytes is NULL when the length is only known at upload time.
+-- ============================================================================
+
+ALTER TABLE drive_upload_jobs ADD COLUMN IF NOT EXISTS source_type VARCHAR(30) NOT NULL DEFAULT 'SPOOL';
+ALTER TABLE drive_upload_jobs ADD COLUMN IF NOT EXISTS source_ref TEXT;
+ALTER TABLE drive_upload_jobs ALTER COLUMN spool_path DROP NOT NULL;
+ALTER TABLE drive_upload_jobs ALTER COLUMN size_bytes DROP NOT NULL;
+
+ALTER TABLE drive_upload_jobs DROP CONSTRAINT IF EXISTS chk_drive_upload_jobs_source;
+ALTER TABLE drive_upload_jobs ADD CONSTRAINT chk_drive_upload_jobs_source
+    CHECK (source_type IN ('SPOOL', 'POSTER', 'MONTHLY_WORKBOOK'));
@@ -0,0 +1,50 @@
+-- ============================================================================
+-- Database Migration V17: Full-text search for FAQ, bulletins and messages
+-- ============================================================================
+-- البحث النصي الكامل مع توحيد الكتابة العربية والكردية والتركمانية
+-- search_normalize() folds spelling variants before indexing:
+--   أ إ آ ٱ → ا   ى ی ئ → ي   ؤ → و   ة ە ھ → ه   ک → ك
+--   Arabic-Indic / Persian digits → 0-9, Turkmen Latin ı ş ç ğ ö ü ä ň ý ž → plain Latin
+--   tashkeel, superscript alef and tatweel removed; punctuation and whitespace
+--   runs → one space (explicit class: [[:punct:]] and \s differ from Java's)
+--   leading article (ال وال بال كال فال) removed and لل (لِ + ال) → ل, when at
+--   least two letters follow
+-- The same rules are applied to queries by SearchTextNormalizer; DatabaseSeeder
+-- (re)creates this function from that class, so both always agree.
+-- If the rules change, existing rows keep their old vectors until updated;
+-- DatabaseSeeder detects a changed function body and touches every row.
+-- ============================================================================
+
+CREATE OR REPLACE FUNCTION search_normalize(input TEXT) RETURNS TEXT
+LANGUAGE SQL IMMUTABLE PARALLEL SAFE AS $fn$
+SELECT regexp_replace(
+         regexp_replace(
+           regexp_replace(
+             translate(lower(coalesce(input, '')),
+                       'أإآٱىیئؤةەھک٠١٢٣٤٥٦٧٨٩۰۱۲۳۴۵۶۷۸۹ışçğöüäňýž',
+                       'اااايييوهههك01234567890123456789iscgouanyz'),
+             '[ً-ٰٟـ̇]', '', 'g'),
+           '[\x09-\x0D\x20-\x2F\x3A-\x40\x5B-\x60\x7B-\x7E «»،؛؟ -     　]+', ' ', 'g'),
+         '(^| )(?:[وفبك]?ال|(ل)ل)([^ ][^ ])', '\1\2\3', 'g')
+$fn$;
+
+-- Weights: A = question / title, B = tags / category, C = answer / body
+ALTER TABLE faq_entries ADD COLUMN IF NOT EXISTS search_vector TSVECTOR
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', search_normalize(question)), 'A') ||
+        setweight(to_tsvector('simple', search_normalize(coalesce(tags, '') || ' ' || coalesce(category, ''))), 'B') ||
+        setweight(to_tsvector('simple', search_normalize(answer)), 'C')
+    ) STORED;
+
+ALTER TABLE bulletins ADD COLUMN IF NOT EXISTS search_vector TSVECTOR
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', search_normalize(title)), 'A') ||
+        setweight(to_tsvector('simple', search_normalize(content)), 'C')
+    ) STORED;
+
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS search_vector TSVECTOR
+    GENERATED ALWAYS AS (to_tsvector('simple', search_normalize(content))) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_faq_entries_search ON faq_entries USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_bulletins_search ON bulletins USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_messages_search ON messages USING GIN (search_vector);